@@ -3,6 +3,7 @@ plugins {
 	groovy
 	id("org.springframework.boot") version "3.0.2"
 	id("io.spring.dependency-management") version "1.1.0"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.finalproject"
@@ -42,6 +43,13 @@ configurations.implementation {
 	exclude (group = "org.springframework.boot", module = "spring-boot-starter-logging")
 }
 
+// Microbenchmarks live in src/jmh, run them with ./gradlew jmh
+jmh {
+	warmupIterations.set(2)
+	iterations.set(5)
+	fork.set(1)
+}
+
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
@@ -0,0 +1,41 @@
+package com.finalproject.demeter.benchmark;
+
+import com.finalproject.demeter.cache.JwtClaimsCache;
+import com.finalproject.demeter.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating the same token over and over, the way a session does, with and without the claims cache.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtValidationBenchmark {
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        cachedJwtUtil = new JwtUtil(new JwtClaimsCache(10000));
+        uncachedJwtUtil = new JwtUtil(new JwtClaimsCache(0));
+        userDetails = new User("johns@gmail.com", "password", List.of());
+        token = uncachedJwtUtil.generateToken(userDetails, 1L);
+    }
+
+    @Benchmark
+    public boolean cachedValidation() {
+        return cachedJwtUtil.isTokenValid(token, userDetails);
+    }
+
+    @Benchmark
+    public boolean uncachedValidation() {
+        return uncachedJwtUtil.isTokenValid(token, userDetails);
+    }
+}
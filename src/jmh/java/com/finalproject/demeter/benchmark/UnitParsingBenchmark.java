@@ -0,0 +1,97 @@
+package com.finalproject.demeter.benchmark;
+
+import com.finalproject.demeter.units.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing the units of a recipe upload through the unit lexicon with the way it used to be done, asking
+ * every unit enum in turn, each one lowercasing the input again before its switch.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UnitParsingBenchmark {
+    private static final String[] UNITS = {
+            "cups", "Tbsp", "tsp", "grams", "oz", "fluid ounces", "Pinch", "lbs", "pieces", "slices", "°F", "inches",
+            "kilograms", "mL", "fl oz", "quart", "whole", "cloves", "dash", "gallons"
+    };
+
+    @Benchmark
+    public void lexicon(Blackhole blackhole) {
+        for (String unit : UNITS) {
+            blackhole.consume(UnitLexicon.ALL.parse(unit));
+        }
+    }
+
+    @Benchmark
+    public void cascadedSwitches(Blackhole blackhole) {
+        for (String unit : UNITS) {
+            blackhole.consume(cascadedUnitOf(unit));
+        }
+    }
+
+    // The parsing that the lexicon replaced, kept here as the baseline
+    private static Unit cascadedUnitOf(String value) {
+        Unit volUnit = switch (value.toLowerCase()) {
+            case "liter", "liters", "l" -> VolumetricUnit.L;
+            case "milliliter", "milliliters", "ml" -> VolumetricUnit.ML;
+            case "fl oz", "floz", "fluid ounce", "fluid ounces" -> VolumetricUnit.FL_OZ;
+            case "pint", "pints", "pt" -> VolumetricUnit.PINT;
+            case "quart", "quarts", "qt" -> VolumetricUnit.QUART;
+            case "gallon", "gallons", "gal" -> VolumetricUnit.GAL;
+            case "cup", "cups", "c" -> VolumetricUnit.CUP;
+            case "tablespoon", "tablespoons", "tbsp", "tbsps", "tbs" -> VolumetricUnit.TBSP;
+            case "teaspoon", "teaspoons", "tsp", "tsps" -> VolumetricUnit.TSP;
+            case "pinch", "pinches" -> VolumetricUnit.PINCH;
+            case "dash", "dashes" -> VolumetricUnit.DASH;
+            case "dusting", "dustings" -> VolumetricUnit.DUSTING;
+            default -> null;
+        };
+        Unit lenUnit = switch (value.toLowerCase()) {
+            case "m", "meter", "meters" -> LengthUnit.M;
+            case "in", "inch", "inches" -> LengthUnit.IN;
+            case "ft", "feet" -> LengthUnit.FT;
+            case "yd", "yrd", "yrds", "yard", "yards" -> LengthUnit.YRD;
+            case "mi", "mile", "miles" -> LengthUnit.MI;
+            default -> null;
+        };
+        Unit singUnit = switch (value.toLowerCase()) {
+            case "piece", "pieces" -> SingularUnit.PIECE;
+            case "slice", "slices" -> SingularUnit.SLICE;
+            default -> null;
+        };
+        Unit tempUnit = switch (value.toLowerCase()) {
+            case "celsius", "c", "°c" -> TemperatureUnit.C;
+            case "fahrenheit", "f", "°f" -> TemperatureUnit.F;
+            case "kelvin", "kelvins", "k" -> TemperatureUnit.K;
+            default -> null;
+        };
+        Unit wgtUnit = switch (value.toLowerCase()) {
+            case "gram", "grams", "g" -> WeightUnit.G;
+            case "kilogram", "kilograms", "kg" -> WeightUnit.KG;
+            case "milligram", "milligrams", "mg" -> WeightUnit.MG;
+            case "ounce", "ounces", "oz" -> WeightUnit.OZ;
+            case "pound", "pounds", "lb", "lbs" -> WeightUnit.LB;
+            case "stone", "stones", "st", "sts" -> WeightUnit.ST;
+            case "ton", "tons", "t", "ts" -> WeightUnit.T;
+            default -> null;
+        };
+
+        if (volUnit != null) {
+            return volUnit;
+        }
+        if (lenUnit != null) {
+            return lenUnit;
+        }
+        if (singUnit != null) {
+            return singUnit;
+        }
+        if (tempUnit != null) {
+            return tempUnit;
+        }
+        return wgtUnit;
+    }
+}
@@ -0,0 +1,101 @@
+package com.finalproject.demeter.cache;
+
+import com.finalproject.demeter.dao.FoodItem;
+import com.finalproject.demeter.repository.FoodItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read through cache of the food item catalog. Food item ids are handed out by the database in sequence, so the
+ * catalog is kept in an array indexed by id. Ids that would make the array too sparse, and food items that were
+ * added since the last load, are kept in a map next to it. Anything that is in neither is read from the database
+ * and kept from then on.
+ *
+ * The cached food items are shared, callers must not change them.
+ * */
+@Component
+public class FoodItemRegistry {
+    // The array never gets more slots than this many per food item, higher ids go to the overflow map
+    private static final int MAX_SLOTS_PER_ITEM = 4;
+    private static final int MIN_SLOTS = 1024;
+    private final FoodItemRepository foodItemRepository;
+    private final Logger LOGGER = LoggerFactory.getLogger(FoodItemRegistry.class);
+    // Both are swapped on reload
+    private volatile FoodItem[] items = new FoodItem[0];
+    private volatile Map<Long, FoodItem> overflow = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FoodItemRegistry(FoodItemRepository foodItemRepository) {
+        this.foodItemRepository = foodItemRepository;
+    }
+
+    /**
+     * Loads the whole catalog, replacing everything that was cached.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.food.refresh-ms:600000}")
+    public void reload() {
+        List<FoodItem> foodItems = foodItemRepository.findAll();
+        long maxId = -1;
+        for (FoodItem foodItem : foodItems) {
+            maxId = Math.max(maxId, foodItem.getId());
+        }
+        int slots = (int) Math.min(maxId + 1, Math.max(MIN_SLOTS, (long) foodItems.size() * MAX_SLOTS_PER_ITEM));
+
+        FoodItem[] newItems = new FoodItem[slots];
+        Map<Long, FoodItem> newOverflow = new ConcurrentHashMap<>();
+        for (FoodItem foodItem : foodItems) {
+            if (foodItem.getId() >= 0 && foodItem.getId() < slots) {
+                newItems[(int) foodItem.getId()] = foodItem;
+            } else {
+                newOverflow.put(foodItem.getId(), foodItem);
+            }
+        }
+
+        items = newItems;
+        overflow = newOverflow;
+        LOGGER.info("Food item registry loaded {} food items, {} outside of the array", foodItems.size(),
+                newOverflow.size());
+    }
+
+    /**
+     * Used to get a food item by its id.
+     * @param id id of the food item.
+     * @return Optional including the food item, empty if it does not exist.
+     * */
+    public Optional<FoodItem> findById(long id) {
+        FoodItem[] currentItems = items;
+        if (id >= 0 && id < currentItems.length && currentItems[(int) id] != null) {
+            return Optional.of(currentItems[(int) id]);
+        }
+        Map<Long, FoodItem> currentOverflow = overflow;
+        FoodItem foodItem = currentOverflow.get(id);
+        if (foodItem != null) {
+            return Optional.of(foodItem);
+        }
+
+        // Missing ids are not remembered, so food items added later are found right away
+        Optional<FoodItem> loaded = foodItemRepository.findById(id);
+        loaded.ifPresent(found -> currentOverflow.put(id, found));
+        return loaded;
+    }
+
+    /**
+     * Drops a food item so the next lookup reads it from the database again. Used after a food item changed.
+     * @param id id of the food item.
+     * */
+    public void evict(long id) {
+        FoodItem[] currentItems = items;
+        if (id >= 0 && id < currentItems.length) {
+            currentItems[(int) id] = null;
+        }
+        overflow.remove(id);
+    }
+}
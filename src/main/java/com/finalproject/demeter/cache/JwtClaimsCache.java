@@ -0,0 +1,124 @@
+package com.finalproject.demeter.cache;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the claims of tokens whose signature was already verified, so a session that keeps sending the same token
+ * only pays for the signature check and the parsing once. Tokens are keyed by their SHA-256 digest, the cache never
+ * holds a usable token. An entry is dropped once the token it belongs to expires, and the least recently used
+ * entries are evicted first when the cache is full.
+ *
+ * The cached claims are shared, callers must not change them.
+ * */
+@Component
+public class JwtClaimsCache {
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Guarded by itself
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * @param maxEntries: the number of tokens that are kept, 0 turns the cache off.
+     * */
+    @Autowired
+    public JwtClaimsCache(@Value("${demeter.jwt.claims-cache-size:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > JwtClaimsCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param token: the token without the "Bearer" prefix.
+     * @return Optional including the verified claims of the token, empty if they are not cached or it expired.
+     * */
+    public Optional<Claims> get(String token) {
+        if (maxEntries <= 0) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        String key = digest(token);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return Optional.of(entry.claims);
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the claims of a token, only call this after its signature was verified. Tokens without an expiry are
+     * never cached.
+     * @param token: the token without the "Bearer" prefix.
+     * @param claims: the verified claims of the token.
+     * */
+    public void put(String token, Claims claims) {
+        if (maxEntries <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        long expiresAt = claims.getExpiration().getTime();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        String key = digest(token);
+        synchronized (entries) {
+            entries.put(key, new Entry(claims, expiresAt));
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every java runtime has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.finalproject.demeter.cache;
+
+import com.finalproject.demeter.dto.RecipeWithSub;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the complete, ordered list of recipes a user can make so paging through the results does not rescan the
+ * whole catalog. Every user has a version stamp that is bumped whenever their inventory, disliked items or minor
+ * items change, and there is a catalog generation that is bumped whenever the public recipes change. A cached list
+ * is only served while both still match the values it was computed with.
+ *
+ * Only the users that were invalidated recently keep their own version, the others share a floor that is raised to
+ * the version of every user that is dropped. A dropped user can never get an old version back, so the versions stay
+ * bounded without letting a stale list in. The cached matches are shared between requests and must not be changed
+ * once they are stored. Ratings change with every review, so they are filled in on copies when a page is served.
+ * */
+@Component
+public class MatchResultCache {
+    private final int maxEntries;
+    private final long timeToLiveMs;
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicLong catalogGeneration = new AtomicLong();
+    // Guarded by itself
+    private final LinkedHashMap<Long, Entry> entries;
+    // Guarded by entries
+    private final LinkedHashMap<Long, Long> userVersions;
+    private long versionFloor;
+
+    /**
+     * @param maxEntries: the number of users whose matches are kept, the least recently used are evicted first.
+     * @param timeToLiveMs: how long a list is kept, this picks up recipes added without going through the api.
+     * */
+    @Autowired
+    public MatchResultCache(@Value("${demeter.matching.cache-size:1000}") int maxEntries,
+                            @Value("${demeter.matching.cache-ttl-ms:600000}") long timeToLiveMs) {
+        this.maxEntries = maxEntries;
+        this.timeToLiveMs = timeToLiveMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > MatchResultCache.this.maxEntries;
+            }
+        };
+        this.userVersions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() <= Math.max(MatchResultCache.this.maxEntries, 1)) {
+                    return false;
+                }
+                versionFloor = Math.max(versionFloor, eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Used to get the version a list of matches needs to be stored with. This has to be taken before the data
+     * used for matching is read, so changes made while matching are never hidden by the cache.
+     * @param userId: id of the user.
+     * @return the current version stamp of the user.
+     * */
+    public Stamp currentStamp(long userId) {
+        synchronized (entries) {
+            return new Stamp(userVersions.getOrDefault(userId, versionFloor), catalogGeneration.get());
+        }
+    }
+
+    /**
+     * @param userId: id of the user.
+     * @return Optional including the cached matches of a user, empty if there are none or they are stale.
+     * */
+    public Optional<List<RecipeWithSub>> get(long userId) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (!entry.stamp.equals(currentStamp(userId)) || System.currentTimeMillis() - entry.createdAt > timeToLiveMs) {
+                entries.remove(userId);
+                return Optional.empty();
+            }
+            return Optional.of(entry.matches);
+        }
+    }
+
+    /**
+     * Stores the matches of a user.
+     * @param userId: id of the user.
+     * @param stamp: the version stamp taken before the matches were computed.
+     * @param matches: the complete ordered list of matches.
+     * */
+    public void put(long userId, Stamp stamp, List<RecipeWithSub> matches) {
+        synchronized (entries) {
+            if (!stamp.equals(currentStamp(userId))) {
+                // Something changed while matching, the result is already stale
+                return;
+            }
+            entries.put(userId, new Entry(stamp, Collections.unmodifiableList(matches), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Used when the inventory, disliked items or minor items of a user change.
+     * @param userId: id of the user.
+     * */
+    public void invalidateUser(long userId) {
+        synchronized (entries) {
+            // Newer than the floor and than any version handed out before
+            userVersions.put(userId, versionSequence.incrementAndGet());
+            entries.remove(userId);
+        }
+    }
+
+    /**
+     * Used when the public recipes change.
+     * */
+    public void invalidateAll() {
+        synchronized (entries) {
+            catalogGeneration.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of users that keep their own version.
+     * */
+    public int trackedUsers() {
+        synchronized (entries) {
+            return userVersions.size();
+        }
+    }
+
+    /**
+     * The versions a list of matches was computed with.
+     * */
+    public static final class Stamp {
+        private final long userVersion;
+        private final long catalogGeneration;
+
+        private Stamp(long userVersion, long catalogGeneration) {
+            this.userVersion = userVersion;
+            this.catalogGeneration = catalogGeneration;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp stamp)) {
+                return false;
+            }
+            return userVersion == stamp.userVersion && catalogGeneration == stamp.catalogGeneration;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userVersion, catalogGeneration);
+        }
+    }
+
+    private static final class Entry {
+        private final Stamp stamp;
+        private final List<RecipeWithSub> matches;
+        private final long createdAt;
+
+        private Entry(Stamp stamp, List<RecipeWithSub> matches, long createdAt) {
+            this.stamp = stamp;
+            this.matches = matches;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.finalproject.demeter.cache;
+
+import com.finalproject.demeter.dto.RecipeItemView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the converted ingredient list of a recipe per unit system, ready to be sent as is. Recipe items do not change
+ * once a recipe is uploaded, a recipe only has to be invalidated when it is removed or published. There is a
+ * generation that is bumped by every invalidation, a list is only stored if it was loaded in the current one, so a
+ * list read while its recipe was being removed never gets cached. Inside a transaction the recipe is invalidated again
+ * once it commits, a list read before the commit still sees the old recipe and could otherwise be stored in between.
+ *
+ * The cached lists are unmodifiable and shared between requests.
+ * */
+@Component
+public class RecipeItemViewCache {
+    private final int maxEntries;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Guarded by itself
+    private final LinkedHashMap<Long, List<RecipeItemView>> entries;
+
+    /**
+     * @param maxEntries: the number of ingredient lists that are kept, 0 turns the cache off.
+     * */
+    @Autowired
+    public RecipeItemViewCache(@Value("${demeter.recipe-items.cache-size:2000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<RecipeItemView>> eldest) {
+                return size() > RecipeItemViewCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Used to get the generation a list needs to be stored with. This has to be taken before the recipe items are
+     * read.
+     * @return the current generation.
+     * */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @param recipeId: id of the recipe.
+     * @param isMetric: the unit system of the list.
+     * @return Optional including the converted ingredient list, empty if it is not cached.
+     * */
+    public Optional<List<RecipeItemView>> get(long recipeId, boolean isMetric) {
+        List<RecipeItemView> views;
+        synchronized (entries) {
+            views = entries.get(key(recipeId, isMetric));
+        }
+        if (views == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(views);
+    }
+
+    /**
+     * Stores the converted ingredient list of a recipe.
+     * @param recipeId: id of the recipe.
+     * @param isMetric: the unit system of the list.
+     * @param generation: the generation taken before the recipe items were read.
+     * @param views: the converted ingredient list.
+     * */
+    public void put(long recipeId, boolean isMetric, long generation, List<RecipeItemView> views) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        List<RecipeItemView> unmodifiableViews = List.copyOf(views);
+        synchronized (entries) {
+            // Checked under the lock, invalidate bumps the generation before it takes it
+            if (generation != this.generation.get()) {
+                return;
+            }
+            entries.put(key(recipeId, isMetric), unmodifiableViews);
+        }
+    }
+
+    /**
+     * Used when a recipe is removed or published.
+     * @param recipeId: id of the recipe.
+     * */
+    public void invalidate(long recipeId) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.remove(key(recipeId, true));
+            entries.remove(key(recipeId, false));
+        }
+    }
+
+    /**
+     * Used when a recipe is removed or published in a transaction. The recipe is invalidated right away and again
+     * after the transaction commits, without a transaction it is only invalidated right away.
+     * @param recipeId: id of the recipe.
+     * */
+    public void invalidateAfterCommit(long recipeId) {
+        invalidate(recipeId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(recipeId);
+            }
+        });
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static long key(long recipeId, boolean isMetric) {
+        return recipeId << 1 | (isMetric ? 1 : 0);
+    }
+}
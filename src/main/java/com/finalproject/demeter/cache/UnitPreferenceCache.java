@@ -0,0 +1,81 @@
+package com.finalproject.demeter.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers whether users want metric or imperial units, every converted response needs it and it only changes when
+ * the user toggles it. Works like RecipeItemViewCache, a value is only stored if no preference was changed since it
+ * was read.
+ * */
+@Component
+public class UnitPreferenceCache {
+    private final int maxEntries;
+    private final AtomicLong generation = new AtomicLong();
+    // Guarded by itself
+    private final LinkedHashMap<Long, Boolean> entries;
+
+    /**
+     * @param maxEntries: the number of users whose preference is kept, 0 turns the cache off.
+     * */
+    @Autowired
+    public UnitPreferenceCache(@Value("${demeter.preferences.cache-size:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > UnitPreferenceCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the generation a preference needs to be stored with, taken before it is read.
+     * */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @param userId: id of the user.
+     * @return Optional including true if the user wants metric units, empty if it is not cached.
+     * */
+    public Optional<Boolean> get(long userId) {
+        synchronized (entries) {
+            return Optional.ofNullable(entries.get(userId));
+        }
+    }
+
+    /**
+     * @param userId: id of the user.
+     * @param generation: the generation taken before the preference was read.
+     * @param isMetric: true if the user wants metric units.
+     * */
+    public void put(long userId, long generation, boolean isMetric) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation == this.generation.get()) {
+                entries.put(userId, isMetric);
+            }
+        }
+    }
+
+    /**
+     * Used when a user changes their preferences.
+     * @param userId: id of the user.
+     * */
+    public void invalidate(long userId) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+}
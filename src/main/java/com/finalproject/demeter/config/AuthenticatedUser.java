@@ -0,0 +1,86 @@
+package com.finalproject.demeter.config;
+
+import com.finalproject.demeter.dao.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * The principal of an authenticated request. The user is looked up once when the request is authenticated and is
+ * kept here, together with the token it was authenticated with, for the rest of the request.
+ * */
+public class AuthenticatedUser implements UserDetails {
+    private final User user;
+    private final String token;
+    private final Set<? extends GrantedAuthority> authorities;
+
+    /**
+     * @param user: the user the request belongs to.
+     * @param token: the JWT the request was authenticated with, without the "Bearer" prefix. May be null.
+     * @param authorities: the authorities of the user.
+     * */
+    public AuthenticatedUser(User user, String token, Set<? extends GrantedAuthority> authorities) {
+        this.user = user;
+        this.token = token;
+        this.authorities = authorities;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public long getUserId() {
+        return user.getId();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Used to check if this principal was authenticated with a token.
+     * @param jwtToken: the token without the "Bearer" prefix.
+     * @return true if the token is the one this principal was authenticated with.
+     * */
+    public boolean isAuthenticatedWith(String jwtToken) {
+        return token != null && token.equals(jwtToken);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return user.getPassword();
+    }
+
+    // Tokens carry the email as their subject
+    @Override
+    public String getUsername() {
+        return user.getEmail();
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,7 +1,6 @@
 package com.finalproject.demeter.config;
 
 import com.finalproject.demeter.service.UserService;
-import com.finalproject.demeter.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,30 +8,27 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private UserService userService;
-    private JwtUtil jwtUtil;
 
     @Autowired
-    public JwtAuthFilter(UserService userService, JwtUtil jwtUtil){
+    public JwtAuthFilter(UserService userService){
         this.userService = userService;
-        this.jwtUtil = jwtUtil;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         final String authHeader = request.getHeader("AUTHORIZATION");
-        final String userEmail;
         final String jwtToken;
 
         if (authHeader == null || !authHeader.startsWith("Bearer")){
@@ -41,15 +37,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         jwtToken = authHeader.substring(7);
-        userEmail = jwtUtil.extractEmail(jwtToken);
 
-
-
-        if(userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails = userService.loadUserByUsername(userEmail);
-            if (jwtUtil.isTokenValid(jwtToken, userDetails)) {
+        // The token is verified and the user loaded once here, later lookups of this request reuse the principal
+        if(SecurityContextHolder.getContext().getAuthentication() == null){
+            Optional<AuthenticatedUser> principal = userService.loadUserFromJwtToken(jwtToken);
+            if (principal.isPresent()) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
+                        principal.get(), null, principal.get().getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
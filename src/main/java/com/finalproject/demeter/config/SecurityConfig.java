@@ -44,6 +44,8 @@ public class SecurityConfig {
                                 .requestMatchers("/v1/api/auth/**").permitAll()
                                 .requestMatchers(HttpMethod.POST,"/v1/api/recipes").permitAll()
                                 .requestMatchers(HttpMethod.POST,"/v1/api/recipes/queryRecipes").permitAll()
+                                .requestMatchers(HttpMethod.POST,"/v1/api/recipes/seek").permitAll()
+                                .requestMatchers(HttpMethod.POST,"/v1/api/recipes/queryRecipes/seek").permitAll()
                                 .anyRequest()
                                 .authenticated()
                                 .and()
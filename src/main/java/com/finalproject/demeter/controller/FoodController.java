@@ -3,8 +3,10 @@ package com.finalproject.demeter.controller;
 import com.finalproject.demeter.dao.FoodItem;
 import com.finalproject.demeter.service.FoodService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -23,4 +25,27 @@ public class FoodController {
     public List<FoodItem> getFoodItems() {
         return foodService.getAllFoodItems();
     }
+
+    /**
+     * Used to get a page of the food catalog
+     * @param pageNumber - the page to return, starting at 0.
+     * @param pageSize - the number of food items on a page.
+     * @return A ResponseEntity that contains the number of pages and the food items on the page
+     * */
+    @GetMapping("/page")
+    public ResponseEntity<?> getFoodItemPage(@RequestParam int pageNumber, @RequestParam int pageSize) {
+        return foodService.getFoodItemPage(pageNumber, pageSize);
+    }
+
+    /**
+     * Used to suggest food items for what a user has typed so far
+     * @param prefix - the start of a food item name.
+     * @param limit - the maximum number of suggestions.
+     * @return A ResponseEntity that contains the ids and names of the matching food items
+     * */
+    @GetMapping("/typeahead")
+    public ResponseEntity<?> getFoodTypeahead(@RequestParam String prefix,
+                                              @RequestParam(required = false) Integer limit) {
+        return foodService.getFoodTypeahead(prefix, limit);
+    }
 }
@@ -1,13 +1,12 @@
 package com.finalproject.demeter.controller;
 
 import com.finalproject.demeter.dao.FoodItem;
-import com.finalproject.demeter.dao.InventoryItem;
 import com.finalproject.demeter.dao.User;
 import com.finalproject.demeter.dto.FoodMark;
+import com.finalproject.demeter.dto.InventoryItemView;
 import com.finalproject.demeter.dto.UpdateInventory;
 import com.finalproject.demeter.service.FoodService;
 import com.finalproject.demeter.service.UserService;
-import com.finalproject.demeter.util.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,7 +22,6 @@ import java.util.Optional;
 @RequestMapping("/v1/api/inventory")
 public class InventoryController {
     private Logger log = LoggerFactory.getLogger(InventoryController.class);
-    private JwtUtil jwtUtil = new JwtUtil();
     private UserService userService;
     private FoodService foodService;
 
@@ -67,23 +65,39 @@ public class InventoryController {
         ResponseEntity<String> response = userService.updateInventory(user.get(), item);
         if (response.getBody().equals("Inventory was saved") ||
                 response.getBody().equals("Inventory Item was Removed")) {
-            List<InventoryItem> inventory = userService.getInventory(user.get(), true);
+            List<InventoryItemView> inventory = userService.getInventoryView(user.get());
             return new ResponseEntity<>(inventory, HttpStatus.OK);
         }
 
         return response;
     }
 
+    /**
+     * This is used to apply many updates to the inventoryItems of a user at once
+     * @param jwt - the user's jwt token
+     * @param items - list of dto UpdateInventory, each with a foodItem, quantity, and unit
+     * @return A ResponseEntity that contains the updated inventory or the status of the operation
+     */
+    @PostMapping("/updateInventoryBulk")
+    public ResponseEntity<?> updateInventoryBulk(@RequestHeader("AUTHORIZATION") String jwt,
+                                                 @RequestBody List<UpdateInventory> items) {
+        Optional<User> user = userService.getUserFromJwtToken(jwt);
+        if (user.isEmpty()) {
+            return new ResponseEntity<>("User not Found", HttpStatus.NOT_FOUND);
+        }
+        return userService.updateInventory(user.get(), items);
+    }
+
     /**
      * This is used to get the inventoryItems inside a users inventory
      * @param jwt - the user's jwt token
      * @return A ResponseEntity that contains a list of inventoryItems
      */
     @PostMapping("/getInventory")
-    List<InventoryItem> getUserInventory(@RequestHeader("AUTHORIZATION") String jwt) {
+    List<InventoryItemView> getUserInventory(@RequestHeader("AUTHORIZATION") String jwt) {
         Optional<User> user = userService.getUserFromJwtToken(jwt);
         if (user.isPresent()) {
-            return userService.getInventory(user.get(), true);
+            return userService.getInventoryView(user.get());
         }
         return new ArrayList<>();
     }
@@ -30,6 +30,16 @@ public class RecipeController {
         return recipeService.getAllRecipes(pageSettings);
     }
 
+    /**
+     * Used to get the recipes that come after a cursor
+     * @param cursorSetting - the cursor of the previous page and the page size.
+     * @return A ResponseEntity that contains a page of recipes and the cursor of the next page
+     * */
+    @PostMapping("/seek")
+    public ResponseEntity<?> getAllRecipesAfter(@RequestBody CursorSetting cursorSetting) {
+        return recipeService.getAllRecipesAfter(cursorSetting);
+    }
+
     /**
      * Used to add a recipes to a users favorite list.
      * @param jwt: Token needed to authenticate a user.
@@ -142,6 +152,18 @@ public class RecipeController {
         return recipeService.getQueriedRecipes(query, pageSetting);
     }
 
+    /**
+     * Used to get recipes from the database one page at a time with a cursor
+     * @param requestObject - the object that contains the recipe query data and the cursor settings.
+     * @return: A ResponseEntity entity with queried recipes and the cursor of the next page
+     * */
+    @PostMapping("/queryRecipes/seek")
+    public ResponseEntity<?> queryRecipesAfter(@RequestBody HashMap<String, HashMap<String, String>> requestObject) {
+        CursorSetting cursorSetting = recipeService.getCursorSettings(requestObject);
+        RecipeQuery query = recipeService.getRecipeQuery(requestObject);
+        return recipeService.getQueriedRecipesAfter(query, cursorSetting);
+    }
+
     /**
      * Used to get recipes based on a users inventory
      * @param jwt - Token needed to authenticate a user.
@@ -155,6 +177,18 @@ public class RecipeController {
         return new ResponseEntity(recipeList, HttpStatus.OK);
     }
 
+    /**
+     * Used to get the recipes that are closest to being makeable with a users inventory
+     * @param jwt - Token needed to authenticate a user.
+     * @param limit - the number of recipes to return, at most 50.
+     * @return: A ResponseEntity that contains a list of recipe suggestions
+     * */
+    @PostMapping("/closestRecipes")
+    public ResponseEntity<?> getClosestRecipes(@RequestHeader("AUTHORIZATION") String jwt,
+                                               @RequestBody Integer limit) {
+        return recipeService.getClosestRecipes(jwt, limit);
+    }
+
     /**
      * endpoint for updating a recipeReview with an inputted RecipeReview item
      * @param reviewItem
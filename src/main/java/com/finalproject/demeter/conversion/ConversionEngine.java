@@ -0,0 +1,272 @@
+package com.finalproject.demeter.conversion;
+
+import com.finalproject.demeter.units.*;
+
+import java.util.Arrays;
+
+/**
+ * Converts quantities between units with tables that are built once. Every unit is described by how many of it make
+ * up one of its standard unit (i.e. 202.9 teaspoons in a liter) plus an offset for temperatures, indexed by its unit
+ * code. The unit a standard quantity is shown in is picked from a ladder of display units per standard unit and unit
+ * system, by comparing the quantity against thresholds that are already in standard units.
+ *
+ * Nothing here allocates or keeps state, it is safe to call from any number of threads.
+ * */
+public final class ConversionEngine {
+    private static final int L = UnitCodes.codeOf(VolumetricUnit.L);
+    private static final int M = UnitCodes.codeOf(LengthUnit.M);
+    private static final int PIECE = UnitCodes.codeOf(SingularUnit.PIECE);
+    private static final int C = UnitCodes.codeOf(TemperatureUnit.C);
+    private static final int G = UnitCodes.codeOf(WeightUnit.G);
+    private static final int DEFAULT = UnitCodes.codeOf(VolumetricUnit.DEFAULT);
+    private static final UnitLexicon<Unit> STANDARD_UNITS = UnitLexicon.of(new Unit[] {VolumetricUnit.L, LengthUnit.M,
+            SingularUnit.PIECE, TemperatureUnit.C, WeightUnit.G});
+    // Inbound quantities are rounded to this many decimal places
+    private static final double ROUNDING = 1_000_000D;
+
+    // All indexed by unit code
+    private static final double[] PER_STANDARD = new double[UnitCodes.COUNT];
+    private static final double[] OFFSET = new double[UnitCodes.COUNT];
+    private static final int[] STANDARD = new int[UnitCodes.COUNT];
+    private static final String[] NAME = new String[UnitCodes.COUNT];
+    private static final String[] PLURAL_NAME = new String[UnitCodes.COUNT];
+    // The name quantities in a standard unit are stored with
+    private static final String[] STANDARD_NAME = new String[UnitCodes.COUNT];
+    // Display units per standard unit, smallest first, and the standard quantities each one is used below
+    private static final int[][] METRIC_LADDER = new int[UnitCodes.COUNT][];
+    private static final double[][] METRIC_LIMITS = new double[UnitCodes.COUNT][];
+    private static final int[][] IMPERIAL_LADDER = new int[UnitCodes.COUNT][];
+    private static final double[][] IMPERIAL_LIMITS = new double[UnitCodes.COUNT][];
+
+    static {
+        Arrays.fill(NAME, "default");
+        Arrays.fill(STANDARD, DEFAULT);
+        Arrays.fill(PER_STANDARD, 1D);
+
+        unit(VolumetricUnit.L, L, 1, "L");
+        unit(VolumetricUnit.ML, L, 1000, "ml");
+        unit(VolumetricUnit.FL_OZ, L, 33.814, "default");
+        unit(VolumetricUnit.PINT, L, 2.113, "default");
+        unit(VolumetricUnit.QUART, L, 1.057, "default");
+        unit(VolumetricUnit.GAL, L, 1 / 3.785, "gal");
+        unit(VolumetricUnit.CUP, L, 4.227, "cup", "cups");
+        unit(VolumetricUnit.TBSP, L, 67.628, "Tbsp");
+        unit(VolumetricUnit.TSP, L, 202.9, "tsp");
+        unit(VolumetricUnit.PINCH, L, 32258.0645, "default");
+        unit(VolumetricUnit.DASH, L, 1612.9, "default");
+        unit(VolumetricUnit.DUSTING, L, 1612.9, "default");
+
+        unit(LengthUnit.M, M, 1, "m");
+        unit(LengthUnit.IN, M, 39.37, "in");
+        unit(LengthUnit.FT, M, 3.281, "ft");
+        unit(LengthUnit.YRD, M, 1.094, "yd");
+        unit(LengthUnit.MI, M, 1 / 1609D, "default");
+
+        unit(SingularUnit.PIECE, PIECE, 1, "piece", "pieces");
+        unit(SingularUnit.SLICE, PIECE, 1, "slice", "slices");
+
+        unit(TemperatureUnit.C, C, 1, "c");
+        unit(TemperatureUnit.F, C, 9 / 5D, "f");
+        OFFSET[UnitCodes.codeOf(TemperatureUnit.F)] = 32;
+        unit(TemperatureUnit.K, C, 1, "default");
+        OFFSET[UnitCodes.codeOf(TemperatureUnit.K)] = 273.15;
+
+        unit(WeightUnit.G, G, 1, "g");
+        unit(WeightUnit.KG, G, 1 / 1000D, "kg");
+        unit(WeightUnit.MG, G, 1000, "mg");
+        unit(WeightUnit.OZ, G, 1 / 28.35, "oz");
+        unit(WeightUnit.LB, G, 1 / 453.6, "lb");
+        unit(WeightUnit.ST, G, 1 / 6350.29, "default");
+        unit(WeightUnit.T, G, 1 / 907200D, "default");
+
+        STANDARD_NAME[L] = "L";
+        STANDARD_NAME[M] = "m";
+        STANDARD_NAME[PIECE] = "piece";
+        STANDARD_NAME[C] = "C";
+        STANDARD_NAME[G] = "g";
+        STANDARD_NAME[DEFAULT] = "default";
+
+        // Each display unit is used while the quantity in it stays below its limit
+        ladder(METRIC_LADDER, METRIC_LIMITS, L, new Unit[] {VolumetricUnit.L}, new double[0]);
+        ladder(METRIC_LADDER, METRIC_LIMITS, M, new Unit[] {LengthUnit.M}, new double[0]);
+        ladder(METRIC_LADDER, METRIC_LIMITS, PIECE, new Unit[] {SingularUnit.PIECE}, new double[0]);
+        ladder(METRIC_LADDER, METRIC_LIMITS, C, new Unit[] {TemperatureUnit.C}, new double[0]);
+        ladder(METRIC_LADDER, METRIC_LIMITS, G, new Unit[] {WeightUnit.G, WeightUnit.KG}, new double[] {1000});
+        ladder(METRIC_LADDER, METRIC_LIMITS, DEFAULT, new Unit[] {VolumetricUnit.DEFAULT}, new double[0]);
+
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, L,
+                new Unit[] {VolumetricUnit.TSP, VolumetricUnit.TBSP, VolumetricUnit.CUP, VolumetricUnit.GAL},
+                new double[] {6, 6, 16});
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, M, new Unit[] {LengthUnit.IN, LengthUnit.FT, LengthUnit.YRD},
+                new double[] {24, 6});
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, PIECE, new Unit[] {SingularUnit.SLICE}, new double[0]);
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, C, new Unit[] {TemperatureUnit.F}, new double[0]);
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, G, new Unit[] {WeightUnit.OZ, WeightUnit.LB}, new double[] {16});
+        ladder(IMPERIAL_LADDER, IMPERIAL_LIMITS, DEFAULT, new Unit[] {VolumetricUnit.DEFAULT}, new double[0]);
+    }
+
+    private ConversionEngine() {
+    }
+
+    /**
+     * Used to read the unit of a quantity that is stored in a standard unit.
+     * @param unit: the stored unit, i.e. "L" or "grams".
+     * @return the code of the standard unit, UnitCodes.NONE if it is not a standard unit.
+     * */
+    public static int parseStandardUnit(String unit) {
+        if (unit == null) {
+            return UnitCodes.NONE;
+        }
+        if ("default".equals(unit)) {
+            return DEFAULT;
+        }
+        return UnitCodes.codeOf(STANDARD_UNITS.parse(unit));
+    }
+
+    /**
+     * Picks the unit a standard quantity is best shown in.
+     * @param standardCode: the code of the standard unit the quantity is in.
+     * @param quantity: the quantity in the standard unit.
+     * @param isMetric: true to pick a metric unit, false to pick an imperial unit.
+     * @return the code of the display unit, UnitCodes.NONE if standardCode is not a standard unit.
+     * */
+    public static int displayUnit(int standardCode, float quantity, boolean isMetric) {
+        if (standardCode < 0 || standardCode >= UnitCodes.COUNT) {
+            return UnitCodes.NONE;
+        }
+        int[] ladder = isMetric ? METRIC_LADDER[standardCode] : IMPERIAL_LADDER[standardCode];
+        double[] limits = isMetric ? METRIC_LIMITS[standardCode] : IMPERIAL_LIMITS[standardCode];
+        if (ladder == null) {
+            return UnitCodes.NONE;
+        }
+        for (int i = 0; i < limits.length; i++) {
+            if (quantity < limits[i]) {
+                return ladder[i];
+            }
+        }
+        return ladder[ladder.length - 1];
+    }
+
+    /**
+     * Picks the unit a quantity in any unit is best shown in, i.e. 20 tsp are shown in cups.
+     * @param code: the code of the unit the quantity is in.
+     * @param quantity: the quantity.
+     * @param isMetric: true to pick a metric unit, false to pick an imperial unit.
+     * @return the code of the display unit, UnitCodes.NONE if code is not a unit.
+     * */
+    public static int displayUnitOf(int code, float quantity, boolean isMetric) {
+        if (code < 0 || code >= UnitCodes.COUNT) {
+            return UnitCodes.NONE;
+        }
+        int standardCode = STANDARD[code];
+        float standardQuantity = code == standardCode ? quantity
+                : (float) ((quantity - OFFSET[code]) / PER_STANDARD[code]);
+        return displayUnit(standardCode, standardQuantity, isMetric);
+    }
+
+    /**
+     * @param fromCode: the code of the unit the quantity is in.
+     * @param toCode: the code of the unit to convert to, has to have the same standard unit.
+     * @param quantity: the quantity.
+     * @return the quantity in the unit of toCode.
+     * */
+    public static float convert(int fromCode, int toCode, float quantity) {
+        if (fromCode == toCode) {
+            return quantity;
+        }
+        double standard = (quantity - OFFSET[fromCode]) / PER_STANDARD[fromCode];
+        return (float) (standard * PER_STANDARD[toCode] + OFFSET[toCode]);
+    }
+
+    /**
+     * @param code: the code of the unit to convert to.
+     * @param quantity: the quantity in the standard unit of that unit.
+     * @return the quantity in the unit.
+     * */
+    public static float fromStandard(int code, float quantity) {
+        return (float) (quantity * PER_STANDARD[code] + OFFSET[code]);
+    }
+
+    /**
+     * @param code: the code of the unit the quantity is in.
+     * @param quantity: the quantity.
+     * @return the quantity in the standard unit of the unit, rounded to six decimal places.
+     * */
+    public static float toStandard(int code, float quantity) {
+        if (PER_STANDARD[code] == 1D && OFFSET[code] == 0D) {
+            return quantity;
+        }
+        double standard = (quantity - OFFSET[code]) / PER_STANDARD[code];
+        if (Math.abs(standard) >= 1e12) {
+            // Too big to carry six decimal places in a float anyway
+            return (float) standard;
+        }
+        return (float) (Math.round(standard * ROUNDING) / ROUNDING);
+    }
+
+    /**
+     * @param code: the code of a unit.
+     * @return the code of the standard unit quantities in the unit are stored in.
+     * */
+    public static int standardOf(int code) {
+        return STANDARD[code];
+    }
+
+    /**
+     * @param code: the code of a unit.
+     * @return the name quantities in the standard unit of the unit are stored with.
+     * */
+    public static String standardName(int code) {
+        return STANDARD_NAME[STANDARD[code]];
+    }
+
+    /**
+     * @param code: the code of a unit.
+     * @param quantity: the quantity that is shown with the name, some names have a plural.
+     * @return the name a quantity in the unit is shown with.
+     * */
+    public static String unitName(int code, float quantity) {
+        if (quantity > 1 && PLURAL_NAME[code] != null) {
+            return PLURAL_NAME[code];
+        }
+        return NAME[code];
+    }
+
+    /**
+     * @param unit: a unit, may be null.
+     * @param quantity: the quantity that is shown with the name, may be null.
+     * @return the name a quantity in the unit is shown with, null if there is no unit.
+     * */
+    public static String unitName(Unit unit, Float quantity) {
+        if (unit == null) {
+            return null;
+        }
+        return unitName(UnitCodes.codeOf(unit), quantity == null ? 0F : quantity);
+    }
+
+    private static void unit(Unit unit, int standardCode, double perStandard, String name) {
+        unit(unit, standardCode, perStandard, name, null);
+    }
+
+    private static void unit(Unit unit, int standardCode, double perStandard, String name, String pluralName) {
+        int code = UnitCodes.codeOf(unit);
+        STANDARD[code] = standardCode;
+        PER_STANDARD[code] = perStandard;
+        NAME[code] = name;
+        PLURAL_NAME[code] = pluralName;
+    }
+
+    private static void ladder(int[][] ladders, double[][] limits, int standardCode, Unit[] units,
+                               double[] unitLimits) {
+        int[] codes = new int[units.length];
+        double[] standardLimits = new double[unitLimits.length];
+        for (int i = 0; i < units.length; i++) {
+            codes[i] = UnitCodes.codeOf(units[i]);
+            if (i < unitLimits.length) {
+                standardLimits[i] = unitLimits[i] / PER_STANDARD[codes[i]];
+            }
+        }
+        ladders[standardCode] = codes;
+        limits[standardCode] = standardLimits;
+    }
+}
@@ -1,10 +0,0 @@
-package com.finalproject.demeter.conversion;
-
-import com.finalproject.demeter.units.Unit;
-import lombok.Data;
-
-@Data
-public class ConversionIntermediate {
-    private Float quantity;
-    private Unit unit;
-}
@@ -3,57 +3,76 @@ package com.finalproject.demeter.conversion;
 
 import com.finalproject.demeter.dao.InventoryItem;
 import com.finalproject.demeter.dao.RecipeItem;
+import com.finalproject.demeter.dto.InventoryItemView;
 import com.finalproject.demeter.dto.Measurements;
 import com.finalproject.demeter.dto.PersonalRecipeItem;
-import com.finalproject.demeter.units.*;
+import com.finalproject.demeter.dto.RecipeItemView;
+import com.finalproject.demeter.units.Unit;
+import com.finalproject.demeter.units.UnitCodes;
+import com.finalproject.demeter.units.UnitLexicon;
+import com.finalproject.demeter.units.VolumetricUnit;
 import com.finalproject.demeter.util.MeasurementsBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ConversionUtils {
-    private static final VolumetricUnit volumetricUnit = VolumetricUnit.DEFAULT;
-    private static final LengthUnit lengthUnit = LengthUnit.DEFAULT;
-    private static final SingularUnit singularUnit = SingularUnit.DEFAULT;
-    private static final TemperatureUnit temperatureUnit = TemperatureUnit.DEFAULT;
-    private static final WeightUnit weightUnit = WeightUnit.DEFAULT;
     private static final Logger LOGGER = LoggerFactory.getLogger(ConversionUtils.class);
 
     /**
-     * Converts a users inventory to imperial or metric
+     * Converts a users inventory to imperial or metric, the items themselves are left as they are.
      * @param inventory - list of inventoryItems to convert
      * @param isMetric - boolean to determine if metric or imperial
+     * @return an unmodifiable list with a view of every item, in the same order
      * */
-    public static void convertInventory(List<InventoryItem> inventory, boolean isMetric) {
+    public static List<InventoryItemView> toInventoryViews(List<InventoryItem> inventory, boolean isMetric) {
+        List<InventoryItemView> views = new ArrayList<>(inventory.size());
         for (InventoryItem item : inventory) {
-            try {
-                Measurements newMeasure = convertFromStandardUnit(item.getUnit(), item.getQuantity(), isMetric);
-                item.setUnit(newMeasure.getUnit());
-                item.setQuantity(newMeasure.getQuantity());
-            } catch (Exception e) {
-                LOGGER.error("Inventory Item: {} with quantity {} and unit {} cannot be converted. Error: {}",
-                        item.getId(), item.getQuantity(), item.getUnit(), e.toString());
+            int code = UnitCodes.codeOf(item.getUnit());
+            Float quantity = item.getQuantity();
+            int displayCode = quantity == null ? UnitCodes.NONE
+                    : ConversionEngine.displayUnitOf(code, quantity, isMetric);
+            if (displayCode == UnitCodes.NONE) {
+                LOGGER.warn("Inventory Item: {} with quantity {} and unit {} is shown unconverted",
+                        item.getId(), quantity, item.getUnit());
+                views.add(new InventoryItemView(item.getId(), item.getFoodId(), quantity, item.getUnitName()));
+                continue;
             }
+            float converted = ConversionEngine.convert(code, displayCode, quantity);
+            views.add(new InventoryItemView(item.getId(), item.getFoodId(), converted,
+                    ConversionEngine.unitName(displayCode, converted)));
         }
+        return Collections.unmodifiableList(views);
     }
 
     /**
-     * Converts recipeItems to imperial or metric
+     * Converts recipeItems to imperial or metric, the items themselves are left as they are.
      * @param items - list of RecipeItem to convert
      * @param isMetric - boolean to determine if metric or imperial
+     * @return an unmodifiable list with a view of every item, in the same order
      * */
-    public static void convertRecipeItems(List<RecipeItem> items, boolean isMetric) {
+    public static List<RecipeItemView> toRecipeItemViews(List<RecipeItem> items, boolean isMetric) {
+        List<RecipeItemView> views = new ArrayList<>(items.size());
         for (RecipeItem item : items) {
-            try {
-                Measurements newMeasure = convertFromStandardUnit(item.getMeasurementUnit(), item.getQuantity(), isMetric);
-                item.setMeasurementUnit(newMeasure.getUnit());
-                item.setQuantity(newMeasure.getQuantity());
-            } catch (Exception e) {
-                LOGGER.error("Inventory Item: {} with quantity {} and unit {} cannot be converted. Error: {}",
-                        item.getId(), item.getQuantity(), item.getMeasurementUnit(), e.toString());
+            int code = UnitCodes.codeOf(item.getMeasurementUnit());
+            Float quantity = item.getQuantity();
+            int displayCode = quantity == null ? UnitCodes.NONE
+                    : ConversionEngine.displayUnitOf(code, quantity, isMetric);
+            if (displayCode == UnitCodes.NONE) {
+                LOGGER.warn("Recipe Item: {} with quantity {} and unit {} is shown unconverted",
+                        item.getId(), quantity, item.getMeasurementUnit());
+                views.add(new RecipeItemView(item.getId(), item.getFoodItem(), item.getMeasurementUnitName(),
+                        quantity));
+                continue;
             }
+            float converted = ConversionEngine.convert(code, displayCode, quantity);
+            views.add(new RecipeItemView(item.getId(), item.getFoodItem(),
+                    ConversionEngine.unitName(displayCode, converted), converted));
         }
+        return Collections.unmodifiableList(views);
     }
 
     /**
@@ -63,16 +82,20 @@ public class ConversionUtils {
      * @return a Measurements DTO with the converted measurements.
      * */
     public static Measurements convertToStandardUnit(String unitToConvert, Float quantity) {
-        Unit unit = getUnitIn(unitToConvert);
+        Unit unit = UnitLexicon.ALL.parse(unitToConvert);
         if (unit == null) {
-            return new MeasurementsBuilder().units("default").quantity(quantity).build();
+            return new MeasurementsBuilder().units("default").standardUnit(VolumetricUnit.DEFAULT)
+                    .quantity(quantity).build();
         }
 
         if (quantity != null) {
-            return ConversionValues.getConversionToStandard(unit).apply(quantity);
+            int code = UnitCodes.codeOf(unit);
+            return new MeasurementsBuilder().units(ConversionEngine.standardName(code))
+                    .standardUnit(UnitCodes.unitOf(ConversionEngine.standardOf(code)))
+                    .quantity(ConversionEngine.toStandard(code, quantity)).build();
         }
 
-        return new MeasurementsBuilder().units("default").quantity(0F).build();
+        return new MeasurementsBuilder().units("default").standardUnit(VolumetricUnit.DEFAULT).quantity(0F).build();
     }
 
     /**
@@ -84,14 +107,8 @@ public class ConversionUtils {
      * */
     public static Measurements convertFromStandardUnit(String unitToConvert, Float quantity, boolean isMetric)
             throws Exception {
-        Unit initialUnit = null;
-        if (!isMetric) {
-            initialUnit = getUnitOutImperial(unitToConvert); // What determines if it's metric or us
-        } else {
-            initialUnit = getUnitOutMetric(unitToConvert);
-        }
-
-        if (initialUnit == null) {
+        int standardCode = ConversionEngine.parseStandardUnit(unitToConvert);
+        if (standardCode == UnitCodes.NONE) {
             throw new Exception("Unit not Found");
         }
 
@@ -99,149 +116,27 @@ public class ConversionUtils {
             throw new Exception("No Quantity Supplied");
         }
 
-        Unit finalUnit = null;
-        while (finalUnit != initialUnit) {
-            finalUnit = initialUnit;
-            ConversionIntermediate ci = ConversionValues.getConversionFromStandard(initialUnit).apply(quantity);
-            initialUnit = ci.getUnit();
-            quantity = ci.getQuantity();
-        }
-
-        String returnUnit = getUnitString(finalUnit, quantity);
-        return new MeasurementsBuilder().units(returnUnit).quantity(quantity).build();
+        int displayCode = ConversionEngine.displayUnit(standardCode, quantity, isMetric);
+        float converted = ConversionEngine.fromStandard(displayCode, quantity);
+        return new MeasurementsBuilder().units(ConversionEngine.unitName(displayCode, converted))
+                .quantity(converted).build();
     }
 
     /**
-     * Used to get a units string based on the inputted unit
-     * @param unit - the unit of measurement
-     * @param quantity the quantity that needs converted.
-     * @return a standardized unit String.
+     * Used to read a unit that was written as a string, i.e. the standard unit of a personal recipe item.
+     * @param unit the unit, standard unit names such as "c" are read as the standard unit.
+     * @return the unit, VolumetricUnit.DEFAULT if it is not a known unit and null for null.
      * */
-    private static String getUnitString(Unit unit, Float quantity) {
-        if (unit.equals(LengthUnit.IN)) {
-            return "in";
-        } else if (unit.equals(LengthUnit.FT)) {
-            return "ft";
-        } else if (unit.equals(LengthUnit.YRD)) {
-            return "yd";
-        } else if (unit.equals(LengthUnit.M)) {
-            return "m";
-        }
-
-        else if (unit.equals(SingularUnit.SLICE)) {
-            if (quantity > 1) {
-                return "slices";
-            }
-            return "slice";
-        } else if (unit.equals(SingularUnit.PIECE)) {
-            if (quantity > 1) {
-                return "pieces";
-            }
-            return "piece";
-        }
-
-        else if (unit.equals(TemperatureUnit.F)) {
-            return "f";
-        } else if (unit.equals(TemperatureUnit.C)) {
-            return "c";
-        }
-
-        else if (unit.equals(VolumetricUnit.TSP)) {
-            return "tsp";
-        } else if (unit.equals(VolumetricUnit.TBSP)) {
-            return "Tbsp";
-        } else if (unit.equals(VolumetricUnit.CUP)) {
-            if (quantity > 1) {
-                return "cups";
-            }
-            return "cup";
-        } else if (unit.equals(VolumetricUnit.GAL)) {
-            return "gal";
-        } else if (unit.equals(VolumetricUnit.ML)) {
-            return "ml";
-        } else if (unit.equals(VolumetricUnit.L)) {
-            return "L";
-        }
-
-
-        else if (unit.equals(WeightUnit.OZ)) {
-            return "oz";
-        } else if (unit.equals(WeightUnit.LB)) {
-            return "lb";
-        } else if (unit.equals(WeightUnit.MG)) {
-            return "mg";
-        } else if (unit.equals(WeightUnit.G)) {
-            return "g";
-        } else if (unit.equals(WeightUnit.KG)) {
-            return "kg";
-        }
-
-        return "default";
-    }
-
-    /**
-     * Used to convert a given unit to a standardized metric unit
-     * @param unitToConvert - the unit of measurement to be converted
-     * @return a Unit.
-     * */
-    private static Unit getUnitOutMetric(String unitToConvert) {
-        return switch (unitToConvert.toLowerCase()) {
-            case "m", "meter", "meters" -> LengthUnit.M;
-            case "piece", "pieces" -> SingularUnit.PIECE;
-            case "celsius", "c", "°c" -> TemperatureUnit.C;
-            case "liter", "liters", "l" -> VolumetricUnit.L;
-            case "gram", "grams", "g" -> WeightUnit.G;
-            case "default" -> VolumetricUnit.DEFAULT;
-            default -> null;
-        };
-    }
-
-    /**
-     * Used to convert a given unit to a standardized imperial unit
-     * @param unitToConvert - the unit of measurement to be converted
-     * @return a Unit.
-     * */
-    private static Unit getUnitOutImperial(String unitToConvert) {
-        return switch (unitToConvert.toLowerCase()) {
-            case "m", "meter", "meters" -> LengthUnit.IN;
-            case "piece", "pieces" -> SingularUnit.SLICE;
-            case "celsius", "c", "°c" -> TemperatureUnit.F;
-            case "liter", "liters", "l" -> VolumetricUnit.TSP;
-            case "gram", "grams", "g" -> WeightUnit.OZ;
-            case "default" -> VolumetricUnit.DEFAULT;
-            default -> null;
-        };
-    }
-
-    /**
-     * Used to get standardized units
-     * @param unitToConvert - the unit of measurement to be converted
-     * @return a Unit.
-     * */
-    private static Unit getUnitIn(String unitToConvert) {
-        Unit volUnit = volumetricUnit.getUnitEnum(unitToConvert);
-        Unit lenUnit = lengthUnit.getUnitEnum(unitToConvert);
-        Unit singUnit = singularUnit.getUnitEnum(unitToConvert);
-        Unit tempUnit = temperatureUnit.getUnitEnum(unitToConvert);
-        Unit wgtUnit = weightUnit.getUnitEnum(unitToConvert);
-
-        if (volUnit != null) {
-            return volUnit;
-        }
-
-        if (lenUnit != null) {
-            return lenUnit;
-        }
-
-        if (singUnit != null) {
-            return singUnit;
+    public static Unit toUnit(String unit) {
+        if (unit == null) {
+            return null;
         }
-
-        if (tempUnit != null) {
-            return tempUnit;
+        int standardCode = ConversionEngine.parseStandardUnit(unit);
+        if (standardCode != UnitCodes.NONE) {
+            return UnitCodes.unitOf(standardCode);
         }
-
-        return wgtUnit;
+        Unit parsed = UnitLexicon.ALL.parse(unit);
+        return parsed != null ? parsed : VolumetricUnit.DEFAULT;
     }
 
     /**
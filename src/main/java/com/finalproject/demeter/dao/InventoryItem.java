@@ -1,6 +1,10 @@
 package com.finalproject.demeter.dao;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.finalproject.demeter.conversion.ConversionEngine;
+import com.finalproject.demeter.units.Unit;
+import com.finalproject.demeter.units.UnitCodeConverter;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,11 +12,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Data
 @Entity
-@Table(name = "inventory_items")
+// A user has at most one row per food item, the atomic quantity updates in InventoryUpsertRepository rely on it
+@Table(name = "inventory_items", indexes = @Index(name = "uk_inventory_items_user_food",
+        columnList = "user_id_id, food_id_id", unique = true))
 public class InventoryItem {
 
+    // Sequence ids let Hibernate batch inventory inserts, IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_items_seq")
+    @SequenceGenerator(name = "inventory_items_seq", sequenceName = "inventory_items_seq", allocationSize = 50)
     private long id;
     // Note that this field exists on the object but will not be passed to the front end
     // This field contains user password info and needs to be treated carefully
@@ -22,6 +30,15 @@ public class InventoryItem {
     @ManyToOne
     private FoodItem foodId;
     private Float quantity;
-    private String unit;
+    // Stored as a small code, the name is only looked up when the item is sent to the front end
+    @JsonIgnore
+    @Convert(converter = UnitCodeConverter.class)
+    @Column(name = "unit_code")
+    private Unit unit;
+
+    @JsonProperty("unit")
+    public String getUnitName() {
+        return ConversionEngine.unitName(unit, quantity);
+    }
 }
 
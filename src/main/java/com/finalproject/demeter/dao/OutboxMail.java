@@ -0,0 +1,45 @@
+package com.finalproject.demeter.dao;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * A mail that is waiting to be sent, or was sent, by the mail outbox worker. Mails are stored before they are sent,
+ * so a slow or unreachable mail server never holds up a request and nothing is lost on a restart.
+ * */
+@Data
+@Entity
+@Table(
+        name = "mail_outbox",
+        indexes = @Index(name = "idx_mail_outbox_due", columnList = "status, next_attempt_at")
+)
+public class OutboxMail {
+    public enum Status {
+        // Waiting for its next attempt
+        PENDING,
+        // Claimed by a sender, it becomes due again if the sender never reports back
+        SENDING,
+        SENT,
+        // Gave up after too many attempts
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String recipient;
+    private String sender;
+    private String subject;
+    @Column(length = 4000)
+    private String body;
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private Instant createdAt;
+    private Instant sentAt;
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -9,6 +9,13 @@ import java.util.Date;
 
 @Data
 @Entity
+@Table(
+        name = "password_reset_token",
+        indexes = {
+                @Index(name = "uk_password_reset_token_token", columnList = "token", unique = true),
+                @Index(name = "idx_password_reset_token_expiry", columnList = "expiry_date")
+        }
+)
 public class PasswordResetToken {
     public PasswordResetToken(){}
 
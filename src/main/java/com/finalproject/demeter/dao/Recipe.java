@@ -1,5 +1,6 @@
 package com.finalproject.demeter.dao;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -16,8 +17,12 @@ public class Recipe {
     private String description;
     @Transient
     private Float avgRating;
-    @Transient
+    // The review aggregates are only ever written by the atomic updates in RecipeRepository
+    @Column(insertable = false, updatable = false)
     private Long reviewCount;
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Long starTotal;
     @NotNull
     private Boolean isPublic;
     @Column(length = 4096)
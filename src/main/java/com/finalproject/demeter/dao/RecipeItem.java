@@ -1,6 +1,10 @@
 package com.finalproject.demeter.dao;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.finalproject.demeter.conversion.ConversionEngine;
+import com.finalproject.demeter.units.Unit;
+import com.finalproject.demeter.units.UnitCodeConverter;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -8,14 +12,24 @@ import lombok.Data;
 @Table(name = "recipe_items")
 @Data
 public class RecipeItem {
+    // Sequence ids let Hibernate batch the inserts of a recipe upload, IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_items_seq")
+    @SequenceGenerator(name = "recipe_items_seq", sequenceName = "recipe_items_seq", allocationSize = 50)
     private long id;
     @ManyToOne
     private FoodItem foodItem;
     @JsonIgnore
     @ManyToOne
     private Recipe recipe;
-    private String measurementUnit;
+    @JsonIgnore
+    @Convert(converter = UnitCodeConverter.class)
+    @Column(name = "measurement_unit_code")
+    private Unit measurementUnit;
     private Float quantity;
+
+    @JsonProperty("measurementUnit")
+    public String getMeasurementUnitName() {
+        return ConversionEngine.unitName(measurementUnit, quantity);
+    }
 }
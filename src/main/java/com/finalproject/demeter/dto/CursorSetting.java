@@ -0,0 +1,9 @@
+package com.finalproject.demeter.dto;
+
+import lombok.Data;
+
+@Data
+public class CursorSetting {
+    private String after;
+    private int pageSize;
+}
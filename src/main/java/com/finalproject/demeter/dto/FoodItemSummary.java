@@ -0,0 +1,9 @@
+package com.finalproject.demeter.dto;
+
+import lombok.Data;
+
+@Data
+public class FoodItemSummary {
+    private long id;
+    private String name;
+}
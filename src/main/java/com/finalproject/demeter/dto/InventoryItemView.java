@@ -0,0 +1,10 @@
+package com.finalproject.demeter.dto;
+
+import com.finalproject.demeter.dao.FoodItem;
+
+/**
+ * Read only copy of an inventory item with its quantity in the unit it is shown in. Made from the entity without
+ * changing it, and sent to the front end the same way the entity is.
+ * */
+public record InventoryItemView(long id, FoodItem foodId, Float quantity, String unit) {
+}
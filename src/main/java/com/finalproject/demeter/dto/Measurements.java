@@ -1,9 +1,11 @@
 package com.finalproject.demeter.dto;
 
+import com.finalproject.demeter.units.Unit;
 import lombok.Data;
 
 @Data
 public class Measurements {
     private Float quantity;
     private String unit;
+    private Unit standardUnit;
 }
@@ -0,0 +1,13 @@
+package com.finalproject.demeter.dto;
+
+import com.finalproject.demeter.dao.Recipe;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RecipeCursorPage {
+    private List<Recipe> results;
+    // Null when there are no more results
+    private String nextCursor;
+}
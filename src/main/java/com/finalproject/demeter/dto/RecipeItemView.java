@@ -0,0 +1,10 @@
+package com.finalproject.demeter.dto;
+
+import com.finalproject.demeter.dao.FoodItem;
+
+/**
+ * Read only copy of a recipe item with its quantity in the unit it is shown in. Nothing in it can change, so the
+ * views of a recipe can be shared between requests.
+ * */
+public record RecipeItemView(long id, FoodItem foodItem, String measurementUnit, Float quantity) {
+}
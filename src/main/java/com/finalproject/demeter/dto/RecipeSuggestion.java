@@ -0,0 +1,14 @@
+package com.finalproject.demeter.dto;
+
+import com.finalproject.demeter.dao.Recipe;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RecipeSuggestion {
+    private Recipe recipe;
+    private int missingCount;
+    private float missingQuantity;
+    private List<Long> missingFoodIds;
+}
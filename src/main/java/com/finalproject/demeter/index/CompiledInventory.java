@@ -0,0 +1,224 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.dao.DislikedItem;
+import com.finalproject.demeter.dao.InventoryItem;
+import com.finalproject.demeter.dao.MinorItem;
+import com.finalproject.demeter.dto.RecipeWithSub;
+
+import java.util.*;
+
+/**
+ * Immutable, compiled form of a user's inventory that recipes are matched against. Disliked items are left out of
+ * the inventory since a user is never expected to cook with them, and the minor items are kept as a separate sorted
+ * id array.
+ * */
+public final class CompiledInventory {
+    private final long[] foodIds;
+    private final float[] quantities;
+    private final long[] minorFoodIds;
+
+    private CompiledInventory(long[] foodIds, float[] quantities, long[] minorFoodIds) {
+        this.foodIds = foodIds;
+        this.quantities = quantities;
+        this.minorFoodIds = minorFoodIds;
+    }
+
+    /**
+     * Compiles the inventory of a user.
+     * @param userInventory: A given user's inventory.
+     * @param userPreferences: Optional including the disliked items of a user.
+     * @param minorItems: Optional including the minor items of a user.
+     * @return the compiled inventory.
+     * */
+    public static CompiledInventory of(List<InventoryItem> userInventory,
+                                       Optional<List<DislikedItem>> userPreferences,
+                                       Optional<List<MinorItem>> minorItems) {
+        Set<Long> dislikedFoodIds = new HashSet<>();
+        userPreferences.ifPresent(items -> items.forEach(item -> dislikedFoodIds.add(item.getFoodItem().getId())));
+
+        long[] foodIds = new long[userInventory.size()];
+        float[] quantities = new float[userInventory.size()];
+        int size = 0;
+        for (InventoryItem inventoryItem : userInventory) {
+            long foodId = inventoryItem.getFoodId().getId();
+            if (!dislikedFoodIds.contains(foodId)) {
+                foodIds[size] = foodId;
+                quantities[size] = CompiledRecipe.toPrimitive(inventoryItem.getQuantity());
+                size++;
+            }
+        }
+        foodIds = Arrays.copyOf(foodIds, size);
+        quantities = Arrays.copyOf(quantities, size);
+        CompiledRecipe.sortByFoodId(foodIds, quantities);
+
+        long[] minorFoodIds = minorItems
+                .map(items -> items.stream().mapToLong(item -> item.getFoodItem().getId()).sorted().toArray())
+                .orElse(new long[0]);
+
+        return new CompiledInventory(foodIds, quantities, minorFoodIds);
+    }
+
+    /**
+     * @return the ids of the food items a user either has or does not need for a recipe.
+     * */
+    public Set<Long> getCoveredFoodIds() {
+        Set<Long> coveredFoodIds = new HashSet<>(foodIds.length + minorFoodIds.length);
+        for (long foodId : foodIds) {
+            coveredFoodIds.add(foodId);
+        }
+        for (long foodId : minorFoodIds) {
+            coveredFoodIds.add(foodId);
+        }
+        return coveredFoodIds;
+    }
+
+    /**
+     * @param foodId: id of a food item.
+     * @return true if the user has any of the food item.
+     * */
+    public boolean hasFoodItem(long foodId) {
+        return Arrays.binarySearch(foodIds, foodId) >= 0;
+    }
+
+    /**
+     * Checks if a recipe can be made with this inventory. An ingredient is fine if the user has enough of it or has
+     * it marked as minor. At most one missing ingredient can be replaced by a substitute.
+     * @param recipe: the compiled recipe to check.
+     * @param substitutions: used to find a substitute for a missing ingredient.
+     * @param recipeWithSub: gets the substitution details when the recipe can only be made with a substitute.
+     * @return A boolean representing if a recipe can be made with this inventory.
+     * */
+    public boolean canMake(CompiledRecipe recipe, SubstitutionLookup substitutions, RecipeWithSub recipeWithSub) {
+        if (recipe.size() == 0) {
+            return false;
+        }
+
+        long foodIdToReplace = SubstitutionLookup.NONE;
+        long subbedId = SubstitutionLookup.NONE;
+        int inventoryPosition = 0;
+        int minorPosition = 0;
+        for (int i = 0; i < recipe.size(); i++) {
+            long foodId = recipe.getFoodId(i);
+            // Both sides are sorted, so the positions only ever move forward
+            while (inventoryPosition < foodIds.length && foodIds[inventoryPosition] < foodId) {
+                inventoryPosition++;
+            }
+            if (hasEnough(inventoryPosition, foodId, recipe.getQuantity(i))) {
+                continue;
+            }
+
+            while (minorPosition < minorFoodIds.length && minorFoodIds[minorPosition] < foodId) {
+                minorPosition++;
+            }
+            if (minorPosition < minorFoodIds.length && minorFoodIds[minorPosition] == foodId) {
+                continue;
+            }
+
+            // Only a single item can be subbed per recipe
+            if (foodIdToReplace != SubstitutionLookup.NONE) {
+                return false;
+            }
+            subbedId = substitutions.findSubstitute(foodId);
+            if (subbedId == SubstitutionLookup.NONE) {
+                return false;
+            }
+            foodIdToReplace = foodId;
+        }
+
+        if (foodIdToReplace != SubstitutionLookup.NONE) {
+            recipeWithSub.setIsSubbed(true);
+            recipeWithSub.setSubbedId(subbedId);
+            recipeWithSub.setFoodIdToReplace(foodIdToReplace);
+        }
+        return true;
+    }
+
+    /**
+     * Measures how far a recipe is from being makeable. Minor items are never counted as missing.
+     * @param recipe: the compiled recipe to measure.
+     * @param shortfall: gets the number of missing ingredients and the total missing quantity.
+     * */
+    public void measureShortfall(CompiledRecipe recipe, Shortfall shortfall) {
+        shortfall.missingCount = 0;
+        shortfall.missingQuantity = 0F;
+        int inventoryPosition = 0;
+        int minorPosition = 0;
+        for (int i = 0; i < recipe.size(); i++) {
+            long foodId = recipe.getFoodId(i);
+            while (inventoryPosition < foodIds.length && foodIds[inventoryPosition] < foodId) {
+                inventoryPosition++;
+            }
+            while (minorPosition < minorFoodIds.length && minorFoodIds[minorPosition] < foodId) {
+                minorPosition++;
+            }
+            if (minorPosition < minorFoodIds.length && minorFoodIds[minorPosition] == foodId) {
+                continue;
+            }
+            float missing = recipe.getQuantity(i) - bestQuantity(inventoryPosition, foodId);
+            if (missing > 0) {
+                shortfall.missingCount++;
+                shortfall.missingQuantity += missing;
+            }
+        }
+    }
+
+    /**
+     * @param recipe: the compiled recipe to check.
+     * @return the ids of the ingredients of a recipe that a user does not have enough of, minor items excluded.
+     * */
+    public long[] findMissingFoodIds(CompiledRecipe recipe) {
+        long[] missingFoodIds = new long[recipe.size()];
+        int missingCount = 0;
+        int inventoryPosition = 0;
+        for (int i = 0; i < recipe.size(); i++) {
+            long foodId = recipe.getFoodId(i);
+            while (inventoryPosition < foodIds.length && foodIds[inventoryPosition] < foodId) {
+                inventoryPosition++;
+            }
+            if (Arrays.binarySearch(minorFoodIds, foodId) < 0
+                    && recipe.getQuantity(i) > bestQuantity(inventoryPosition, foodId)) {
+                missingFoodIds[missingCount++] = foodId;
+            }
+        }
+        return Arrays.copyOf(missingFoodIds, missingCount);
+    }
+
+    /**
+     * @return the largest quantity of a single inventory entry for the food item, 0 if the user does not have it.
+     * */
+    private float bestQuantity(int position, long foodId) {
+        float best = 0F;
+        for (int i = position; i < foodIds.length && foodIds[i] == foodId; i++) {
+            best = Math.max(best, quantities[i]);
+        }
+        return best;
+    }
+
+    /**
+     * A user can have the same food item more than once, any single entry with enough of it is fine.
+     * */
+    private boolean hasEnough(int position, long foodId, float quantity) {
+        for (int i = position; i < foodIds.length && foodIds[i] == foodId; i++) {
+            if (quantities[i] >= quantity) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How far a recipe is from being makeable. This is mutable so a single instance can be reused for a whole scan.
+     * */
+    public static final class Shortfall {
+        private int missingCount;
+        private float missingQuantity;
+
+        public int getMissingCount() {
+            return missingCount;
+        }
+
+        public float getMissingQuantity() {
+            return missingQuantity;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.dao.RecipeItem;
+
+import java.util.List;
+
+/**
+ * Immutable, compiled form of the requirements of a recipe. The food item ids are sorted and the quantities (in
+ * standard units) are kept in a parallel array, so a recipe can be matched against a {@link CompiledInventory}
+ * with a merge-join instead of walking entity graphs.
+ * */
+public final class CompiledRecipe {
+    private final long[] foodIds;
+    private final float[] quantities;
+
+    /**
+     * @param foodIds: ids of the required food items, in any order. This array is owned by the compiled recipe.
+     * @param quantities: required quantity for the food item at the same position.
+     * */
+    CompiledRecipe(long[] foodIds, float[] quantities) {
+        sortByFoodId(foodIds, quantities);
+        this.foodIds = foodIds;
+        this.quantities = quantities;
+    }
+
+    /**
+     * Compiles the items of a recipe.
+     * @param recipeItems: The items required for a given recipe.
+     * @return the compiled recipe.
+     * */
+    public static CompiledRecipe of(List<RecipeItem> recipeItems) {
+        long[] foodIds = new long[recipeItems.size()];
+        float[] quantities = new float[recipeItems.size()];
+        for (int i = 0; i < recipeItems.size(); i++) {
+            RecipeItem recipeItem = recipeItems.get(i);
+            foodIds[i] = recipeItem.getFoodItem().getId();
+            quantities[i] = toPrimitive(recipeItem.getQuantity());
+        }
+        return new CompiledRecipe(foodIds, quantities);
+    }
+
+    public int size() {
+        return foodIds.length;
+    }
+
+    public long getFoodId(int position) {
+        return foodIds[position];
+    }
+
+    public float getQuantity(int position) {
+        return quantities[position];
+    }
+
+    static float toPrimitive(Float quantity) {
+        return quantity == null ? 0F : quantity;
+    }
+
+    /**
+     * Sorts the food ids ascending and keeps the quantities lined up with them. Recipes and inventories are small
+     * so an insertion sort is enough here.
+     * */
+    static void sortByFoodId(long[] foodIds, float[] quantities) {
+        for (int i = 1; i < foodIds.length; i++) {
+            long foodId = foodIds[i];
+            float quantity = quantities[i];
+            int j = i - 1;
+            while (j >= 0 && foodIds[j] > foodId) {
+                foodIds[j + 1] = foodIds[j];
+                quantities[j + 1] = quantities[j];
+                j--;
+            }
+            foodIds[j + 1] = foodId;
+            quantities[j + 1] = quantity;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.repository.FoodItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Typeahead index over the food item names. The normalized names are kept in one sorted array, so every name that
+ * starts with a prefix sits in a single range that is found with a binary search. A second sorted array holds every
+ * later word of a name (i.e. "breast" for "chicken breast") and is used when the names alone do not fill a result.
+ * A lookup costs a binary search plus the number of results, no matter how big the catalog is.
+ * */
+@Component
+public class FoodNameIndex {
+    private final FoodItemRepository foodItemRepository;
+    private final Logger LOGGER = LoggerFactory.getLogger(FoodNameIndex.class);
+    // Swapped as a whole on rebuild, readers never see a partially built index
+    private volatile Entries[] entries = {Entries.EMPTY, Entries.EMPTY};
+
+    @Autowired
+    public FoodNameIndex(FoodItemRepository foodItemRepository) {
+        this.foodItemRepository = foodItemRepository;
+    }
+
+    /**
+     * Rebuilds the index from the names of all food items.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.index.refresh-ms:600000}")
+    public void rebuild() {
+        List<Object[]> rows = foodItemRepository.findAllNames();
+        List<Entry> nameEntries = new ArrayList<>(rows.size());
+        List<Entry> wordEntries = new ArrayList<>();
+
+        for (Object[] row : rows) {
+            long foodId = ((Number) row[0]).longValue();
+            String name = (String) row[1];
+            String normalized = normalize(name);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            nameEntries.add(new Entry(normalized, foodId, name));
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                wordEntries.add(new Entry(normalized.substring(i + 1), foodId, name));
+            }
+        }
+
+        entries = new Entries[] {Entries.of(nameEntries), Entries.of(wordEntries)};
+        LOGGER.info("Food name index built with {} food items", nameEntries.size());
+    }
+
+    /**
+     * Finds the food items whose name, or a word in it, starts with a prefix. Names that start with the prefix come
+     * first, both groups are in alphabetical order.
+     * @param prefix what the user typed so far.
+     * @param limit the maximum number of food items to return.
+     * @return the ids and names of the matching food items, in order.
+     * */
+    public LinkedHashMap<Long, String> findByPrefix(String prefix, int limit) {
+        LinkedHashMap<Long, String> matches = new LinkedHashMap<>();
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit < 1) {
+            return matches;
+        }
+        // Whole names first, then later words
+        for (Entries current : entries) {
+            current.collect(normalized, limit, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Lowercases a name and collapses everything that is not a letter or a digit into single spaces.
+     * */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private record Entry(String key, long foodId, String name) {
+    }
+
+    private static final class Entries {
+        private static final Entries EMPTY = new Entries(new String[0], new long[0], new String[0]);
+        private final String[] keys;
+        private final long[] foodIds;
+        private final String[] names;
+
+        private Entries(String[] keys, long[] foodIds, String[] names) {
+            this.keys = keys;
+            this.foodIds = foodIds;
+            this.names = names;
+        }
+
+        private static Entries of(List<Entry> entries) {
+            entries.sort(Comparator.comparing(Entry::key).thenComparingLong(Entry::foodId));
+            String[] keys = new String[entries.size()];
+            long[] foodIds = new long[entries.size()];
+            String[] names = new String[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                keys[i] = entries.get(i).key();
+                foodIds[i] = entries.get(i).foodId();
+                names[i] = entries.get(i).name();
+            }
+            return new Entries(keys, foodIds, names);
+        }
+
+        private void collect(String prefix, int limit, Map<Long, String> matches) {
+            for (int i = lowerBound(prefix); i < keys.length && matches.size() < limit; i++) {
+                if (!keys[i].startsWith(prefix)) {
+                    return;
+                }
+                matches.putIfAbsent(foodIds[i], names[i]);
+            }
+        }
+
+        /**
+         * @return the position of the first key that is not smaller than the prefix.
+         * */
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
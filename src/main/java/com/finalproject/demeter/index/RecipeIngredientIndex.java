@@ -0,0 +1,232 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.dao.RecipeItem;
+import com.finalproject.demeter.repository.RecipeItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory inverted index of the public recipe catalog. Every food item id points to a bitmap of the recipes
+ * (by dense ordinal) that use it. This lets the recipe matching narrow the catalog down to the recipes a user could
+ * possibly make without looking at the recipe items of every recipe. The compiled requirements of every indexed
+ * recipe are kept as well, so candidates can be checked without loading their recipe items.
+ *
+ * Recipes that are not in the index (i.e. added to the database by the consumer since the last rebuild) are never
+ * filtered out, callers should fall back to a full check for them.
+ * */
+@Component
+public class RecipeIngredientIndex {
+    private final RecipeItemRepository recipeItemRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Logger LOGGER = LoggerFactory.getLogger(RecipeIngredientIndex.class);
+
+    // All of these are guarded by lock
+    private Map<Long, BitSet> postings = new HashMap<>();
+    private Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] recipeIds = new long[0];
+    private int[] ingredientCounts = new int[0];
+    private CompiledRecipe[] compiledRecipes = new CompiledRecipe[0];
+    private BitSet liveRecipes = new BitSet();
+    private boolean built = false;
+
+    @Autowired
+    public RecipeIngredientIndex(RecipeItemRepository recipeItemRepository) {
+        this.recipeItemRepository = recipeItemRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the recipe items of the public recipes. This also picks up recipes that were
+     * loaded into the database without going through the api.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.index.refresh-ms:600000}")
+    public void rebuild() {
+        Map<Long, List<Object[]>> rowsByRecipe = new LinkedHashMap<>();
+        for (Object[] row : recipeItemRepository.findPublicRecipeRequirements()) {
+            long recipeId = ((Number) row[0]).longValue();
+            rowsByRecipe.computeIfAbsent(recipeId, id -> new ArrayList<>()).add(row);
+        }
+
+        Map<Long, BitSet> newPostings = new HashMap<>();
+        Map<Long, Integer> newOrdinals = new HashMap<>(rowsByRecipe.size() * 2);
+        long[] newRecipeIds = new long[rowsByRecipe.size()];
+        int[] newIngredientCounts = new int[rowsByRecipe.size()];
+        CompiledRecipe[] newCompiledRecipes = new CompiledRecipe[rowsByRecipe.size()];
+        BitSet newLiveRecipes = new BitSet(rowsByRecipe.size());
+
+        int ordinal = 0;
+        for (Map.Entry<Long, List<Object[]>> entry : rowsByRecipe.entrySet()) {
+            List<Object[]> rows = entry.getValue();
+            long[] foodIds = new long[rows.size()];
+            float[] quantities = new float[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                foodIds[i] = ((Number) rows.get(i)[1]).longValue();
+                quantities[i] = rows.get(i)[2] == null ? 0F : ((Number) rows.get(i)[2]).floatValue();
+            }
+            CompiledRecipe compiledRecipe = new CompiledRecipe(foodIds, quantities);
+
+            newOrdinals.put(entry.getKey(), ordinal);
+            newRecipeIds[ordinal] = entry.getKey();
+            newIngredientCounts[ordinal] = addPostings(newPostings, ordinal, compiledRecipe);
+            newCompiledRecipes[ordinal] = compiledRecipe;
+            newLiveRecipes.set(ordinal);
+            ordinal++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            ordinals = newOrdinals;
+            recipeIds = newRecipeIds;
+            ingredientCounts = newIngredientCounts;
+            compiledRecipes = newCompiledRecipes;
+            liveRecipes = newLiveRecipes;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Recipe ingredient index built with {} recipes and {} food items", ordinal, newPostings.size());
+    }
+
+    /**
+     * Adds a recipe to the index, or replaces it if it is already indexed.
+     * @param recipeId id of the recipe.
+     * @param recipeItems the items of the recipe.
+     * */
+    public void addRecipe(long recipeId, List<RecipeItem> recipeItems) {
+        CompiledRecipe compiledRecipe = CompiledRecipe.of(recipeItems);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+            int ordinal = recipeIds.length;
+            recipeIds = Arrays.copyOf(recipeIds, ordinal + 1);
+            ingredientCounts = Arrays.copyOf(ingredientCounts, ordinal + 1);
+            compiledRecipes = Arrays.copyOf(compiledRecipes, ordinal + 1);
+            recipeIds[ordinal] = recipeId;
+            ingredientCounts[ordinal] = addPostings(postings, ordinal, compiledRecipe);
+            compiledRecipes[ordinal] = compiledRecipe;
+            ordinals.put(recipeId, ordinal);
+            liveRecipes.set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the index. Removing a recipe that is not indexed does nothing.
+     * @param recipeId id of the recipe to remove.
+     * */
+    public void removeRecipe(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Used to check if a recipe is known to the index.
+     * @param recipeId id of the recipe.
+     * @return true if the candidates from this index are authoritative for the recipe.
+     * */
+    public boolean isIndexed(long recipeId) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(recipeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Used to get the compiled requirements of an indexed recipe.
+     * @param recipeId id of the recipe.
+     * @return Optional including the compiled recipe, empty if the recipe is not indexed.
+     * */
+    public Optional<CompiledRecipe> getCompiledRecipe(long recipeId) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(recipeId);
+            return ordinal == null ? Optional.empty() : Optional.of(compiledRecipes[ordinal]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return built;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the indexed recipes that have at most one ingredient that is not covered. A recipe with more than one
+     * uncovered ingredient can never be made since only a single substitution is allowed per recipe.
+     * @param coveredFoodIds ids of the food items a user has or does not need (i.e. minor items).
+     * @return the ids of the recipes that still need to be checked.
+     * */
+    public Set<Long> findCandidateRecipeIds(Collection<Long> coveredFoodIds) {
+        lock.readLock().lock();
+        try {
+            int[] coveredCounts = new int[recipeIds.length];
+            for (Long foodId : new HashSet<>(coveredFoodIds)) {
+                BitSet recipes = postings.get(foodId);
+                if (recipes == null) {
+                    continue;
+                }
+                for (int i = recipes.nextSetBit(0); i >= 0; i = recipes.nextSetBit(i + 1)) {
+                    coveredCounts[i]++;
+                }
+            }
+
+            Set<Long> candidates = new HashSet<>();
+            for (int i = liveRecipes.nextSetBit(0); i >= 0; i = liveRecipes.nextSetBit(i + 1)) {
+                if (ingredientCounts[i] - coveredCounts[i] <= 1) {
+                    candidates.add(recipeIds[i]);
+                }
+            }
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long recipeId) {
+        Integer ordinal = ordinals.remove(recipeId);
+        if (ordinal == null) {
+            return;
+        }
+        liveRecipes.clear(ordinal);
+        compiledRecipes[ordinal] = null;
+        for (BitSet recipes : postings.values()) {
+            recipes.clear(ordinal);
+        }
+    }
+
+    /**
+     * Adds an ordinal to the posting lists of the food items of a recipe.
+     * @return the number of distinct food items.
+     * */
+    private static int addPostings(Map<Long, BitSet> postings, int ordinal, CompiledRecipe compiledRecipe) {
+        int distinct = 0;
+        for (int i = 0; i < compiledRecipe.size(); i++) {
+            BitSet recipes = postings.computeIfAbsent(compiledRecipe.getFoodId(i), id -> new BitSet());
+            if (!recipes.get(ordinal)) {
+                recipes.set(ordinal);
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,213 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.dao.Recipe;
+import com.finalproject.demeter.dto.RecipeSuggestion;
+import com.finalproject.demeter.dto.RecipeWithSub;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Matches compiled recipes against a compiled inventory. Every recipe check is independent, so large catalogs are
+ * split across a dedicated ForkJoinPool. Results always come back in the order of the recipes that were passed in,
+ * which keeps pagination stable.
+ * */
+@Component
+public class RecipeMatchingEngine {
+    // Below this many recipes the cost of forking is higher than just checking them on the calling thread
+    private static final int PARALLEL_THRESHOLD = 256;
+    private final ForkJoinPool pool;
+    private final Logger LOGGER = LoggerFactory.getLogger(RecipeMatchingEngine.class);
+
+    /**
+     * @param parallelism: the number of threads used for matching. Anything below 1 uses one thread per core.
+     * */
+    @Autowired
+    public RecipeMatchingEngine(@Value("${demeter.matching.parallelism:0}") int parallelism) {
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        LOGGER.info("Recipe matching engine started with a parallelism of {}", parallelism);
+    }
+
+    /**
+     * Finds the recipes that can be made with an inventory.
+     * @param recipes: the recipes to check.
+     * @param compiledRecipes: the compiled requirements of the recipe at the same position.
+     * @param inventory: the compiled inventory of the user.
+     * @param substitutions: used to find a substitute for a missing ingredient.
+     * @return the recipes that can be made, in the same order they were passed in.
+     * */
+    public List<RecipeWithSub> match(List<Recipe> recipes, List<CompiledRecipe> compiledRecipes,
+                                     CompiledInventory inventory, SubstitutionLookup substitutions) {
+        if (recipes.size() < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            return matchRange(recipes, compiledRecipes, inventory, substitutions, IntStream.range(0, recipes.size()));
+        }
+        // Streams that are started from inside the pool run on the pool's workers
+        return runInPool(() -> matchRange(recipes, compiledRecipes, inventory, substitutions,
+                IntStream.range(0, recipes.size()).parallel()));
+    }
+
+    /**
+     * Ranks recipes by how close they are to being makeable, fewest missing ingredients first and then the smallest
+     * missing quantity. Only the best recipes are ever kept, so memory stays bounded by the limit.
+     * @param recipes: the recipes to rank.
+     * @param compiledRecipes: the compiled requirements of the recipe at the same position.
+     * @param inventory: the compiled inventory of the user.
+     * @param limit: the number of suggestions to return.
+     * @return the closest recipes, best first, with the ingredients that are missing.
+     * */
+    public List<RecipeSuggestion> suggest(List<Recipe> recipes, List<CompiledRecipe> compiledRecipes,
+                                          CompiledInventory inventory, int limit) {
+        TopRecipes best;
+        if (recipes.size() < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            best = rankRange(compiledRecipes, inventory, limit, IntStream.range(0, recipes.size()));
+        } else {
+            best = runInPool(() -> rankRange(compiledRecipes, inventory, limit,
+                    IntStream.range(0, recipes.size()).parallel()));
+        }
+
+        List<RecipeSuggestion> suggestions = new ArrayList<>(best.heap.size());
+        for (RankedRecipe rankedRecipe : best.sorted()) {
+            CompiledRecipe compiledRecipe = compiledRecipes.get(rankedRecipe.position);
+            RecipeSuggestion suggestion = new RecipeSuggestion();
+            suggestion.setRecipe(recipes.get(rankedRecipe.position));
+            suggestion.setMissingCount(rankedRecipe.missingCount);
+            suggestion.setMissingQuantity(rankedRecipe.missingQuantity);
+            suggestion.setMissingFoodIds(Arrays.stream(inventory.findMissingFoodIds(compiledRecipe)).boxed().toList());
+            suggestions.add(suggestion);
+        }
+        return suggestions;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private <T> T runInPool(Callable<T> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recipe matching was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Recipe matching failed", e.getCause());
+        }
+    }
+
+    private static TopRecipes rankRange(List<CompiledRecipe> compiledRecipes, CompiledInventory inventory,
+                                        int limit, IntStream positions) {
+        // Every worker fills its own bounded heap, the heaps are merged at the end
+        return positions.collect(
+                () -> new TopRecipes(limit),
+                (top, position) -> top.offer(position, compiledRecipes.get(position), inventory),
+                TopRecipes::merge
+        );
+    }
+
+    private static List<RecipeWithSub> matchRange(List<Recipe> recipes, List<CompiledRecipe> compiledRecipes,
+                                                  CompiledInventory inventory, SubstitutionLookup substitutions,
+                                                  IntStream positions) {
+        // The stream is ordered, so collecting keeps the encounter order even when run in parallel
+        return positions.mapToObj(i -> {
+                    RecipeWithSub recipeWithSub = new RecipeWithSub();
+                    if (!inventory.canMake(compiledRecipes.get(i), substitutions, recipeWithSub)) {
+                        return null;
+                    }
+                    recipeWithSub.setRecipe(recipes.get(i));
+                    return recipeWithSub;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static final class RankedRecipe {
+        private static final Comparator<RankedRecipe> BEST_FIRST = Comparator
+                .comparingInt((RankedRecipe rankedRecipe) -> rankedRecipe.missingCount)
+                .thenComparingDouble(rankedRecipe -> rankedRecipe.missingQuantity)
+                .thenComparingInt(rankedRecipe -> rankedRecipe.position);
+
+        private final int position;
+        private final int missingCount;
+        private final float missingQuantity;
+
+        private RankedRecipe(int position, int missingCount, float missingQuantity) {
+            this.position = position;
+            this.missingCount = missingCount;
+            this.missingQuantity = missingQuantity;
+        }
+    }
+
+    /**
+     * Bounded max-heap holding the best recipes seen so far, the worst of them sits on top so it can be replaced.
+     * */
+    private static final class TopRecipes {
+        private final int limit;
+        private final PriorityQueue<RankedRecipe> heap;
+        private final CompiledInventory.Shortfall shortfall = new CompiledInventory.Shortfall();
+
+        private TopRecipes(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, RankedRecipe.BEST_FIRST.reversed());
+        }
+
+        private void offer(int position, CompiledRecipe compiledRecipe, CompiledInventory inventory) {
+            if (compiledRecipe.size() == 0) {
+                return;
+            }
+            inventory.measureShortfall(compiledRecipe, shortfall);
+            RankedRecipe worst = heap.peek();
+            // Most recipes lose to the current worst, those are dropped without allocating anything
+            if (heap.size() >= limit && worst != null && !isBetter(shortfall, position, worst)) {
+                return;
+            }
+            add(new RankedRecipe(position, shortfall.getMissingCount(), shortfall.getMissingQuantity()));
+        }
+
+        private void add(RankedRecipe rankedRecipe) {
+            heap.add(rankedRecipe);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        private void merge(TopRecipes other) {
+            other.heap.forEach(this::add);
+        }
+
+        private List<RankedRecipe> sorted() {
+            List<RankedRecipe> sorted = new ArrayList<>(heap);
+            sorted.sort(RankedRecipe.BEST_FIRST);
+            return sorted;
+        }
+
+        private static boolean isBetter(CompiledInventory.Shortfall shortfall, int position, RankedRecipe other) {
+            if (shortfall.getMissingCount() != other.missingCount) {
+                return shortfall.getMissingCount() < other.missingCount;
+            }
+            if (shortfall.getMissingQuantity() != other.missingQuantity) {
+                return shortfall.getMissingQuantity() < other.missingQuantity;
+            }
+            return position < other.position;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.dao.Recipe;
+import com.finalproject.demeter.repository.RecipeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory full text index over the name and description of the public recipes. Text is lowercased and split on
+ * anything that is not a letter or a digit, every term points to the recipes (by dense ordinal) that contain it.
+ * Searches rank the recipes that contain every query term with BM25, a term in the name counts as several terms in
+ * the description. A query term also matches every term it is a prefix of, so partial words still find recipes. Only
+ * the first longer terms are scored, the rest still match but do not move the ranking.
+ *
+ * Removed recipes stay in the postings until the next rebuild, they are skipped when searching. Recipes added or
+ * removed while a rebuild reads the catalog are recorded and replayed on the rebuilt index before it goes live, so
+ * the rebuild never undoes them.
+ * */
+@Component
+public class RecipeTextIndex {
+    private static final float K1 = 1.2F;
+    private static final float B = 0.75F;
+    // A term in the name counts as this many occurrences in the description
+    private static final int NAME_WEIGHT = 3;
+    // Matches on a longer term only count for part of an exact match
+    private static final float PREFIX_WEIGHT = 0.5F;
+    // Keeps one short query term from scoring most of the vocabulary, further terms only count as matches
+    private static final int MAX_SCORED_PREFIX_TERMS = 64;
+    // Scores of a search by ordinal, reused by every search on a thread and zeroed again after each one
+    private static final ThreadLocal<float[]> SCORES = ThreadLocal.withInitial(() -> new float[0]);
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Logger LOGGER = LoggerFactory.getLogger(RecipeTextIndex.class);
+
+    // All of these are guarded by lock
+    private TreeMap<String, Posting> postings = new TreeMap<>();
+    private Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] recipeIds = new long[0];
+    private int[] documentLengths = new int[0];
+    private BitSet liveRecipes = new BitSet();
+    private long totalLength = 0;
+    private boolean built = false;
+    // Changes made while a rebuild is running, null when there is none
+    private List<Change> pendingChanges = null;
+
+    @Autowired
+    public RecipeTextIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the public recipes.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.index.refresh-ms:600000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Object[]> rows;
+        try {
+            rows = recipeRepository.findPublicRecipeText();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        TreeMap<String, Posting> newPostings = new TreeMap<>();
+        Map<Long, Integer> newOrdinals = new HashMap<>(rows.size() * 2);
+        long[] newRecipeIds = new long[rows.size()];
+        int[] newDocumentLengths = new int[rows.size()];
+        BitSet newLiveRecipes = new BitSet(rows.size());
+        long newTotalLength = 0;
+
+        int ordinal = 0;
+        for (Object[] row : rows) {
+            long recipeId = ((Number) row[0]).longValue();
+            if (newOrdinals.containsKey(recipeId)) {
+                continue;
+            }
+            newOrdinals.put(recipeId, ordinal);
+            newRecipeIds[ordinal] = recipeId;
+            newDocumentLengths[ordinal] = addPostings(newPostings, ordinal, (String) row[1], (String) row[2]);
+            newTotalLength += newDocumentLengths[ordinal];
+            newLiveRecipes.set(ordinal);
+            ordinal++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            ordinals = newOrdinals;
+            recipeIds = Arrays.copyOf(newRecipeIds, ordinal);
+            documentLengths = Arrays.copyOf(newDocumentLengths, ordinal);
+            liveRecipes = newLiveRecipes;
+            totalLength = newTotalLength;
+            built = true;
+            // The rows may or may not include these changes, replaying them is safe either way
+            for (Change change : pendingChanges) {
+                if (change.removed()) {
+                    removeLocked(change.recipeId());
+                } else {
+                    addLocked(change.recipeId(), change.name(), change.description());
+                }
+            }
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Recipe text index built with {} recipes and {} terms", ordinal, newPostings.size());
+    }
+
+    /**
+     * Adds a recipe to the index, or replaces it if it is already indexed.
+     * @param recipe the recipe to add.
+     * */
+    public void addRecipe(Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            addLocked(recipe.getId(), recipe.getName(), recipe.getDescription());
+            if (pendingChanges != null) {
+                pendingChanges.add(new Change(recipe.getId(), recipe.getName(), recipe.getDescription(), false));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the index. Removing a recipe that is not indexed does nothing.
+     * @param recipeId id of the recipe to remove.
+     * */
+    public void removeRecipe(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+            if (pendingChanges != null) {
+                pendingChanges.add(new Change(recipeId, null, null, true));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return built;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the recipes that contain every term of a query, best match first.
+     * @param query the text to search for.
+     * @param offset the number of matches to skip.
+     * @param limit the maximum number of matches to return.
+     * @return the ids of the matching recipes in the requested range and the total number of matches.
+     * */
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+
+        lock.readLock().lock();
+        try {
+            if (queryTerms.isEmpty() || liveRecipes.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+            float[] scores = scratchScores(recipeIds.length);
+            // Only the recipes in the postings of the query terms get a score
+            BitSet scored = new BitSet();
+            try {
+                BitSet matching = matchLocked(queryTerms, scores, scored);
+                return new SearchResult(rank(matching, scores, offset, limit), matching.cardinality());
+            } finally {
+                for (int i = scored.nextSetBit(0); i >= 0; i = scored.nextSetBit(i + 1)) {
+                    scores[i] = 0F;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the recipes that contain every term of a query in id order, for paging with a cursor. The matches are the
+     * same as the ones of search, they are just not ranked.
+     * @param query the text to search for.
+     * @param lastRecipeId only recipes with a greater id are returned.
+     * @param limit the maximum number of matches to return.
+     * @return the ids of the matching recipes after lastRecipeId, lowest first.
+     * */
+    public List<Long> searchAfter(String query, long lastRecipeId, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+
+        lock.readLock().lock();
+        try {
+            if (queryTerms.isEmpty() || liveRecipes.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            BitSet matching = matchLocked(queryTerms, null, null);
+            // Ordinals are not in id order, the heap keeps the highest of the lowest ids on top
+            PriorityQueue<Long> heap = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                if (recipeIds[i] <= lastRecipeId) {
+                    continue;
+                }
+                heap.add(recipeIds[i]);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            List<Long> results = new ArrayList<>(heap);
+            Collections.sort(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lowercase terms.
+     * @param text the text to split, may be null.
+     * @return the terms in the order they appear.
+     * */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * @return the score buffer of this thread, all zeros and at least size long.
+     * */
+    private static float[] scratchScores(int size) {
+        float[] scores = SCORES.get();
+        if (scores.length < size) {
+            // Some room to grow so every added recipe does not mean a new buffer
+            scores = new float[size + size / 4 + 16];
+            SCORES.set(scores);
+        }
+        return scores;
+    }
+
+    /**
+     * Finds the live recipes that contain every query term, or a term it is a prefix of.
+     * @param scores the buffer the scores are added to, null to only find the matches.
+     * @param scored collects every ordinal that may have been given a score, null if scores is null.
+     * @return the matching ordinals.
+     * */
+    private BitSet matchLocked(List<String> queryTerms, float[] scores, BitSet scored) {
+        int documentCount = liveRecipes.cardinality();
+        float averageLength = Math.max(1F, (float) totalLength / Math.max(1, documentCount));
+        BitSet matching = null;
+        for (String queryTerm : queryTerms) {
+            BitSet termMatches = new BitSet();
+            int scoredPrefixTerms = 0;
+            for (Map.Entry<String, Posting> entry : postings.tailMap(queryTerm, true).entrySet()) {
+                if (!entry.getKey().startsWith(queryTerm)) {
+                    break;
+                }
+                // The exact term sorts before every longer one, so it is always scored
+                boolean exact = entry.getKey().length() == queryTerm.length();
+                if (scores != null && (exact || scoredPrefixTerms++ < MAX_SCORED_PREFIX_TERMS)) {
+                    float weight = exact ? 1F : PREFIX_WEIGHT;
+                    score(entry.getValue(), weight, documentCount, averageLength, scores, termMatches);
+                } else {
+                    entry.getValue().addTo(termMatches);
+                }
+            }
+            if (scored != null) {
+                scored.or(termMatches);
+            }
+            if (matching == null) {
+                matching = termMatches;
+            } else {
+                matching.and(termMatches);
+            }
+            if (matching.isEmpty()) {
+                return matching;
+            }
+        }
+        matching.and(liveRecipes);
+        return matching;
+    }
+
+    private void score(Posting posting, float weight, int documentCount, float averageLength,
+                       float[] scores, BitSet termMatches) {
+        int documentFrequency = posting.size;
+        float idf = (float) Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (int i = 0; i < posting.size; i++) {
+            int ordinal = posting.ordinals[i];
+            float frequency = posting.frequencies[i];
+            float norm = K1 * (1 - B + B * documentLengths[ordinal] / averageLength);
+            scores[ordinal] += weight * idf * frequency * (K1 + 1) / (frequency + norm);
+            termMatches.set(ordinal);
+        }
+    }
+
+    private List<Long> rank(BitSet matching, float[] scores, int offset, int limit) {
+        int wanted = offset + limit;
+        if (limit <= 0 || offset < 0 || wanted <= 0) {
+            return List.of();
+        }
+        // Best first, ties go to the recipe that was indexed first. The heap keeps the worst on top
+        Comparator<Integer> bestFirst = Comparator.<Integer>comparingDouble(ordinal -> -scores[ordinal])
+                .thenComparingInt(ordinal -> ordinal);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(wanted, matching.cardinality()) + 1,
+                bestFirst.reversed());
+        for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+            heap.add(i);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(heap);
+        ranked.sort(bestFirst);
+        List<Long> results = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            results.add(recipeIds[ranked.get(i)]);
+        }
+        return results;
+    }
+
+    private void addLocked(long recipeId, String name, String description) {
+        removeLocked(recipeId);
+        int ordinal = recipeIds.length;
+        recipeIds = Arrays.copyOf(recipeIds, ordinal + 1);
+        documentLengths = Arrays.copyOf(documentLengths, ordinal + 1);
+        recipeIds[ordinal] = recipeId;
+        documentLengths[ordinal] = addPostings(postings, ordinal, name, description);
+        totalLength += documentLengths[ordinal];
+        ordinals.put(recipeId, ordinal);
+        liveRecipes.set(ordinal);
+    }
+
+    private void removeLocked(long recipeId) {
+        Integer ordinal = ordinals.remove(recipeId);
+        if (ordinal == null) {
+            return;
+        }
+        liveRecipes.clear(ordinal);
+        totalLength -= documentLengths[ordinal];
+    }
+
+    /**
+     * Adds the terms of a recipe to the postings.
+     * @return the weighted number of terms in the recipe.
+     * */
+    private static int addPostings(Map<String, Posting> postings, int ordinal, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : tokenize(name)) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(description)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new Posting()).add(ordinal, entry.getValue());
+            length += entry.getValue();
+        }
+        return length;
+    }
+
+    /**
+     * The recipes a term appears in and how often, ordinals only ever grow.
+     * */
+    private static final class Posting {
+        private int[] ordinals = new int[2];
+        private int[] frequencies = new int[2];
+        private int size = 0;
+
+        private void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        private void addTo(BitSet matches) {
+            for (int i = 0; i < size; i++) {
+                matches.set(ordinals[i]);
+            }
+        }
+    }
+
+    /**
+     * A recipe that was added or removed while a rebuild was running.
+     * */
+    private record Change(long recipeId, String name, String description, boolean removed) {
+    }
+
+    public static final class SearchResult {
+        private final List<Long> recipeIds;
+        private final int totalMatches;
+
+        SearchResult(List<Long> recipeIds, int totalMatches) {
+            this.recipeIds = recipeIds;
+            this.totalMatches = totalMatches;
+        }
+
+        public List<Long> getRecipeIds() {
+            return recipeIds;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.finalproject.demeter.index;
+
+import com.finalproject.demeter.repository.SubstitutionsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In memory copy of the substitutions table, stored as compressed sparse rows. The missing food item ids are sorted
+ * in one array and the substitutes of the missing item at position i are values[offsets[i]] up to
+ * values[offsets[i + 1]], also sorted. Finding the substitutes of an item is a binary search instead of a query.
+ * */
+@Component
+public class SubstitutionGraph {
+    private final SubstitutionsRepository substitutionsRepository;
+    private final Logger LOGGER = LoggerFactory.getLogger(SubstitutionGraph.class);
+    private volatile Rows rows;
+
+    @Autowired
+    public SubstitutionGraph(SubstitutionsRepository substitutionsRepository) {
+        this.substitutionsRepository = substitutionsRepository;
+    }
+
+    /**
+     * Reloads the whole graph from the substitutions table.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.substitutions.refresh-ms:600000}")
+    public void rebuild() {
+        List<Object[]> pairs = substitutionsRepository.findAllPairs();
+        long[][] edges = new long[pairs.size()][];
+        for (int i = 0; i < pairs.size(); i++) {
+            edges[i] = new long[] {((Number) pairs.get(i)[0]).longValue(), ((Number) pairs.get(i)[1]).longValue()};
+        }
+        Arrays.sort(edges, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long[] keys = new long[edges.length];
+        int[] offsets = new int[edges.length + 1];
+        long[] values = new long[edges.length];
+        int keyCount = 0;
+        for (int i = 0; i < edges.length; i++) {
+            if (keyCount == 0 || keys[keyCount - 1] != edges[i][0]) {
+                keys[keyCount] = edges[i][0];
+                offsets[keyCount] = i;
+                keyCount++;
+            }
+            values[i] = edges[i][1];
+        }
+        offsets[keyCount] = edges.length;
+
+        rows = new Rows(Arrays.copyOf(keys, keyCount), Arrays.copyOf(offsets, keyCount + 1), values);
+        LOGGER.info("Substitution graph built with {} substitutions for {} food items", edges.length, keyCount);
+    }
+
+    /**
+     * @param missingFoodItemId: id of the food item that is missing.
+     * @return the ids of every food item that can replace it, in ascending order.
+     * */
+    public long[] getSubstitutes(long missingFoodItemId) {
+        Rows current = getRows();
+        int row = Arrays.binarySearch(current.keys, missingFoodItemId);
+        if (row < 0) {
+            return new long[0];
+        }
+        return Arrays.copyOfRange(current.values, current.offsets[row], current.offsets[row + 1]);
+    }
+
+    /**
+     * Finds a substitute for a missing food item that a user has.
+     * @param missingFoodItemId: id of the food item that is missing.
+     * @param inventory: the compiled inventory of the user.
+     * @return the id of the first substitute in the inventory, or {@link SubstitutionLookup#NONE}.
+     * */
+    public long findSubstitute(long missingFoodItemId, CompiledInventory inventory) {
+        Rows current = getRows();
+        int row = Arrays.binarySearch(current.keys, missingFoodItemId);
+        if (row < 0) {
+            return SubstitutionLookup.NONE;
+        }
+        for (int i = current.offsets[row]; i < current.offsets[row + 1]; i++) {
+            if (inventory.hasFoodItem(current.values[i])) {
+                return current.values[i];
+            }
+        }
+        return SubstitutionLookup.NONE;
+    }
+
+    private Rows getRows() {
+        Rows current = rows;
+        if (current == null) {
+            synchronized (this) {
+                if (rows == null) {
+                    rebuild();
+                }
+                current = rows;
+            }
+        }
+        return current;
+    }
+
+    private static final class Rows {
+        private final long[] keys;
+        private final int[] offsets;
+        private final long[] values;
+
+        private Rows(long[] keys, int[] offsets, long[] values) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.finalproject.demeter.index;
+
+/**
+ * Used by the recipe matching to find a substitute for a food item a user is missing.
+ * */
+@FunctionalInterface
+public interface SubstitutionLookup {
+    long NONE = -1L;
+
+    /**
+     * @param missingFoodItemId: id of the food item that is missing.
+     * @return the id of a food item that can be used instead, or {@link #NONE} if there is none.
+     * */
+    long findSubstitute(long missingFoodItemId);
+}
@@ -0,0 +1,50 @@
+package com.finalproject.demeter.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences of the batch inserted tables past the highest id in use. The tables used to get their ids
+ * from identity columns, so a new sequence would otherwise hand out ids that already exist. Sequences that are
+ * already ahead are left alone.
+ *
+ * This runs once every bean is created, before the web server starts and before any scheduled task. Nothing has
+ * inserted into these tables yet, so Hibernate has not taken a block of ids from a sequence that is still behind.
+ * */
+@Component
+public class IdSequenceAlignment implements SmartInitializingSingleton {
+    // Has to match the allocationSize of the sequence generators, Hibernate hands out a whole block per call
+    private static final int ALLOCATION_SIZE = 50;
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "recipe_items_seq", "recipe_items",
+            "inventory_items_seq", "inventory_items"
+    );
+    private final JdbcTemplate jdbcTemplate;
+    private final Logger LOGGER = LoggerFactory.getLogger(IdSequenceAlignment.class);
+
+    @Autowired
+    public IdSequenceAlignment(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SEQUENCES.forEach((sequence, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long next = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+            // The block of the value just taken starts ALLOCATION_SIZE - 1 below it, it has to be past every id
+            if (maxId == null || next == null || next - ALLOCATION_SIZE >= maxId) {
+                return;
+            }
+            long restartWith = maxId + ALLOCATION_SIZE;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restartWith);
+            LOGGER.info("Sequence {} was behind the ids in {}, restarted at {}", sequence, table, restartWith);
+        });
+    }
+}
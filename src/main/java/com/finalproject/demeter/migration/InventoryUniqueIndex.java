@@ -0,0 +1,65 @@
+package com.finalproject.demeter.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+/**
+ * Makes sure inventory_items has its unique (user, food item) index. Inventories created before the index may hold
+ * the same food item more than once, those rows are merged into the oldest one first.
+ *
+ * This runs once every bean is created, before the web server starts, so no duplicate can be inserted between the
+ * merge and the index. The merge only uses standard SQL, the index statement is only run on the databases known to
+ * support it.
+ * */
+@Component
+public class InventoryUniqueIndex implements SmartInitializingSingleton {
+    private static final Set<String> SUPPORTED_DATABASES = Set.of("postgresql", "h2");
+    private static final String MERGE_DUPLICATES =
+            "UPDATE inventory_items SET quantity = (" +
+            "SELECT SUM(d.quantity) FROM inventory_items d " +
+            "WHERE d.user_id_id = inventory_items.user_id_id AND d.food_id_id = inventory_items.food_id_id) " +
+            "WHERE id IN (SELECT MIN(id) FROM inventory_items GROUP BY user_id_id, food_id_id HAVING COUNT(*) > 1)";
+    private static final String DELETE_DUPLICATES =
+            "DELETE FROM inventory_items WHERE EXISTS (" +
+            "SELECT 1 FROM inventory_items k WHERE k.user_id_id = inventory_items.user_id_id " +
+            "AND k.food_id_id = inventory_items.food_id_id AND k.id < inventory_items.id)";
+    private static final String CREATE_INDEX =
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_inventory_items_user_food " +
+            "ON inventory_items (user_id_id, food_id_id)";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger LOGGER = LoggerFactory.getLogger(InventoryUniqueIndex.class);
+
+    @Autowired
+    public InventoryUniqueIndex(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (product == null || !SUPPORTED_DATABASES.contains(product.toLowerCase())) {
+            LOGGER.warn("The unique inventory index has to be created by hand on {}", product);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int merged = jdbcTemplate.update(MERGE_DUPLICATES);
+            if (merged > 0) {
+                int deleted = jdbcTemplate.update(DELETE_DUPLICATES);
+                LOGGER.info("Merged {} duplicate inventory items into {} items", deleted, merged);
+            }
+            jdbcTemplate.execute(CREATE_INDEX);
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.finalproject.demeter.migration;
+
+import com.finalproject.demeter.repository.RecipeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in the review count and star total of every recipe that does not have them yet, i.e. recipes that existed
+ * before the aggregates were added or that were created since the last start and never reviewed. Recipes that
+ * already have aggregates are left alone, so this is cheap to run on every start.
+ *
+ * This runs once every bean is created, before the web server starts and before any scheduled task, so no review
+ * can be added while the aggregates are being filled in.
+ * */
+@Component
+public class RecipeReviewAggregateBackfill implements SmartInitializingSingleton {
+    private final RecipeRepository recipeRepository;
+    private final Logger LOGGER = LoggerFactory.getLogger(RecipeReviewAggregateBackfill.class);
+
+    @Autowired
+    public RecipeReviewAggregateBackfill(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int updated = recipeRepository.backfillReviewAggregates();
+        if (updated > 0) {
+            LOGGER.info("Backfilled the review aggregates of {} recipes", updated);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.finalproject.demeter.migration;
+
+import com.finalproject.demeter.conversion.ConversionUtils;
+import com.finalproject.demeter.units.Unit;
+import com.finalproject.demeter.units.UnitCodeConverter;
+import com.finalproject.demeter.units.VolumetricUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills in the unit codes of inventory and recipe items that were saved while units were still stored as strings.
+ * Each distinct unit string is read once and written to every row that has it. Rows that already have a code are
+ * left alone and the old string columns are kept, so this is cheap to run on every start and nothing is lost.
+ *
+ * Strings that are not a known unit are read as the default unit, like they were when the string was parsed on every
+ * load. They are logged so they can be corrected by hand, the original string is still in the old column.
+ *
+ * This runs once every bean is created, before the web server starts and before any scheduled task, so no item is
+ * ever served without its unit.
+ * */
+@Component
+public class UnitCodeBackfill implements SmartInitializingSingleton {
+    // Table -> {old string column, new code column}
+    private static final Map<String, String[]> COLUMNS = Map.of(
+            "inventory_items", new String[] {"unit", "unit_code"},
+            "recipe_items", new String[] {"measurement_unit", "measurement_unit_code"}
+    );
+    private static final String COLUMN_EXISTS =
+            "SELECT COUNT(*) FROM information_schema.columns " +
+            "WHERE LOWER(table_name) = ? AND LOWER(column_name) = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger LOGGER = LoggerFactory.getLogger(UnitCodeBackfill.class);
+
+    @Autowired
+    public UnitCodeBackfill(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        COLUMNS.forEach((table, columns) -> {
+            // Databases created after the switch to codes never had the string column
+            if (!columnExists(table, columns[0])) {
+                return;
+            }
+            String pending = String.format("SELECT DISTINCT %s FROM %s WHERE %s IS NULL AND %s IS NOT NULL",
+                    columns[0], table, columns[1], columns[0]);
+            String backfill = String.format("UPDATE %s SET %s = ? WHERE %s IS NULL AND %s = ?",
+                    table, columns[1], columns[1], columns[0]);
+
+            List<String> unknownUnits = new ArrayList<>();
+            Integer updated = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (String unit : jdbcTemplate.queryForList(pending, String.class)) {
+                    Unit parsed = ConversionUtils.toUnit(unit);
+                    if (parsed == VolumetricUnit.DEFAULT && !"default".equals(unit)) {
+                        unknownUnits.add(unit);
+                    }
+                    rows += jdbcTemplate.update(backfill, UnitCodeConverter.toCode(parsed), unit);
+                }
+                return rows;
+            });
+            if (updated != null && updated > 0) {
+                LOGGER.info("Backfilled the unit codes of {} rows in {}", updated, table);
+            }
+            if (!unknownUnits.isEmpty()) {
+                LOGGER.warn("Units {} in {}.{} are not known units and were backfilled as the default unit",
+                        unknownUnits, table, columns[0]);
+            }
+        });
+    }
+
+    private boolean columnExists(String table, String column) {
+        List<Integer> counts = jdbcTemplate.queryForList(COLUMN_EXISTS, Integer.class, table, column);
+        return !counts.isEmpty() && counts.get(0) > 0;
+    }
+}
@@ -2,6 +2,7 @@ package com.finalproject.demeter.repository;
 
 import com.finalproject.demeter.dao.FoodItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -9,4 +10,10 @@ public interface FoodItemRepository extends JpaRepository<FoodItem, Long> {
     List<FoodItem> findFoodItemsByReusable(Boolean isResuable);
 
     FoodItem findFoodItemById(long id);
+
+    @Query(
+            value = "SELECT f.id, f.name FROM food_items f",
+            nativeQuery = true
+    )
+    List<Object[]> findAllNames();
 }
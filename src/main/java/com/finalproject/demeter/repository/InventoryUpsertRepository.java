@@ -0,0 +1,107 @@
+package com.finalproject.demeter.repository;
+
+import com.finalproject.demeter.units.Unit;
+import com.finalproject.demeter.units.UnitCodeConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Changes inventory quantities with single statements in the database instead of reading the item, changing it in
+ * java and saving it. Concurrent changes to the same item can not overwrite each other this way. Relies on the unique
+ * (user, food item) index of inventory_items.
+ *
+ * Postgres uses INSERT ... ON CONFLICT, every other database (i.e. H2 in the tests) uses a standard MERGE.
+ * */
+@Repository
+public class InventoryUpsertRepository {
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO inventory_items (id, user_id_id, food_id_id, quantity, unit_code) " +
+            "VALUES (nextval('inventory_items_seq'), ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id_id, food_id_id) " +
+            "DO UPDATE SET quantity = inventory_items.quantity + EXCLUDED.quantity, " +
+            "unit_code = EXCLUDED.unit_code";
+    private static final String MERGE_UPSERT =
+            "MERGE INTO inventory_items t " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS REAL), CAST(? AS SMALLINT))) " +
+            "s (user_id_id, food_id_id, quantity, unit_code) " +
+            "ON t.user_id_id = s.user_id_id AND t.food_id_id = s.food_id_id " +
+            "WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity, unit_code = s.unit_code " +
+            "WHEN NOT MATCHED THEN INSERT (id, user_id_id, food_id_id, quantity, unit_code) " +
+            "VALUES (NEXT VALUE FOR inventory_items_seq, s.user_id_id, s.food_id_id, s.quantity, s.unit_code)";
+    private static final String POSTGRES_ADD_TO_EXISTING =
+            "UPDATE inventory_items SET quantity = quantity + ?, unit_code = ? " +
+            "WHERE user_id_id = ? AND food_id_id = ? RETURNING quantity";
+    private static final String ADD_TO_EXISTING =
+            "UPDATE inventory_items SET quantity = quantity + ?, unit_code = ? " +
+            "WHERE user_id_id = ? AND food_id_id = ?";
+    private static final String SELECT_QUANTITY =
+            "SELECT quantity FROM inventory_items WHERE user_id_id = ? AND food_id_id = ?";
+    private static final String DELETE_IF_EMPTY =
+            "DELETE FROM inventory_items WHERE user_id_id = ? AND food_id_id = ? AND quantity < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    @Autowired
+    public InventoryUpsertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds to the quantity of an inventory item, the item is created if the user does not have it yet.
+     * @param userId id of the user.
+     * @param foodItemId id of the food item.
+     * @param quantity the quantity to add, in standard units.
+     * @param unit the standard unit of the quantity.
+     * */
+    public void addQuantity(long userId, long foodItemId, float quantity, Unit unit) {
+        jdbcTemplate.update(isPostgres() ? POSTGRES_UPSERT : MERGE_UPSERT, userId, foodItemId, quantity,
+                UnitCodeConverter.toCode(unit));
+    }
+
+    /**
+     * Adds to the quantity of an inventory item the user already has, the quantity may be negative.
+     * @param userId id of the user.
+     * @param foodItemId id of the food item.
+     * @param quantity the quantity to add, in standard units.
+     * @param unit the standard unit of the quantity.
+     * @return Optional including the new quantity, empty if the user does not have the item.
+     * */
+    public Optional<Float> addToExistingQuantity(long userId, long foodItemId, float quantity, Unit unit) {
+        if (isPostgres()) {
+            List<Float> updated = jdbcTemplate.queryForList(POSTGRES_ADD_TO_EXISTING, Float.class,
+                    quantity, UnitCodeConverter.toCode(unit), userId, foodItemId);
+            return updated.stream().findFirst();
+        }
+        if (jdbcTemplate.update(ADD_TO_EXISTING, quantity, UnitCodeConverter.toCode(unit), userId, foodItemId) == 0) {
+            return Optional.empty();
+        }
+        // The update locked the row, so this reads the quantity it left behind
+        return jdbcTemplate.queryForList(SELECT_QUANTITY, Float.class, userId, foodItemId).stream().findFirst();
+    }
+
+    /**
+     * Removes an inventory item, but only if its quantity is below a threshold.
+     * @param userId id of the user.
+     * @param foodItemId id of the food item.
+     * @param threshold the quantity the item has to be below.
+     * @return true if the item was removed.
+     * */
+    public boolean deleteIfBelow(long userId, long foodItemId, float threshold) {
+        return jdbcTemplate.update(DELETE_IF_EMPTY, userId, foodItemId, threshold) > 0;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
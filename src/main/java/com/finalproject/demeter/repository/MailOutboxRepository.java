@@ -0,0 +1,88 @@
+package com.finalproject.demeter.repository;
+
+import com.finalproject.demeter.dao.OutboxMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<OutboxMail, Long> {
+    @Query(
+            "SELECT m.id FROM OutboxMail m WHERE m.status IN (com.finalproject.demeter.dao.OutboxMail.Status.PENDING, " +
+            "com.finalproject.demeter.dao.OutboxMail.Status.SENDING) AND m.nextAttemptAt <= ?1 " +
+            "ORDER BY m.nextAttemptAt"
+    )
+    List<Long> findDueIds(Instant now, Pageable pageable);
+
+    /**
+     * Claims a due mail for one sender. Only one of several concurrent claims on the same mail can succeed, and a
+     * claim that is not released before leaseUntil lets the mail be claimed again.
+     * @return 1 if the mail was claimed, 0 if it is not due or someone else claimed it.
+     * */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE OutboxMail m SET m.status = com.finalproject.demeter.dao.OutboxMail.Status.SENDING, " +
+            "m.attempts = m.attempts + 1, m.nextAttemptAt = ?3 WHERE m.id = ?1 " +
+            "AND m.status IN (com.finalproject.demeter.dao.OutboxMail.Status.PENDING, " +
+            "com.finalproject.demeter.dao.OutboxMail.Status.SENDING) AND m.nextAttemptAt <= ?2"
+    )
+    int claim(long id, Instant now, Instant leaseUntil);
+
+    /**
+     * Marks a mail as sent and drops its body, which may hold a reset token. Only the sender holding the given claim
+     * can finish the mail, a sender whose claim ran out and was taken over by another one changes nothing.
+     * @param attempts: the attempt count the sender's claim left on the mail.
+     * @return 1 if the mail was finished, 0 if the claim was lost.
+     * */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE OutboxMail m SET m.status = com.finalproject.demeter.dao.OutboxMail.Status.SENT, " +
+            "m.sentAt = ?3, m.lastError = NULL, m.body = NULL WHERE m.id = ?1 " +
+            "AND m.status = com.finalproject.demeter.dao.OutboxMail.Status.SENDING AND m.attempts = ?2"
+    )
+    int markSent(long id, int attempts, Instant sentAt);
+
+    /**
+     * Hands a mail that could not be sent back for another attempt at nextAttemptAt, if the claim is still held.
+     * @param attempts: the attempt count the sender's claim left on the mail.
+     * @return 1 if the mail was rescheduled, 0 if the claim was lost.
+     * */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE OutboxMail m SET m.status = com.finalproject.demeter.dao.OutboxMail.Status.PENDING, " +
+            "m.nextAttemptAt = ?3, m.lastError = ?4 WHERE m.id = ?1 " +
+            "AND m.status = com.finalproject.demeter.dao.OutboxMail.Status.SENDING AND m.attempts = ?2"
+    )
+    int reschedule(long id, int attempts, Instant nextAttemptAt, String lastError);
+
+    /**
+     * Gives up on a mail and drops its body, if the claim is still held.
+     * @param attempts: the attempt count the sender's claim left on the mail.
+     * @return 1 if the mail was given up on, 0 if the claim was lost.
+     * */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE OutboxMail m SET m.status = com.finalproject.demeter.dao.OutboxMail.Status.FAILED, " +
+            "m.lastError = ?3, m.body = NULL WHERE m.id = ?1 " +
+            "AND m.status = com.finalproject.demeter.dao.OutboxMail.Status.SENDING AND m.attempts = ?2"
+    )
+    int markFailed(long id, int attempts, String lastError);
+
+    @Query(
+            "SELECT m.id FROM OutboxMail m WHERE m.status IN (com.finalproject.demeter.dao.OutboxMail.Status.SENT, " +
+            "com.finalproject.demeter.dao.OutboxMail.Status.FAILED) AND m.createdAt < ?1"
+    )
+    List<Long> findFinishedIds(Instant createdBefore, Pageable pageable);
+
+    long countByStatus(OutboxMail.Status status);
+}
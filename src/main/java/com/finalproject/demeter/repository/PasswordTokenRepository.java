@@ -1,12 +1,21 @@
 package com.finalproject.demeter.repository;
 
 import com.finalproject.demeter.dao.PasswordResetToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PasswordTokenRepository extends JpaRepository<PasswordResetToken, Long> {
+    // The user is fetched with the token, every caller needs it
+    @Query("SELECT t FROM PasswordResetToken t JOIN FETCH t.user WHERE t.token = ?1")
     Optional<PasswordResetToken> findByToken(String token);
+
+    @Query("SELECT t.id FROM PasswordResetToken t WHERE t.expiryDate < ?1 ORDER BY t.expiryDate")
+    List<Long> findExpiredIds(Date now, Pageable pageable);
 }
@@ -3,8 +3,11 @@ package com.finalproject.demeter.repository;
 import com.finalproject.demeter.dao.Recipe;
 import com.finalproject.demeter.dao.RecipeItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +15,17 @@ import java.util.Optional;
 public interface RecipeItemRepository extends JpaRepository<RecipeItem, Long> {
     Optional<List<RecipeItem>> findRecipeItemsByRecipe(Recipe recipe);
     Optional<List<RecipeItem>> deleteRecipeItemsByRecipe(Recipe recipe);
+
+    @Query(
+            "SELECT ri FROM RecipeItem ri JOIN FETCH ri.foodItem JOIN FETCH ri.recipe " +
+                    "WHERE ri.recipe.id IN :recipeIds"
+    )
+    List<RecipeItem> findRecipeItemsByRecipeIds(@Param("recipeIds") Collection<Long> recipeIds);
+
+    @Query(
+            value = "SELECT ri.recipe_id, ri.food_item_id, ri.quantity FROM recipe_items ri " +
+                    "JOIN recipes r ON r.id = ri.recipe_id WHERE r.is_public=true",
+            nativeQuery = true
+    )
+    List<Object[]> findPublicRecipeRequirements();
 }
@@ -3,7 +3,9 @@ package com.finalproject.demeter.repository;
 import com.finalproject.demeter.dao.Recipe;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -22,11 +24,65 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
             nativeQuery = true
     )
     List<Recipe> findAllPublic();
+
+    @Query(
+            value = "SELECT r.id, r.name, r.description FROM recipes r WHERE r.is_public=true",
+            nativeQuery = true
+    )
+    List<Object[]> findPublicRecipeText();
+
     @Query(
             value = "SELECT * FROM recipes r WHERE (r.name like %?1% OR r.description like %?1%) AND r.is_public=true",
             nativeQuery = true
     )
     Page<Recipe> findRecipeLike(String s, Pageable page);
 
+    // Keyset variants of the two queries above, they seek past the last id instead of skipping rows and never count
+    @Query(
+            value = "SELECT * FROM recipes r WHERE r.is_public=true AND r.id > ?1 ORDER BY r.id LIMIT ?2",
+            nativeQuery = true
+    )
+    List<Recipe> findAllPublicAfter(long lastRecipeId, int limit);
+
+    @Query(
+            value = "SELECT * FROM recipes r WHERE (r.name like %?1% OR r.description like %?1%) AND r.is_public=true " +
+                    "AND r.id > ?2 ORDER BY r.id LIMIT ?3",
+            nativeQuery = true
+    )
+    List<Recipe> findRecipeLikeAfter(String s, long lastRecipeId, int limit);
+
     Recipe findById(long id);
+
+    // The review aggregates of some recipes as {id, review_count, star_total}, without loading the recipes
+    @Query(
+            value = "SELECT r.id, r.review_count, r.star_total FROM recipes r WHERE r.id IN ?1",
+            nativeQuery = true
+    )
+    List<Object[]> findReviewAggregates(List<Long> recipeIds);
+
+    @Modifying
+    @Query(
+            value = "UPDATE recipes SET review_count = COALESCE(review_count, 0) + 1, " +
+                    "star_total = COALESCE(star_total, 0) + ?2 WHERE id = ?1",
+            nativeQuery = true
+    )
+    int addReviewToAggregates(long recipeId, long stars);
+
+    @Modifying
+    @Query(
+            value = "UPDATE recipes SET star_total = COALESCE(star_total, 0) + ?2 WHERE id = ?1",
+            nativeQuery = true
+    )
+    int adjustStarTotal(long recipeId, long starDifference);
+
+    @Transactional
+    @Modifying
+    @Query(
+            value = "UPDATE recipes r SET " +
+                    "review_count = (SELECT COUNT(*) FROM recipe_reviews rr WHERE rr.recipe_id = r.id), " +
+                    "star_total = (SELECT COALESCE(SUM(rr.stars), 0) FROM recipe_reviews rr WHERE rr.recipe_id = r.id) " +
+                    "WHERE r.review_count IS NULL",
+            nativeQuery = true
+    )
+    int backfillReviewAggregates();
 }
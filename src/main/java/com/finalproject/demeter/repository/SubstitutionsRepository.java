@@ -2,9 +2,13 @@ package com.finalproject.demeter.repository;
 
 import com.finalproject.demeter.dao.Substitution;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface SubstitutionsRepository extends JpaRepository<Substitution, Long> {
     List<Substitution> findByMissingItemId(long missing_item_id);
+
+    @Query(value = "SELECT s.missing_item_id, s.id FROM substitutions s", nativeQuery = true)
+    List<Object[]> findAllPairs();
 }
@@ -1,5 +1,7 @@
 package com.finalproject.demeter.service;
 
+import com.finalproject.demeter.config.AuthenticatedUser;
+import com.finalproject.demeter.dao.PasswordResetToken;
 import com.finalproject.demeter.dao.User;
 import com.finalproject.demeter.dto.LoginDto;
 import com.finalproject.demeter.dto.PasswordUpdate;
@@ -15,7 +17,6 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -25,11 +26,13 @@ import java.util.UUID;
 public class AuthService {
     private AuthenticationManager authenticationManager;
     private UserService userService;
-    private JwtUtil jwtUtils = new JwtUtil();
+    private JwtUtil jwtUtils;
     private MailService mailService;
 
-    public AuthService(AuthenticationManager authenticationManager, UserService userService, MailService mailService) {
+    public AuthService(AuthenticationManager authenticationManager, UserService userService, MailService mailService,
+                       JwtUtil jwtUtils) {
         this.userService = userService;
+        this.jwtUtils = jwtUtils;
         this.authenticationManager = authenticationManager;
         this.mailService = mailService;
     }
@@ -52,7 +55,8 @@ public class AuthService {
             SimpleMailMessage message = mailService.constructResetTokenEmail(
                     mailService.getAppUrl(request), token, user
             );
-            mailService.sendMessage(message);
+            // Sent in the background so the mail server never holds up the request
+            mailService.queueMessage(message);
         });
 
         return new ResponseEntity<>("Message Sent if User exists", HttpStatus.OK);
@@ -64,32 +68,31 @@ public class AuthService {
      * @return ResponseEntity that represents the status of the reset.
      * */
     public ResponseEntity<Void> updatePassword(PasswordUpdate passwordUpdate) {
-        if (!userService.isTokenValid(passwordUpdate.getToken())){
+        // One lookup gets the token, checks it and brings its user along
+        Optional<PasswordResetToken> resetToken = userService.findValidPasswordResetToken(passwordUpdate.getToken());
+        if (resetToken.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        Optional<User> userPresent = userService.findUserByToken(passwordUpdate.getToken());
-        if (userPresent.isPresent()) {
-            User user = userPresent.get();
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            user.getUsername(),
-                            passwordUpdate.getOldPassword()
-                    )
-            );
-
-            if (!authentication.isAuthenticated()){
-                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-            }
+        User user = resetToken.get().getUser();
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        user.getUsername(),
+                        passwordUpdate.getOldPassword()
+                )
+        );
 
-            if (!AuthUtil.isValidPassword(passwordUpdate.getNewPassword()) ||
-                    passwordUpdate.getOldPassword().equals(passwordUpdate.getNewPassword())) {
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
+        if (!authentication.isAuthenticated()){
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
 
-            userService.updateUserPassword(user, passwordUpdate.getNewPassword());
-            userService.removePasswordResetToken(passwordUpdate.getToken());
+        if (!AuthUtil.isValidPassword(passwordUpdate.getNewPassword()) ||
+                passwordUpdate.getOldPassword().equals(passwordUpdate.getNewPassword())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
+
+        userService.updateUserPassword(user, passwordUpdate.getNewPassword());
+        userService.removePasswordResetToken(resetToken.get());
         return new ResponseEntity<>(HttpStatus.ACCEPTED);
     }
 
@@ -106,13 +109,10 @@ public class AuthService {
                 )
         );
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        // Get the user
-        UserDetails userDetails = userService.loadUserByUsername(loginDto.getUsername().toLowerCase());
-        Optional<User> userOpt = userService.findByUsername(loginDto.getUsername().toLowerCase());
-        // Generate jwtToken
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            String jwtToken = jwtUtils.generateToken(userDetails);
+        // The user was loaded while authenticating, the token and login info are built from it without another query
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            User user = principal.getUser();
+            String jwtToken = jwtUtils.generateToken(principal, principal.getUserId());
             String jwtReturnToken = new StringBuilder().append("Bearer:").append(jwtToken).toString();
             // Return Token to front end
             UserLoginInfo returnInfo = new UserLoginInfo();
@@ -1,35 +1,93 @@
 package com.finalproject.demeter.service;
 
+import com.finalproject.demeter.cache.FoodItemRegistry;
 import com.finalproject.demeter.dao.FoodItem;
-import com.finalproject.demeter.dao.Substitution;
 import com.finalproject.demeter.dao.User;
+import com.finalproject.demeter.dto.FoodItemSummary;
+import com.finalproject.demeter.index.FoodNameIndex;
+import com.finalproject.demeter.index.SubstitutionGraph;
 import com.finalproject.demeter.repository.FoodItemRepository;
 import com.finalproject.demeter.repository.InventoryRepository;
-import com.finalproject.demeter.repository.SubstitutionsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 @Service
 public class FoodService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_TYPEAHEAD_LIMIT = 10;
+    private static final int MAX_TYPEAHEAD_LIMIT = 50;
     private FoodItemRepository foodItemRepository;
-    private SubstitutionsRepository substitutionsRepository;
+    private SubstitutionGraph substitutionGraph;
     private InventoryRepository inventoryRepository;
+    private FoodNameIndex foodNameIndex;
+    private FoodItemRegistry foodItemRegistry;
 
     @Autowired
     public FoodService (FoodItemRepository foodItemRepository, InventoryRepository inventoryRepository,
-                        SubstitutionsRepository substitutionsRepository) {
+                        SubstitutionGraph substitutionGraph, FoodNameIndex foodNameIndex,
+                        FoodItemRegistry foodItemRegistry) {
         this.foodItemRepository = foodItemRepository;
         this.inventoryRepository = inventoryRepository;
-        this.substitutionsRepository = substitutionsRepository;
+        this.substitutionGraph = substitutionGraph;
+        this.foodNameIndex = foodNameIndex;
+        this.foodItemRegistry = foodItemRegistry;
     }
 
     public List<FoodItem> getAllFoodItems() {
         return foodItemRepository.findAll();
     }
 
+    /**
+     * Used to get the food catalog one page at a time.
+     * @param pageNumber the page to return, starting at 0.
+     * @param pageSize the number of food items on a page.
+     * @return a response entity with the number of pages and the food items on the page, or an error.
+     * */
+    public ResponseEntity<?> getFoodItemPage(int pageNumber, int pageSize) {
+        if (pageNumber < 0 || pageSize < 1) {
+            return new ResponseEntity<>("Invalid Page", HttpStatus.BAD_REQUEST);
+        }
+        // Sorted by id so the page boundaries stay the same between requests
+        Page<FoodItem> results = foodItemRepository.findAll(
+                PageRequest.of(pageNumber, Math.min(pageSize, MAX_PAGE_SIZE), Sort.by("id")));
+
+        HashMap<String, Object> returnMap = new HashMap<>();
+        returnMap.put("count", results.getTotalPages());
+        returnMap.put("results", results.getContent());
+        return new ResponseEntity<>(returnMap, HttpStatus.OK);
+    }
+
+    /**
+     * Used to suggest food items while a user is typing their name.
+     * @param prefix what the user typed so far.
+     * @param limit the maximum number of suggestions, defaults to 10.
+     * @return a response entity with the ids and names of the matching food items, or an error.
+     * */
+    public ResponseEntity<?> getFoodTypeahead(String prefix, Integer limit) {
+        if (limit == null) {
+            limit = DEFAULT_TYPEAHEAD_LIMIT;
+        }
+        if (limit < 1) {
+            return new ResponseEntity<>("The limit must be greater than 0", HttpStatus.BAD_REQUEST);
+        }
+
+        List<FoodItemSummary> suggestions = new ArrayList<>();
+        foodNameIndex.findByPrefix(prefix, Math.min(limit, MAX_TYPEAHEAD_LIMIT)).forEach((id, name) -> {
+            FoodItemSummary summary = new FoodItemSummary();
+            summary.setId(id);
+            summary.setName(name);
+            suggestions.add(summary);
+        });
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
     /**
      * This function uses a user and missingFoodItemId to determine what substitutions are
      * available for a foodItem and whether it is in the users inventory.
@@ -38,14 +96,18 @@ public class FoodService {
      * @return - empty array or list of 1 or more possible subsitutions
      */
     public List<FoodItem> getSubItems(User user, long missingFoodItemId) {
-        List<Substitution> possibleSubs = substitutionsRepository.findByMissingItemId(missingFoodItemId);
-        List<Long> foodItemIds = inventoryRepository.getUserInventoryFoodItemIdsByUserId(user.getId());
+        long[] possibleSubs = substitutionGraph.getSubstitutes(missingFoodItemId);
+        if (possibleSubs.length == 0) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> foodItemIds = new HashSet<>(inventoryRepository.getUserInventoryFoodItemIdsByUserId(user.getId()));
         List<FoodItem> foundSubFoodItems = new ArrayList<>();
 
         try {
-            for (Substitution sub : possibleSubs) {
-                if (foodItemIds.contains(sub.getId())) {
-                    foundSubFoodItems.add(foodItemRepository.findFoodItemById(sub.getId()));
+            for (long sub : possibleSubs) {
+                if (foodItemIds.contains(sub)) {
+                    foodItemRegistry.findById(sub).ifPresent(foundSubFoodItems::add);
                 }
             }
         } catch(Exception e) {
@@ -0,0 +1,68 @@
+package com.finalproject.demeter.service;
+
+import com.finalproject.demeter.repository.MailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Deletes sent and given up mails from the outbox in the background once they are older than the retention. Their
+ * bodies are already dropped when they are finished, the rows are only kept for a while to look into delivery
+ * problems. Mails are deleted in batches, every batch in its own transaction, like the password reset tokens.
+ * */
+@Component
+public class MailOutboxPurge {
+    private final MailOutboxRepository mailOutboxRepository;
+    private final long retentionMs;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Logger LOGGER = LoggerFactory.getLogger(MailOutboxPurge.class);
+
+    /**
+     * @param retentionMs: how long a finished mail is kept after it was queued.
+     * @param batchSize: the number of mails deleted per transaction.
+     * @param maxBatches: the number of batches per run, whatever is left is deleted by the next run.
+     * */
+    @Autowired
+    public MailOutboxPurge(MailOutboxRepository mailOutboxRepository,
+                           @Value("${demeter.mail.retention-ms:604800000}") long retentionMs,
+                           @Value("${demeter.mail.purge-batch-size:500}") int batchSize,
+                           @Value("${demeter.mail.purge-max-batches:100}") int maxBatches) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.retentionMs = retentionMs;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Deletes the sent and given up mails that were queued before the retention.
+     * @return the number of deleted mails.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.mail.purge-ms:3600000}")
+    public int purgeFinishedMails() {
+        Instant createdBefore = Instant.now().minusMillis(retentionMs);
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Long> finishedIds = mailOutboxRepository.findFinishedIds(createdBefore, PageRequest.of(0, batchSize));
+            if (finishedIds.isEmpty()) {
+                break;
+            }
+            mailOutboxRepository.deleteAllByIdInBatch(finishedIds);
+            deleted += finishedIds.size();
+            if (finishedIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            LOGGER.info("Purged {} finished mails from the outbox", deleted);
+        }
+        return deleted;
+    }
+}
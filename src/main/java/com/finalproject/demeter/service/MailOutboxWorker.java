@@ -0,0 +1,202 @@
+package com.finalproject.demeter.service;
+
+import com.finalproject.demeter.dao.OutboxMail;
+import com.finalproject.demeter.repository.MailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the mails in the outbox in the background. Every poll claims as many due mails as there are idle senders,
+ * so no more than the configured number of mails are ever in flight. A mail that could not be sent is tried again
+ * with an exponentially growing delay, and is given up on after too many attempts.
+ *
+ * A send that never returns holds its sender for good, so the smtp timeouts in spring.mail.properties have to be set
+ * and stay well below the lease.
+ * */
+@Component
+public class MailOutboxWorker {
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long leaseMs;
+    private final int senderCount;
+    private final ExecutorService senders;
+    private final Semaphore idleSenders;
+    private final AtomicLong sentMails = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong abandonedMails = new AtomicLong();
+    private final Logger LOGGER = LoggerFactory.getLogger(MailOutboxWorker.class);
+
+    /**
+     * @param senderCount: the number of mails that are sent at the same time.
+     * @param maxAttempts: the number of attempts before a mail is given up on.
+     * @param backoffMs: the delay before the first retry, it doubles with every further attempt.
+     * @param maxBackoffMs: the longest delay between two attempts.
+     * @param leaseMs: how long a claimed mail is left alone before it is assumed its sender died.
+     * */
+    @Autowired
+    public MailOutboxWorker(MailOutboxRepository mailOutboxRepository, JavaMailSender mailSender,
+                            @Value("${demeter.mail.senders:2}") int senderCount,
+                            @Value("${demeter.mail.max-attempts:6}") int maxAttempts,
+                            @Value("${demeter.mail.backoff-ms:30000}") long backoffMs,
+                            @Value("${demeter.mail.max-backoff-ms:3600000}") long maxBackoffMs,
+                            @Value("${demeter.mail.lease-ms:300000}") long leaseMs) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.leaseMs = leaseMs;
+        this.senderCount = senderCount;
+        this.idleSenders = new Semaphore(senderCount);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderCount, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hands the due mails to the idle senders.
+     * @return the number of mails that were handed out.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.mail.poll-ms:2000}")
+    public int poll() {
+        int idle = idleSenders.availablePermits();
+        if (idle == 0) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<Long> dueIds = mailOutboxRepository.findDueIds(now, PageRequest.of(0, idle));
+        int dispatched = 0;
+        for (Long id : dueIds) {
+            if (!idleSenders.tryAcquire()) {
+                break;
+            }
+            // Another instance may have claimed it since it was read
+            if (mailOutboxRepository.claim(id, now, now.plusMillis(leaseMs)) == 0) {
+                idleSenders.release();
+                continue;
+            }
+            try {
+                senders.execute(() -> {
+                    try {
+                        send(id);
+                    } finally {
+                        idleSenders.release();
+                    }
+                });
+                dispatched++;
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the claim runs out and the mail is sent after the next start
+                idleSenders.release();
+            }
+        }
+        return dispatched;
+    }
+
+    /**
+     * Logs how the outbox is doing, so a mail server that stopped taking mails shows up in the logs.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.mail.report-ms:300000}")
+    public void logStatus() {
+        LOGGER.info("Mail outbox: {} pending, {} of {} senders busy, {} sent, {} failed attempts, {} given up",
+                getPendingMails(), senderCount - idleSenders.availablePermits(), senderCount, sentMails.get(),
+                failedAttempts.get(), abandonedMails.get());
+    }
+
+    public long getSentMails() {
+        return sentMails.get();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    public long getAbandonedMails() {
+        return abandonedMails.get();
+    }
+
+    public long getPendingMails() {
+        return mailOutboxRepository.countByStatus(OutboxMail.Status.PENDING)
+                + mailOutboxRepository.countByStatus(OutboxMail.Status.SENDING);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    private void send(long id) {
+        Optional<OutboxMail> mailOpt = mailOutboxRepository.findById(id);
+        if (mailOpt.isEmpty() || mailOpt.get().getStatus() != OutboxMail.Status.SENDING) {
+            return;
+        }
+        OutboxMail mail = mailOpt.get();
+        // The claim this sender holds, the mail is only finished if nobody claimed it since
+        int attempts = mail.getAttempts();
+        try {
+            mailSender.send(toMessage(mail));
+        } catch (Exception e) {
+            retryLater(mail, attempts, e);
+            return;
+        }
+        sentMails.incrementAndGet();
+        if (mailOutboxRepository.markSent(id, attempts, Instant.now()) == 0) {
+            LOGGER.warn("Sent mail {} after its claim ran out, it may be sent twice", id);
+        }
+    }
+
+    private void retryLater(OutboxMail mail, int attempts, Exception e) {
+        failedAttempts.incrementAndGet();
+        String error = String.valueOf(e.getMessage());
+        error = error.length() > 1000 ? error.substring(0, 1000) : error;
+        // A return on 0 updated rows means another sender claimed the mail meanwhile and reports on it instead
+        if (attempts >= maxAttempts) {
+            if (mailOutboxRepository.markFailed(mail.getId(), attempts, error) == 0) {
+                return;
+            }
+            abandonedMails.incrementAndGet();
+            LOGGER.error("Gave up on mail {} to {} after {} attempts", mail.getId(), mail.getRecipient(),
+                    attempts, e);
+        } else {
+            // attempts is at least 1 here, the shift is capped so it can not overflow
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+            if (mailOutboxRepository.reschedule(mail.getId(), attempts, Instant.now().plusMillis(delay), error) == 0) {
+                return;
+            }
+            LOGGER.warn("Could not send mail {}, attempt {} of {}, retrying in {} ms", mail.getId(),
+                    attempts, maxAttempts, delay);
+        }
+    }
+
+    private static SimpleMailMessage toMessage(OutboxMail mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(mail.getRecipient());
+        message.setFrom(mail.getSender());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getBody());
+        return message;
+    }
+}
@@ -1,6 +1,8 @@
 package com.finalproject.demeter.service;
 
+import com.finalproject.demeter.dao.OutboxMail;
 import com.finalproject.demeter.dao.User;
+import com.finalproject.demeter.repository.MailOutboxRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,18 +11,24 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
 
 @Service
 public class MailService {
     private MessageSource messages;
     private JavaMailSender mailSender;
+    private MailOutboxRepository mailOutboxRepository;
 
     @Value("${spring.mail.username}") String supportEmail;
 
     @Autowired
-    public MailService(MessageSource messages, JavaMailSender mailSender){
+    public MailService(MessageSource messages, JavaMailSender mailSender, MailOutboxRepository mailOutboxRepository){
         this.messages = messages;
         this.mailSender = mailSender;
+        this.mailOutboxRepository = mailOutboxRepository;
     }
 
     public SimpleMailMessage constructResetTokenEmail(
@@ -48,4 +56,30 @@ public class MailService {
     public void sendMessage(SimpleMailMessage message) {
         this.mailSender.send(message);
     }
+
+    /**
+     * Stores a message in the outbox, the MailOutboxWorker sends it in the background. Every recipient gets their
+     * own outbox entry so a bad address does not hold up the others.
+     * @param message the message to send.
+     * */
+    public void queueMessage(SimpleMailMessage message) {
+        if (message.getTo() == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<OutboxMail> mails = new ArrayList<>();
+        for (String recipient : message.getTo()) {
+            OutboxMail mail = new OutboxMail();
+            mail.setRecipient(recipient);
+            mail.setSender(message.getFrom());
+            mail.setSubject(message.getSubject());
+            mail.setBody(message.getText());
+            mail.setStatus(OutboxMail.Status.PENDING);
+            mail.setAttempts(0);
+            mail.setCreatedAt(now);
+            mail.setNextAttemptAt(now);
+            mails.add(mail);
+        }
+        mailOutboxRepository.saveAll(mails);
+    }
 }
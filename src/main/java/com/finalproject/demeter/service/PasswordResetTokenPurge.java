@@ -0,0 +1,63 @@
+package com.finalproject.demeter.service;
+
+import com.finalproject.demeter.repository.PasswordTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Deletes expired password reset tokens in the background. Tokens are deleted in batches, every batch in its own
+ * transaction, so a large backlog never holds locks on the table for long.
+ * */
+@Component
+public class PasswordResetTokenPurge {
+    private final PasswordTokenRepository passwordTokenRepository;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Logger LOGGER = LoggerFactory.getLogger(PasswordResetTokenPurge.class);
+
+    /**
+     * @param batchSize: the number of tokens deleted per transaction.
+     * @param maxBatches: the number of batches per run, whatever is left is deleted by the next run.
+     * */
+    @Autowired
+    public PasswordResetTokenPurge(PasswordTokenRepository passwordTokenRepository,
+                                   @Value("${demeter.password-reset.purge-batch-size:500}") int batchSize,
+                                   @Value("${demeter.password-reset.purge-max-batches:100}") int maxBatches) {
+        this.passwordTokenRepository = passwordTokenRepository;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Deletes the tokens that expired before now.
+     * @return the number of deleted tokens.
+     * */
+    @Scheduled(fixedDelayString = "${demeter.password-reset.purge-ms:3600000}")
+    public int purgeExpiredTokens() {
+        Date now = new Date();
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Long> expiredIds = passwordTokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+            if (expiredIds.isEmpty()) {
+                break;
+            }
+            passwordTokenRepository.deleteAllByIdInBatch(expiredIds);
+            deleted += expiredIds.size();
+            if (expiredIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            LOGGER.info("Purged {} expired password reset tokens", deleted);
+        }
+        return deleted;
+    }
+}
@@ -1,8 +1,18 @@
 package com.finalproject.demeter.service;
 
+import com.finalproject.demeter.cache.FoodItemRegistry;
+import com.finalproject.demeter.cache.MatchResultCache;
+import com.finalproject.demeter.cache.RecipeItemViewCache;
 import com.finalproject.demeter.conversion.ConversionUtils;
 import com.finalproject.demeter.dao.*;
 import com.finalproject.demeter.dto.*;
+import com.finalproject.demeter.index.CompiledInventory;
+import com.finalproject.demeter.index.CompiledRecipe;
+import com.finalproject.demeter.index.RecipeIngredientIndex;
+import com.finalproject.demeter.index.RecipeMatchingEngine;
+import com.finalproject.demeter.index.RecipeTextIndex;
+import com.finalproject.demeter.index.SubstitutionGraph;
+import com.finalproject.demeter.index.SubstitutionLookup;
 import com.finalproject.demeter.repository.*;
 import com.finalproject.demeter.util.*;
 import jakarta.transaction.Transactional;
@@ -14,8 +24,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,16 +41,25 @@ public class RecipeService {
     private RecipeRepository recipeRepository;
     private RecipeItemRepository recipeItemRepository;
     private RecipeRatingRepository recipeRatingRepository;
-    private FoodItemRepository foodItemRepository;
+    private FoodItemRegistry foodItemRegistry;
     private PersonalRecipeRepository personalRecipeRepository;
     private UserService userService;
     private DislikedItemRepository dislikedItemRepository;
     private MinorItemRepository minorItemRepository;
     private FavoriteRecipeRepository favoriteRecipeRepository;
-    private FoodService foodService;
-    private UserPreferenceRepository userPreferenceRepository;
+    private RecipeIngredientIndex recipeIngredientIndex;
+    private RecipeMatchingEngine recipeMatchingEngine;
+    private MatchResultCache matchResultCache;
+    private RecipeItemViewCache recipeItemViewCache;
+    private TransactionTemplate transactionTemplate;
+    private SubstitutionGraph substitutionGraph;
+    private RecipeTextIndex recipeTextIndex;
     private final Pattern SPECIALCHARREGEX = Pattern.compile("[$&+:;=?@#|<>.^*()%!]");
     private final Logger LOGGER = LoggerFactory.getLogger(RecipeService.class);
+    // Keeps the IN list of the bulk recipe item query at a size every database handles well
+    private static final int RECIPE_ITEM_BATCH_SIZE = 500;
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
     private static final PaginationSetting DEFAULT_PAGE = new PaginationSettingBuilder()
             .pageNumber(0)
             .pageSize(5)
@@ -76,21 +98,29 @@ public class RecipeService {
 
     public RecipeService(RecipeRepository recipeRepository, RecipeItemRepository recipeItemRepository,
                          RecipeRatingRepository recipeRatingRepository, UserService userService,
-                         FoodItemRepository foodItemRepository, PersonalRecipeRepository personalRecipeRepository,
+                         FoodItemRegistry foodItemRegistry, PersonalRecipeRepository personalRecipeRepository,
                          DislikedItemRepository dislikedItemRepository, MinorItemRepository minorItemRepository,
-                         FavoriteRecipeRepository favoriteRecipeRepository, FoodService foodService,
-                         UserPreferenceRepository userPreferenceRepository) {
+                         FavoriteRecipeRepository favoriteRecipeRepository,
+                         RecipeIngredientIndex recipeIngredientIndex,
+                         RecipeMatchingEngine recipeMatchingEngine, MatchResultCache matchResultCache,
+                         SubstitutionGraph substitutionGraph, RecipeTextIndex recipeTextIndex,
+                         RecipeItemViewCache recipeItemViewCache, TransactionTemplate transactionTemplate) {
         this.recipeRepository = recipeRepository;
         this.recipeItemRepository = recipeItemRepository;
         this.recipeRatingRepository = recipeRatingRepository;
         this.userService = userService;
-        this.foodItemRepository = foodItemRepository;
+        this.foodItemRegistry = foodItemRegistry;
         this.personalRecipeRepository = personalRecipeRepository;
         this.dislikedItemRepository = dislikedItemRepository;
         this.minorItemRepository = minorItemRepository;
         this.favoriteRecipeRepository = favoriteRecipeRepository;
-        this.foodService = foodService;
-        this.userPreferenceRepository = userPreferenceRepository;
+        this.recipeIngredientIndex = recipeIngredientIndex;
+        this.recipeMatchingEngine = recipeMatchingEngine;
+        this.matchResultCache = matchResultCache;
+        this.substitutionGraph = substitutionGraph;
+        this.recipeTextIndex = recipeTextIndex;
+        this.recipeItemViewCache = recipeItemViewCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -163,57 +193,208 @@ public class RecipeService {
      * */
     public List<RecipeWithSub> getRecipeWithInventory(String jwtToken, PaginationSetting pageSettings) {
         // Recipes and User inventory should already be internalized and standard
-        // This will likely need to be optimized.
         if (pageSettings.getPageSize() <= 0 || pageSettings.getPageNumber() < 0) {
             return new ArrayList<>();
         }
 
+        Optional<User> user = userService.getUserFromJwtToken(jwtToken);
+        if (user.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Later pages are served from the matches of the first page
+        Optional<List<RecipeWithSub>> cachedMatches = matchResultCache.get(user.get().getId());
+        List<RecipeWithSub> returnList = cachedMatches.isPresent()
+                ? cachedMatches.get()
+                : findRecipesWithInventory(user.get());
+
+        // Return the matched list
+        // Need to perform a bound check to make sure to not get array out of bounds
+        int startIndex = pageSettings.getPageNumber() * pageSettings.getPageSize();
+        int endIndex = startIndex + pageSettings.getPageSize();
+
+        if (startIndex >= returnList.size()) {
+            return new ArrayList<>();
+        }
+
+        if (endIndex > returnList.size()) {
+            endIndex = returnList.size();
+        }
+
+        return withCurrentRatings(returnList.subList(startIndex, endIndex));
+    }
+
+    /**
+     * Copies a page of matches with the current ratings of their recipes. The cached matches only hold the order and
+     * the substitutions, they are shared and a review must show up without waiting for them to expire.
+     * @param matches: The matches on the page.
+     * @return New matches with new recipes, the cached ones are left alone.
+     * */
+    private List<RecipeWithSub> withCurrentRatings(List<RecipeWithSub> matches) {
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> recipeIds = new ArrayList<>(matches.size());
+        matches.forEach(match -> recipeIds.add(match.getRecipe().getId()));
+        Map<Long, Object[]> aggregates = new HashMap<>();
+        for (Object[] row : recipeRepository.findReviewAggregates(recipeIds)) {
+            aggregates.put(((Number) row[0]).longValue(), row);
+        }
+
+        List<RecipeWithSub> page = new ArrayList<>(matches.size());
+        for (RecipeWithSub match : matches) {
+            Recipe cached = match.getRecipe();
+            // A recipe without a row was removed since it was matched, it keeps the aggregates it was matched with
+            Object[] row = aggregates.get(cached.getId());
+            Recipe recipe = new RecipeBuilder().id(cached.getId()).name(cached.getName())
+                    .description(cached.getDescription()).isPublic(cached.getIsPublic()).picId(cached.getPicId())
+                    .reviewCount(row == null ? cached.getReviewCount() : toLong(row[1]))
+                    .starTotal(row == null ? cached.getStarTotal() : toLong(row[2]))
+                    .build();
+            setRecipeRatings(recipe);
+
+            RecipeWithSub copy = new RecipeWithSub();
+            copy.setRecipe(recipe);
+            copy.setIsSubbed(match.getIsSubbed());
+            copy.setFoodIdToReplace(match.getFoodIdToReplace());
+            copy.setSubbedId(match.getSubbedId());
+            page.add(copy);
+        }
+        return page;
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    /**
+     * Matches the whole public catalog against the inventory of a user and caches the result.
+     * @param user: The user to find recipes for.
+     * @return The complete ordered list of recipes that can be made with the user's inventory.
+     * */
+    private List<RecipeWithSub> findRecipesWithInventory(User user) {
+        // Taken before anything is read so a change made while matching is never hidden by the cache
+        MatchResultCache.Stamp stamp = matchResultCache.currentStamp(user.getId());
         List<Recipe> recipeList = recipeRepository.findAllPublic();
+        Optional<CompiledInventory> compiledInventory = compileInventory(user);
+        if (compiledInventory.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> candidateIds = recipeIngredientIndex
+                .findCandidateRecipeIds(compiledInventory.get().getCoveredFoodIds());
+        List<Recipe> candidates = new ArrayList<>();
+        List<CompiledRecipe> compiledCandidates = new ArrayList<>();
+        // The index already ruled out the indexed recipes that are not candidates
+        compileRecipes(recipeList, candidateIds::contains, candidates, compiledCandidates);
+
+        // check to see what recipes can be made or item subbed
+        List<RecipeWithSub> returnList = recipeMatchingEngine.match(candidates, compiledCandidates,
+                compiledInventory.get(), getSubstitutionLookup(compiledInventory.get()));
+
+        matchResultCache.put(user.getId(), stamp, returnList);
+        return returnList;
+    }
+
+    /**
+     * Get the recipes that are closest to being makeable with a user's inventory. Recipes are ranked by the number
+     * of missing ingredients and then by the missing quantity, minor items are never counted as missing.
+     * @param jwtToken: The user's jwt
+     * @param limit: The number of recipes to return
+     * @return A ResponseEntity with the closest recipes and the ids of the food items they are missing.
+     * */
+    public ResponseEntity<?> getClosestRecipes(String jwtToken, Integer limit) {
+        if (limit == null || limit <= 0) {
+            return new ResponseEntity<>("The limit must be greater than 0", HttpStatus.BAD_REQUEST);
+        }
+
         Optional<User> user = userService.getUserFromJwtToken(jwtToken);
-        List<InventoryItem> userInventory = null;
-        Optional<List<DislikedItem>> userPreferences = Optional.empty();
-        Optional<List<MinorItem>> userMinorItems = Optional.empty();
-
-        if (user.isPresent()) {
-            userInventory = userService.getInventory(user.get(), false);
-            userPreferences = dislikedItemRepository.findByUser(user.get());
-            userMinorItems = Optional.ofNullable(minorItemRepository.findMinorItemsByUser(user.get()));
-        }
-
-        if (userInventory != null) {
-            List<RecipeWithSub> returnList = new ArrayList<>();
-            RecipeWithSub recipeWithSub;
-            for (Recipe recipe : recipeList) {
-                recipeWithSub = new RecipeWithSub();
-                Optional<List<RecipeItem>> recipeItems = recipeItemRepository.findRecipeItemsByRecipe(recipe);
-                if (recipeItems.isPresent()) {
-                    // check to see what recipes can be made or item subbed
-                    if (canRecipeBeMade(userInventory, recipeItems.get(), userPreferences, userMinorItems, user.get(),
-                            recipeWithSub)) {
-                        setRecipeRatings(recipe);
-                        recipeWithSub.setRecipe(recipe);
-                        returnList.add(recipeWithSub);
-                    }
-                }
-            }
-            // Return the matched list
-            // Need to perform a bound check to make sure to not get array out of bounds
-            int startIndex = pageSettings.getPageNumber() * pageSettings.getPageSize();
-            int endIndex = startIndex + pageSettings.getPageSize();
+        if (user.isEmpty()) {
+            return new ResponseEntity<>("User could not be found", HttpStatus.NOT_FOUND);
+        }
 
-            if (startIndex >= recipeList.size()) {
-                return new ArrayList<>();
-            }
+        Optional<CompiledInventory> compiledInventory = compileInventory(user.get());
+        if (compiledInventory.isEmpty()) {
+            return new ResponseEntity<>(new ArrayList<>(), HttpStatus.OK);
+        }
 
-            if (endIndex > returnList.size()) {
-                endIndex = returnList.size();
-            }
+        List<Recipe> recipes = new ArrayList<>();
+        List<CompiledRecipe> compiledRecipes = new ArrayList<>();
+        compileRecipes(recipeRepository.findAllPublic(), id -> true, recipes, compiledRecipes);
 
-            return returnList.subList(startIndex, endIndex);
+        List<RecipeSuggestion> suggestions = recipeMatchingEngine.suggest(recipes, compiledRecipes,
+                compiledInventory.get(), Math.min(limit, MAX_SUGGESTIONS));
+        suggestions.forEach(suggestion -> setRecipeRatings(suggestion.getRecipe()));
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
 
+    /**
+     * Loads everything about a user that recipes are matched against.
+     * @param user: The user to load the inventory of.
+     * @return Optional including the compiled inventory, empty if the inventory could not be loaded.
+     * */
+    private Optional<CompiledInventory> compileInventory(User user) {
+        List<InventoryItem> userInventory = userService.getInventory(user);
+        if (userInventory == null) {
+            return Optional.empty();
         }
 
-        return new ArrayList<>();
+        Optional<List<DislikedItem>> userPreferences = dislikedItemRepository.findByUser(user);
+        Optional<List<MinorItem>> userMinorItems = Optional.ofNullable(minorItemRepository.findMinorItemsByUser(user));
+        return Optional.of(CompiledInventory.of(userInventory, userPreferences, userMinorItems));
+    }
+
+    /**
+     * Gets the compiled requirements of recipes, from the ingredient index when possible. Recipes the index does
+     * not know about yet have their items loaded in bulk.
+     * @param recipeList: The recipes to compile.
+     * @param keepIndexed: Decides which of the indexed recipes are kept.
+     * @param recipes: Gets the recipes that were kept.
+     * @param compiledRecipes: Gets the compiled requirements of the kept recipes, in the same order.
+     * */
+    private void compileRecipes(List<Recipe> recipeList, Predicate<Long> keepIndexed,
+                                List<Recipe> recipes, List<CompiledRecipe> compiledRecipes) {
+        List<Long> unindexedIds = new ArrayList<>();
+        for (Recipe recipe : recipeList) {
+            if (!recipeIngredientIndex.isIndexed(recipe.getId())) {
+                unindexedIds.add(recipe.getId());
+            }
+        }
+        Map<Long, List<RecipeItem>> unindexedItems = getRecipeItemsByRecipeIds(unindexedIds);
+
+        for (Recipe recipe : recipeList) {
+            Optional<CompiledRecipe> compiledRecipe = recipeIngredientIndex.getCompiledRecipe(recipe.getId());
+            if (compiledRecipe.isPresent()) {
+                if (!keepIndexed.test(recipe.getId())) {
+                    continue;
+                }
+            } else {
+                List<RecipeItem> recipeItems = unindexedItems.get(recipe.getId());
+                if (recipeItems == null) {
+                    continue;
+                }
+                compiledRecipe = Optional.of(CompiledRecipe.of(recipeItems));
+            }
+            recipes.add(recipe);
+            compiledRecipes.add(compiledRecipe.get());
+        }
+    }
+
+    /**
+     * Loads the recipe items of many recipes at once, using a few chunked queries instead of one per recipe.
+     * @param recipeIds: The ids of the recipes to load the items for.
+     * @return The recipe items grouped by recipe id. Recipes without items are left out.
+     * */
+    private Map<Long, List<RecipeItem>> getRecipeItemsByRecipeIds(List<Long> recipeIds) {
+        Map<Long, List<RecipeItem>> recipeItemsByRecipe = new HashMap<>();
+        for (int start = 0; start < recipeIds.size(); start += RECIPE_ITEM_BATCH_SIZE) {
+            List<Long> batch = recipeIds.subList(start, Math.min(start + RECIPE_ITEM_BATCH_SIZE, recipeIds.size()));
+            for (RecipeItem recipeItem : recipeItemRepository.findRecipeItemsByRecipeIds(batch)) {
+                recipeItemsByRecipe.computeIfAbsent(recipeItem.getRecipe().getId(), id -> new ArrayList<>())
+                        .add(recipeItem);
+            }
+        }
+        return recipeItemsByRecipe;
     }
 
     /**
@@ -247,6 +428,12 @@ public class RecipeService {
         recipe.get().setIsPublic(true);
         // Save recipe
         recipeRepository.save(recipe.get());
+        // Make the recipe available to inventory matching
+        recipeItemRepository.findRecipeItemsByRecipe(recipe.get())
+                .ifPresent(items -> recipeIngredientIndex.addRecipe(recipe.get().getId(), items));
+        recipeTextIndex.addRecipe(recipe.get());
+        matchResultCache.invalidateAll();
+        recipeItemViewCache.invalidateAfterCommit(recipe.get().getId());
         return new ResponseEntity<>("Recipe was published", HttpStatus.OK);
     }
 
@@ -299,8 +486,7 @@ public class RecipeService {
             List<FoodItem> recipeItemList = new ArrayList<>();
             boolean missingIngredient = false;
             for (PersonalRecipeItem recipeItem : ingredientList) {
-                // This could be optimized with the introduction of a cache
-                Optional<FoodItem> itemOpt = foodItemRepository.findById(recipeItem.getFoodItemId());
+                Optional<FoodItem> itemOpt = foodItemRegistry.findById(recipeItem.getFoodItemId());
                 if (itemOpt.isPresent()){
                     recipeItemList.add(itemOpt.get());
                 } else {
@@ -318,19 +504,21 @@ public class RecipeService {
             Recipe savedRecipe = recipeRepository.save(newRecipe);
 
             // If all the ingredients are present
+            List<RecipeItem> newRecipeItems = new ArrayList<>(recipeItemList.size());
             for (int i = 0; i < recipeItemList.size(); i++){
                 if (ingredientList.get(i).getQuantity() < 0) {
                     return new ResponseEntity<>("Invalid Recipe Quantity", HttpStatus.BAD_REQUEST);
                 }
                 // Create a recipe Item from the user input, created recipe, and found foodItem
-                RecipeItem newRecipeItem = new RecipeItemBuilder()
-                        .foodItem(foodItemRepository.findById(recipeItemList.get(i).getId()).get())
-                        .recipe(savedRecipe).measurementUnit(ingredientList.get(i).getUnit())
+                newRecipeItems.add(new RecipeItemBuilder()
+                        .foodItem(recipeItemList.get(i))
+                        .recipe(savedRecipe)
+                        .measurementUnit(ConversionUtils.toUnit(ingredientList.get(i).getUnit()))
                         .quantity(ingredientList.get(i).getQuantity())
-                        .build();
-                // Save the item
-                recipeItemRepository.save(newRecipeItem);
+                        .build());
             }
+            // Saved together so the inserts go out as JDBC batches
+            recipeItemRepository.saveAll(newRecipeItems);
 
             // Save the (user, recipe) combo in the personal recipe table
             PersonalRecipe personalRecipeSave = new PersonalRecipeBuilder().user(user).recipe(savedRecipe).build();
@@ -375,128 +563,33 @@ public class RecipeService {
         recipeItemRepository.deleteRecipeItemsByRecipe(recipeOpt.get());
         //Remove the recipe
         recipeRepository.delete(recipeOpt.get());
+        recipeIngredientIndex.removeRecipe(recipeOpt.get().getId());
+        recipeTextIndex.removeRecipe(recipeOpt.get().getId());
+        recipeItemViewCache.invalidateAfterCommit(recipeOpt.get().getId());
 
         return new ResponseEntity<>("Personal Recipe Successfully Removed", HttpStatus.OK);
     }
 
     /**
-     * This checks a recipe against a user recipe to see if the recipe can be made.
-     * @param userInventory: A given user's inventory.
-     * @param recipeItems: The items required for a given recipe.
-     * @param userPreferences: Optional including the disliked items of a user.
-     * @return A boolean representing if a recipe can be made with the current ingredients a user has.
+     * Used to find substitutes for the items a user is missing for a recipe.
+     * @param compiledInventory The inventory the substitutes need to be in.
+     * @return a SubstitutionLookup that returns the first substitute a user has.
      * */
-    private boolean canRecipeBeMade(List<InventoryItem> userInventory, List<RecipeItem> recipeItems,
-                                    Optional<List<DislikedItem>> userPreferences,
-                                    Optional<List<MinorItem>> minorItems,
-                                    User user, RecipeWithSub recipeWithSub) {
-        if (recipeItems.size() == 0) {
-            return false;
-        }
-
-        boolean containsSubItem = false;
-        for (RecipeItem recipeItem : recipeItems) {
-            long currentFoodItemId = recipeItem.getFoodItem().getId();
-            Float recipeQuantity = recipeItem.getQuantity();
-            // Loop through inventory to see if it exists
-            boolean found = false;
-            for (InventoryItem inventoryItem : userInventory) {
-                long currentInventoryItemId = inventoryItem.getFoodId().getId();
-                Float inventoryItemQuantity = inventoryItem.getQuantity();
-                if (currentFoodItemId == currentInventoryItemId && inventoryItemQuantity >= recipeQuantity) {
-                    // If the user has preferences
-                    if (userPreferences.isPresent()){
-                        // If the items is not a disliked on, we can say the user has the item
-                        if (isNotDislikedItem(recipeItem.getFoodItem(), userPreferences.get())){
-                            found = true;
-                            break;
-                        }
-                    }
-                    // If they do not
-                    else {
-                        found = true;
-                        break;
-                    }
-                // check if a sub item already exists for the recipe or if the item is a minor item
-                } else if (!containsSubItem &&
-                        (minorItems.isEmpty() || !isAMinorItem(recipeItem.getFoodItem(), minorItems.get()))) {
-                    // if there are no other sub items and this item is not minor
-                    Optional<List<FoodItem>> foodItemList = Optional.ofNullable(foodService.getSubItems(user, currentFoodItemId));
-                    if (foodItemList.isPresent() && foodItemList.get().size() > 0) {
-                        // mark item as subbed and add isSubbed to recipe
-                        containsSubItem = true;
-                        recipeWithSub.setIsSubbed(true);
-                        recipeWithSub.setSubbedId(foodItemList.get().get(0).getId());
-                        recipeWithSub.setFoodIdToReplace(currentFoodItemId);
-                        found = true;
-                        break;
-                    }
-                }
-            }
-
-            if (!found) {
-                // If the user has no minor items
-                if (minorItems.isEmpty()) {
-                    return false;
-                }
-
-                // if the user does not have this item labeled as minor
-                if (!isAMinorItem(recipeItem.getFoodItem(), minorItems.get())) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
+    private SubstitutionLookup getSubstitutionLookup(CompiledInventory compiledInventory) {
+        return missingFoodItemId -> substitutionGraph.findSubstitute(missingFoodItemId, compiledInventory);
     }
 
     /**
-     * Helper Method to check if a food item is a minor item for a user.
-     * @param foodItem The item to see if minor.
-     * @param minorItems A list of minor items for a given user.
-     * @return a boolean if the item is minor or not.
-     * */
-    private boolean isAMinorItem(FoodItem foodItem, List<MinorItem> minorItems) {
-        for (MinorItem minorItem : minorItems) {
-            if (foodItem.getId() == minorItem.getFoodItem().getId()){
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Helper method used to check if a food item is in the set of disliked items for a user.
-     * @param foodItem The food item to check
-     * @param dislikedItems A list of disliked items for a user
-     * @return a boolean if the item is dislike by as user.
-     * */
-    private boolean isNotDislikedItem(FoodItem foodItem, List<DislikedItem> dislikedItems) {
-        for (DislikedItem dislikedItem : dislikedItems){
-            // If the food item has the same id, it has been marked as disliked
-            if (foodItem.getId() == dislikedItem.getFoodItem().getId()){
-                return false;
-            }
-        }
-        // If the food item was not found in the users disliked items
-        return true;
-    }
-
-    /**
-     * A method used to set the average rating score for a recipes and get the number of reviews for a recipe
+     * A method used to set the average rating score for a recipes and get the number of reviews for a recipe. Both
+     * come from the review aggregates stored on the recipe itself.
      * @param recipe the recipe to find info for.
      * */
     private void setRecipeRatings (Recipe recipe){
-        Optional<Long> count = recipeRatingRepository.countByRecipeId(recipe.getId());
-        count.ifPresentOrElse(
-                recipe::setReviewCount,
-                () -> recipe.setReviewCount(0L)
-        );
-        Optional<Float> rating = recipeRatingRepository.getAverageReviewByRecipeId(recipe.getId());
-        rating.ifPresentOrElse(
-                recipe::setAvgRating,
-                () -> recipe.setAvgRating(0F)
-        );
+        long reviewCount = recipe.getReviewCount() == null ? 0L : recipe.getReviewCount();
+        long starTotal = recipe.getStarTotal() == null ? 0L : recipe.getStarTotal();
+        recipe.setReviewCount(reviewCount);
+        // Rounded to one decimal place
+        recipe.setAvgRating(reviewCount == 0 ? 0F : Math.round(starTotal * 10F / reviewCount) / 10F);
     }
 
     /**
@@ -515,31 +608,46 @@ public class RecipeService {
     }
 
     /**
-     * Get the recipe items by the recipe id.
+     * Used to get the public recipes one page at a time with a cursor instead of a page number, so deep pages are as
+     * cheap as the first one.
+     * @param cursorSetting the cursor returned with the previous page (none for the first page) and the page size.
+     * @return a response entity with the page and the cursor for the next page, or an error.
+     * */
+    public ResponseEntity<?> getAllRecipesAfter(CursorSetting cursorSetting) {
+        return findRecipesAfter(cursorSetting, recipeRepository::findAllPublicAfter);
+    }
+
+    /**
+     * Get the recipe items by the recipe id, converted to the units the user wants. The converted lists are cached
+     * per recipe and unit system, a cached list is sent without reading the recipe or its items. Only an anonymous
+     * request skips the database entirely, an authenticated one still has its user loaded once by JwtAuthFilter.
      * @param id the id the recipe you'd like items for.
      * @param jwtToken the passed JWT for a request.
      * @return A response entity with the status of the operation.
      * */
     public ResponseEntity<?> getRecipeItemsById(Long id, String jwtToken) {
+        // Anonymous users and users without preferences get metric units
+        boolean isMetric = true;
+        if (jwtToken != null && !jwtToken.equals("")) {
+            Optional<User> userOpt = userService.getUserFromJwtToken(jwtToken);
+            if (userOpt.isPresent()) {
+                isMetric = userService.isMetric(userOpt.get());
+            }
+        }
+
+        Optional<List<RecipeItemView>> cachedViews = recipeItemViewCache.get(id, isMetric);
+        if (cachedViews.isPresent()) {
+            return new ResponseEntity<>(cachedViews.get(), HttpStatus.OK);
+        }
+
+        long generation = recipeItemViewCache.currentGeneration();
         Optional<Recipe> recipe = recipeRepository.findById(id);
         if (recipe.isPresent()){
             Optional<List<RecipeItem>> recipeItemList = recipeItemRepository.findRecipeItemsByRecipe(recipe.get());
             if (recipeItemList.isPresent()){
-                if (jwtToken == null || jwtToken.equals("")) {
-                    return new ResponseEntity<>(recipeItemList, HttpStatus.OK);
-                }
-                Optional<User> userOpt = userService.getUserFromJwtToken(jwtToken);
-                if (userOpt.isEmpty()) {
-                    return new ResponseEntity<>(recipeItemList, HttpStatus.OK);
-                }
-                Optional<UserPreference> userPreference = userPreferenceRepository.findByUser(userOpt.get());
-                if (userPreference.isEmpty()) {
-                    ConversionUtils.convertRecipeItems(recipeItemList.get(), true);
-                    return new ResponseEntity<>(recipeItemList, HttpStatus.OK);
-                }
-
-                ConversionUtils.convertRecipeItems(recipeItemList.get(), userPreference.get().isMetric());
-                return new ResponseEntity<>(recipeItemList, HttpStatus.OK);
+                List<RecipeItemView> views = ConversionUtils.toRecipeItemViews(recipeItemList.get(), isMetric);
+                recipeItemViewCache.put(id, isMetric, generation, views);
+                return new ResponseEntity<>(views, HttpStatus.OK);
             }
 
             return new ResponseEntity<>("No Recipe Items Found", HttpStatus.NO_CONTENT);
@@ -568,6 +676,23 @@ public class RecipeService {
         return DEFAULT_PAGE;
     }
 
+    /**
+     * Helper method used to extract the cursor settings from a request.
+     * @param objs the object that contains the cursor settings.
+     * @return CursorSetting Object with the passed info, the first page of the default size if it can't be parsed.
+     * */
+    public CursorSetting getCursorSettings(HashMap<String, HashMap<String, String>> objs) {
+        CursorSetting cursorSetting = new CursorSetting();
+        cursorSetting.setPageSize(DEFAULT_PAGE.getPageSize());
+        try {
+            cursorSetting.setAfter(objs.get("page").get("after"));
+            cursorSetting.setPageSize(Integer.parseInt(objs.get("page").get("pageSize")));
+        } catch (Exception e) {
+            LOGGER.error("Issue parsing cursor settings: {} {}", e.getMessage(), e);
+        }
+        return cursorSetting;
+    }
+
     /**
      * Helper method used to get the recipe query from a request.
      * @param objs the object that contains the recipe query data.
@@ -623,6 +748,43 @@ public class RecipeService {
         return returnMap;
     }
 
+    /**
+     * Used to answer a recipe search from the text index. Only the recipes on the requested page are loaded.
+     * @param value the text to search for.
+     * @param page the page to return.
+     * @return a map with the number of pages and the recipes on the page, best match first.
+     * */
+    private HashMap<String, Object> searchTextIndex(String value, Pageable page) {
+        RecipeTextIndex.SearchResult searchResult = recipeTextIndex.search(value,
+                (int) page.getOffset(), page.getPageSize());
+
+        List<Recipe> recipeList = findRecipesInOrder(searchResult.getRecipeIds());
+        recipeList.forEach(this::setRecipeRatings);
+
+        HashMap<String, Object> returnMap = new HashMap<>();
+        returnMap.put("count", (searchResult.getTotalMatches() + page.getPageSize() - 1) / page.getPageSize());
+        returnMap.put("results", recipeList);
+        return returnMap;
+    }
+
+    /**
+     * Loads recipes found in the text index.
+     * @param recipeIds the ids of the recipes.
+     * @return the recipes in the order of recipeIds, a recipe that was deleted since it was found is left out.
+     * */
+    private List<Recipe> findRecipesInOrder(List<Long> recipeIds) {
+        Map<Long, Recipe> recipesById = new HashMap<>();
+        recipeRepository.findAllById(recipeIds).forEach(recipe -> recipesById.put(recipe.getId(), recipe));
+        List<Recipe> recipeList = new ArrayList<>(recipeIds.size());
+        for (Long recipeId : recipeIds) {
+            Recipe recipe = recipesById.get(recipeId);
+            if (recipe != null) {
+                recipeList.add(recipe);
+            }
+        }
+        return recipeList;
+    }
+
     /**
      * Used to get recipes from the database
      * @param query: DTO for querying the db
@@ -643,6 +805,10 @@ public class RecipeService {
                 if (specMatch.find()) {
                     return new ResponseEntity<>("Invalid Query", HttpStatus.BAD_REQUEST);
                 }
+                if (recipeTextIndex.isBuilt()) {
+                    return new ResponseEntity<>(searchTextIndex(query.getValue(), page), HttpStatus.OK);
+                }
+                // The LIKE query is only used until the text index has been built
                 Page<Recipe> results = recipeRepository.findRecipeLike(query.getValue(), page);
                 results.forEach(this::setRecipeRatings);
                 HashMap<String, Object> returnMap = createReturnMap(results);
@@ -661,6 +827,76 @@ public class RecipeService {
         }
     }
 
+    /**
+     * Used to search recipes one page at a time with a cursor. Unlike getQueriedRecipes this never counts the matches,
+     * the response holds the cursor of the next page instead of the number of pages. The matches come in id order, not
+     * ranked.
+     * @param query: DTO for querying the db
+     * @param cursorSetting: DTO with the cursor of the previous page and the page size
+     * @return: a response entity representing the status of the operation
+     * */
+    public ResponseEntity<?> getQueriedRecipesAfter(RecipeQuery query, CursorSetting cursorSetting) {
+        QueryMethod method = queryMap.get(query.getMethod().toLowerCase());
+
+        if (method == null) {
+            return new ResponseEntity<>("Invalid Method", HttpStatus.BAD_REQUEST);
+        }
+        switch (method) {
+            case NAME:
+            case DESC: {
+                Matcher specMatch = SPECIALCHARREGEX.matcher(query.getValue());
+                if (specMatch.find()) {
+                    return new ResponseEntity<>("Invalid Query", HttpStatus.BAD_REQUEST);
+                }
+                // The same matches as getQueriedRecipes, in id order instead of ranked
+                if (recipeTextIndex.isBuilt()) {
+                    return findRecipesAfter(cursorSetting, (lastRecipeId, limit) -> findRecipesInOrder(
+                            recipeTextIndex.searchAfter(query.getValue(), lastRecipeId, limit)));
+                }
+                return findRecipesAfter(cursorSetting, (lastRecipeId, limit) ->
+                        recipeRepository.findRecipeLikeAfter(query.getValue(), lastRecipeId, limit));
+            }
+            case DEFAULT: {
+                RecipeCursorPage cursorPage = new RecipeCursorPage();
+                cursorPage.setResults(DEFAULT_RECIPE_LIST);
+                return new ResponseEntity<>(cursorPage, HttpStatus.OK);
+            }
+            default: {
+                // This is unreachable in theory
+                return new ResponseEntity<>("Invalid Method", HttpStatus.BAD_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * Used to load a single page of recipes for a cursor.
+     * @param cursorSetting the cursor of the previous page and the page size.
+     * @param query the query to run, it is passed the id to continue after and the maximum number of rows.
+     * @return a response entity with the page or an error.
+     * */
+    private ResponseEntity<?> findRecipesAfter(CursorSetting cursorSetting,
+                                               BiFunction<Long, Integer, List<Recipe>> query) {
+        Optional<Long> lastRecipeId = RecipeCursor.decode(cursorSetting.getAfter());
+        if (lastRecipeId.isEmpty()) {
+            return new ResponseEntity<>("Invalid Cursor", HttpStatus.BAD_REQUEST);
+        }
+        if (cursorSetting.getPageSize() < 1) {
+            return new ResponseEntity<>("Invalid Page Size", HttpStatus.BAD_REQUEST);
+        }
+        int pageSize = Math.min(cursorSetting.getPageSize(), MAX_CURSOR_PAGE_SIZE);
+
+        // One extra row is loaded to know if there is a next page without counting
+        List<Recipe> results = new ArrayList<>(query.apply(lastRecipeId.get(), pageSize + 1));
+        RecipeCursorPage cursorPage = new RecipeCursorPage();
+        if (results.size() > pageSize) {
+            results = new ArrayList<>(results.subList(0, pageSize));
+            cursorPage.setNextCursor(RecipeCursor.encode(results.get(pageSize - 1).getId()));
+        }
+        results.forEach(this::setRecipeRatings);
+        cursorPage.setResults(results);
+        return new ResponseEntity<>(cursorPage, HttpStatus.OK);
+    }
+
     /**
      * Updates recipeReview with inputted review Item
      * @param reviewItem: DTO for updating the recipe review.
@@ -670,6 +906,7 @@ public class RecipeService {
         Optional<RecipeReview> recipeReview = recipeRatingRepository.findById(reviewItem.getReviewId());
 
         if(recipeReview.isPresent()) {
+            Integer previousStars = recipeReview.get().getStars();
             recipeReview.get().setReview(reviewItem.getReview());
 
             try {
@@ -678,8 +915,16 @@ public class RecipeService {
                 return new ResponseEntity<>("Stars could not be set", HttpStatus.BAD_REQUEST);
             }
 
+            // The review and the star total of its recipe are written together or not at all
             try {
-                recipeRatingRepository.save(recipeReview.get());
+                transactionTemplate.executeWithoutResult(status -> {
+                    recipeRatingRepository.save(recipeReview.get());
+                    Recipe recipe = recipeReview.get().getRecipe();
+                    if (recipe != null) {
+                        long starDifference = reviewItem.getStars() - (previousStars == null ? 0 : previousStars);
+                        recipeRepository.adjustStarTotal(recipe.getId(), starDifference);
+                    }
+                });
             } catch(Exception e) {
                 return new ResponseEntity<>("Review failed to update", HttpStatus.BAD_REQUEST);
             }
@@ -704,18 +949,25 @@ public class RecipeService {
 
         recipeReview.setReview(reviewItem.getReview());
         recipeReview.setRecipe(recipeRepository.findById(reviewItem.getRecipeId()));
-        recipeReview.setUser(userService.getUserFromJwtToken(jwtToken).get());
+        recipeReview.setUser(userOpt.get());
 
         try {
             recipeReview.setStars(reviewItem.getStars());
         } catch(Exception e) {
             return new ResponseEntity<>("Stars could not be set", HttpStatus.BAD_REQUEST);
         }
+        // The review and the aggregates of its recipe are written together or not at all
         try {
-            recipeRatingRepository.save(recipeReview);
+            transactionTemplate.executeWithoutResult(status -> {
+                recipeRatingRepository.save(recipeReview);
+                if (recipeReview.getRecipe() != null) {
+                    recipeRepository.addReviewToAggregates(recipeReview.getRecipe().getId(), reviewItem.getStars());
+                }
+            });
         } catch(Exception e) {
             return new ResponseEntity<>("Review failed to add", HttpStatus.BAD_REQUEST);
         }
+
         return new ResponseEntity<>("Review was created", HttpStatus.OK);
     }
 
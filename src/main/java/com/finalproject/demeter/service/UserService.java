@@ -1,23 +1,32 @@
 package com.finalproject.demeter.service;
 
+import com.finalproject.demeter.cache.FoodItemRegistry;
+import com.finalproject.demeter.cache.MatchResultCache;
+import com.finalproject.demeter.cache.UnitPreferenceCache;
+import com.finalproject.demeter.config.AuthenticatedUser;
 import com.finalproject.demeter.conversion.ConversionUtils;
 import com.finalproject.demeter.dao.*;
+import com.finalproject.demeter.dto.InventoryItemView;
 import com.finalproject.demeter.dto.Measurements;
 import com.finalproject.demeter.dto.SignUpDto;
 import com.finalproject.demeter.dto.UpdateInventory;
 import com.finalproject.demeter.repository.*;
+import com.finalproject.demeter.units.Unit;
 import com.finalproject.demeter.util.*;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 
@@ -27,12 +36,17 @@ public class UserService implements UserDetailsService {
     private PasswordEncoder passwordEncoder;
     private UserRepository userRepository;
     private PasswordTokenRepository passwordTokenRepository;
-    private FoodItemRepository foodItemRepository;
+    private FoodItemRegistry foodItemRegistry;
     private InventoryRepository inventoryRepository;
+    private InventoryUpsertRepository inventoryUpsertRepository;
     private MinorItemRepository minorItemRepository;
     private DislikedItemRepository dislikedItemRepository;
     private UserPreferenceRepository userPreferenceRepository;
+    private MatchResultCache matchResultCache;
+    private UnitPreferenceCache unitPreferenceCache;
+    private TransactionTemplate transactionTemplate;
     private Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    private static final int MAX_INVENTORY_UPDATES = 500;
 
     private final Set<SimpleGrantedAuthority> authorities = new HashSet<>(){{
         add(new SimpleGrantedAuthority("user"));
@@ -44,19 +58,25 @@ public class UserService implements UserDetailsService {
 
     @Autowired
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
-                       PasswordTokenRepository passwordTokenRepository, FoodItemRepository foodItemRepository,
+                       PasswordTokenRepository passwordTokenRepository, FoodItemRegistry foodItemRegistry,
                        InventoryRepository inventoryRepository, MinorItemRepository minorItemRepository,
                        JwtUtil jwtUtil, DislikedItemRepository dislikedItemRepository,
-                       UserPreferenceRepository userPreferenceRepository){
+                       UserPreferenceRepository userPreferenceRepository, MatchResultCache matchResultCache,
+                       InventoryUpsertRepository inventoryUpsertRepository,
+                       UnitPreferenceCache unitPreferenceCache, TransactionTemplate transactionTemplate){
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.passwordTokenRepository = passwordTokenRepository;
-        this.foodItemRepository = foodItemRepository;
+        this.foodItemRegistry = foodItemRegistry;
         this.inventoryRepository = inventoryRepository;
         this.minorItemRepository = minorItemRepository;
         this.jwtUtil = jwtUtil;
         this.dislikedItemRepository = dislikedItemRepository;
         this.userPreferenceRepository = userPreferenceRepository;
+        this.matchResultCache = matchResultCache;
+        this.inventoryUpsertRepository = inventoryUpsertRepository;
+        this.unitPreferenceCache = unitPreferenceCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -102,6 +122,7 @@ public class UserService implements UserDetailsService {
             // Default User Preferences
             UserPreference userPreference = new UserPreferencesBuilder().user(user).isMetric(true).build();
             userPreferenceRepository.save(userPreference);
+            unitPreferenceCache.invalidate(user.getId());
             return new ResponseEntity<>("User preferences were created", HttpStatus.OK);
         }
 
@@ -111,6 +132,7 @@ public class UserService implements UserDetailsService {
             case unit -> {
                 userPreference.setMetric(!userPreference.isMetric());
                 userPreferenceRepository.save(userPreference);
+                unitPreferenceCache.invalidate(user.getId());
                 yield new ResponseEntity<>("User Preferences Successfully saved", HttpStatus.OK);
             }
             default -> new ResponseEntity<>("Not a valid field", HttpStatus.BAD_REQUEST);
@@ -182,11 +204,12 @@ public class UserService implements UserDetailsService {
         Optional<User> user = getUserFromJwtToken(jwt);
         if (user.isPresent()) {
             if (foodItemId != null) {
-                Optional<FoodItem> foodItem = foodItemRepository.findById(foodItemId);
+                Optional<FoodItem> foodItem = foodItemRegistry.findById(foodItemId);
                 if (foodItem.isPresent()){
                     DislikedItem dislikedItem = new DislikedItemBuilder().user(user.get())
                             .foodItem(foodItem.get()).build();
                     dislikedItemRepository.save(dislikedItem);
+                    matchResultCache.invalidateUser(user.get().getId());
                     return new ResponseEntity<>("Preference Saved", HttpStatus.OK);
                 } else {
                     String errorMessage = String.format("FoodItem with id %d could not be found", foodItemId);
@@ -231,6 +254,7 @@ public class UserService implements UserDetailsService {
                 for (DislikedItem item : dislikedItems) {
                     if (item.getFoodItem().getId() == foodItemId) {
                         dislikedItemRepository.delete(item);
+                        matchResultCache.invalidateUser(user.get().getId());
                         return new ResponseEntity<>("Successful Removal", HttpStatus.OK);
                     }
                 }
@@ -254,25 +278,49 @@ public class UserService implements UserDetailsService {
         if (jwtToken == null || jwtToken.length() < 8) {
             return Optional.empty();
         }
+        // The filter already resolved the user of this request, only tokens it did not see are parsed again
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                && principal.isAuthenticatedWith(jwtToken.substring(7))) {
+            return Optional.of(principal.getUser());
+        }
         String email = jwtUtil.extractEmail(jwtToken.substring(7));
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Verifies a JWT and loads the user it was issued to, used once per request to authenticate it.
+     * @param jwtToken the token without the "Bearer" prefix.
+     * @return Optional including the principal of the request, empty if the token is expired or the user is gone.
+     * */
+    public Optional<AuthenticatedUser> loadUserFromJwtToken(String jwtToken) {
+        Claims claims = jwtUtil.extractAllClaims(jwtToken);
+        String email = claims.getSubject();
+        if (email == null || jwtUtil.isExpired(claims)) {
+            return Optional.empty();
+        }
+        // Tokens issued before the id was added to them are looked up by email
+        Optional<Long> userId = jwtUtil.extractUserId(claims);
+        Optional<User> user = userId.isPresent() ? userRepository.findById(userId.get())
+                : userRepository.findByEmail(email);
+        return user.filter(found -> email.equalsIgnoreCase(found.getEmail()))
+                .map(found -> new AuthenticatedUser(found, jwtToken, authorities));
+    }
+
     /**
      * Takes a username or email and tries to find the associated user.
      * @param usernameOrEmail The username or email of the desired user.
-     * @return UserDetails object for the found user
+     * @return AuthenticatedUser for the found user
      * */
-    public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+    public AuthenticatedUser loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
         String finalUsernameOrEmail = usernameOrEmail.toLowerCase();
         User user = userRepository.findByUsernameOrEmail(finalUsernameOrEmail, finalUsernameOrEmail)
                 .orElseThrow(() ->
                         new UsernameNotFoundException("User not found with username or email: " + finalUsernameOrEmail)
                 );
 
-        return new org.springframework.security.core.userdetails.User(user.getEmail(),
-                user.getPassword(),
-                authorities);
+        // Carries the user itself, so logging in does not need to look it up again
+        return new AuthenticatedUser(user, null, authorities);
     }
 
     /**
@@ -339,29 +387,12 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Verify that a password reset token is valid.
-     * @param token: the password reset token send by the user
-     * @return a boolean representing if the user's token is valid
-     * */
-    public boolean isTokenValid(String token) {
-        Optional<PasswordResetToken> pToken = passwordTokenRepository.findByToken(token);
-        if (pToken.isPresent()){
-            return !isTokenExpired(pToken.get());
-        }
-        return false;
-    }
-
-    /**
-     * Retrieve the user that is associated with a password reset token.
+     * Looks up a password reset token together with its user.
      * @param token: the password reset token send by the user
-     * @return an optional of the user if one was found
+     * @return an optional of the token if it exists and is not expired
      * */
-    public Optional<User> findUserByToken(String token){
-        Optional<PasswordResetToken> pToken = passwordTokenRepository.findByToken(token);
-        if (pToken.isPresent()) {
-            return Optional.of(pToken.get().getUser());
-        }
-        return Optional.empty();
+    public Optional<PasswordResetToken> findValidPasswordResetToken(String token) {
+        return passwordTokenRepository.findByToken(token).filter(pToken -> !isTokenExpired(pToken));
     }
 
     /**
@@ -385,7 +416,7 @@ public class UserService implements UserDetailsService {
         Optional<User> userOpt = getUserFromJwtToken(jwtToken);
         try {
             userOpt.ifPresentOrElse(user -> {
-                Optional<FoodItem> foodItem = foodItemRepository.findById(itemId);
+                Optional<FoodItem> foodItem = foodItemRegistry.findById(itemId);
                 if (foodItem.isPresent()) {
                     MinorItem newItem = new MinorItemBuilder().user(user).foodItem(foodItem.get()).build();
                     if (mark.equalsIgnoreCase("add")) {
@@ -406,6 +437,7 @@ public class UserService implements UserDetailsService {
             }, () -> {
                 throw new RuntimeException("User not found");
             });
+            matchResultCache.invalidateUser(userOpt.get().getId());
             return new ResponseEntity<>("Item Updated", HttpStatus.OK);
         } catch (Exception e) {
             LOGGER.error("Save Error: " + e.getMessage());
@@ -427,96 +459,197 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Used to add, remove, decrement, etc. a users inventory.
+     * Used to add, remove, decrement, etc. a users inventory. The quantity is changed by a single statement in the
+     * database, so concurrent changes to the same item all count. There is no surrounding transaction, every statement
+     * commits on its own, so the cached matches are only dropped once the change is visible to other requests.
      * @param user: the user whose inventory needs updated
      * @param inventoryItem: the representation of the item that needs to update the inventory
      * @return a response entity that signifies the status of the operation
      * */
     public ResponseEntity<String> updateInventory(User user, UpdateInventory inventoryItem) {
-        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user);
-
-        if (inventoryItem.getUnit().equals("")) {
+        if (inventoryItem.getUnit() == null || inventoryItem.getUnit().equals("")) {
             return new ResponseEntity<>("Invalid Unit", HttpStatus.BAD_REQUEST);
         }
 
-        InventoryItem foundItem = null;
-        // This could likely be optimized
-        for (InventoryItem item : inventory) {
-            if (item.getFoodId().getId() == inventoryItem.getFoodId()) {
-                foundItem = item;
-                break;
-            }
-        }
-
         // Conversion of the inventory item into standard units
         Measurements conversionMeasurements = ConversionUtils
                 .convertToStandardUnit(inventoryItem.getUnit(), inventoryItem.getQuantity());
-        inventoryItem.setUnit(conversionMeasurements.getUnit());
-        inventoryItem.setQuantity(conversionMeasurements.getQuantity());
-
-        if (foundItem != null) {
-            Float currentQuantity = foundItem.getQuantity();
-            if (currentQuantity + inventoryItem.getQuantity() < 0.000001) {
-                inventoryRepository.delete(foundItem);
-                return new ResponseEntity<>("Inventory Item was Removed", HttpStatus.OK);
-            } else {
-                // update the inventory
-                foundItem.setQuantity(currentQuantity + inventoryItem.getQuantity());
-            }
-        } else {
-            // The user does not have the item in their current inventory
-            if (inventoryItem.getQuantity() < -0.000001) { // and the added value is invalid
-                return new ResponseEntity<>("Invalid Quantity", HttpStatus.BAD_REQUEST);
-            }
-            Optional<FoodItem> newItem = foodItemRepository.findById(inventoryItem.getFoodId());
-            if (newItem.isEmpty()) {
+        long foodId = inventoryItem.getFoodId();
+        float quantity = conversionMeasurements.getQuantity();
+
+        if (quantity >= 0) {
+            if (foodItemRegistry.findById(foodId).isEmpty()) {
                 return new ResponseEntity<>("The given item does not exist", HttpStatus.NO_CONTENT);
             }
-            // This could be replaced with a builder
-            foundItem = new InventoryItem();
-            foundItem.setUserId(user);
-            foundItem.setFoodId(newItem.get());
-            foundItem.setQuantity(inventoryItem.getQuantity());
+            inventoryUpsertRepository.addQuantity(user.getId(), foodId, quantity,
+                    conversionMeasurements.getStandardUnit());
+            matchResultCache.invalidateUser(user.getId());
+            return new ResponseEntity<>("Inventory was saved", HttpStatus.OK);
         }
 
-        // Possible check to see if this is null or empty
-        foundItem.setUnit(inventoryItem.getUnit());
-        inventoryRepository.save(foundItem);
+        Optional<Float> remaining = inventoryUpsertRepository
+                .addToExistingQuantity(user.getId(), foodId, quantity, conversionMeasurements.getStandardUnit());
+        if (remaining.isEmpty()) {
+            // The user does not have the item in their current inventory and the added value is invalid
+            return new ResponseEntity<>("Invalid Quantity", HttpStatus.BAD_REQUEST);
+        }
+        boolean removed = remaining.get() < 0.000001
+                && inventoryUpsertRepository.deleteIfBelow(user.getId(), foodId, 0.000001F);
+        matchResultCache.invalidateUser(user.getId());
+        if (removed) {
+            return new ResponseEntity<>("Inventory Item was Removed", HttpStatus.OK);
+        }
         return new ResponseEntity<>("Inventory was saved", HttpStatus.OK);
     }
 
     /**
-     * Get the inventory of a user.
-     * @param user: the user who needs their inventory retrieved.
-     * @return a list of the user's inventory items
+     * Used to apply many inventory changes at once. The changes are checked in order against the inventory (so
+     * several changes to the same food item add up), then the net change of every food item is applied with the same
+     * single statement updates as updateInventory, in one transaction. Concurrent changes to the same items all
+     * count. Nothing is written if any of the changes is invalid.
+     * @param user: the user whose inventory needs updated
+     * @param inventoryItems: the changes to apply, each works the same as in updateInventory
+     * @return a response entity with the updated and converted inventory, or the error of the first invalid change
      * */
-    public List<InventoryItem> getInventory(User user, boolean convert) {
-        //TODO: Outbound Conversion so user gets inventory in the units they want
-        Optional<UserPreference> userPreference = userPreferenceRepository.findByUser(user);
-        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user);
-
-        if (convert) {
-            if (userPreference.isEmpty()) {
-                // default to metric conversion
-                ConversionUtils.convertInventory(inventory, true);
+    public ResponseEntity<?> updateInventory(User user, List<UpdateInventory> inventoryItems) {
+        if (inventoryItems == null || inventoryItems.isEmpty()) {
+            return new ResponseEntity<>("No inventory changes were passed", HttpStatus.BAD_REQUEST);
+        }
+        if (inventoryItems.size() > MAX_INVENTORY_UPDATES) {
+            String errorMessage = String.format("At most %d inventory changes can be passed", MAX_INVENTORY_UPDATES);
+            return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+        }
+
+        Map<Long, InventoryItem> inventory = new LinkedHashMap<>();
+        for (InventoryItem item : inventoryRepository.findInventoryItemByUserId(user)) {
+            inventory.put(item.getFoodId().getId(), item);
+        }
+
+        // The changes are worked out on copies of the quantities, the loaded inventory items are never changed
+        Map<Long, Float> quantities = new LinkedHashMap<>();
+        inventory.forEach((foodId, item) -> quantities.put(foodId, item.getQuantity()));
+        Map<Long, Unit> changedUnits = new HashMap<>();
+        Set<Long> newFoodIds = new HashSet<>();
+
+        for (UpdateInventory inventoryItem : inventoryItems) {
+            if (inventoryItem.getFoodId() == null || inventoryItem.getQuantity() == null) {
+                return new ResponseEntity<>("Invalid Inventory Change", HttpStatus.BAD_REQUEST);
+            }
+            if (inventoryItem.getUnit() == null || inventoryItem.getUnit().equals("")) {
+                return new ResponseEntity<>("Invalid Unit", HttpStatus.BAD_REQUEST);
+            }
+            Measurements conversionMeasurements = ConversionUtils
+                    .convertToStandardUnit(inventoryItem.getUnit(), inventoryItem.getQuantity());
+            long foodId = inventoryItem.getFoodId();
+
+            Float currentQuantity = quantities.get(foodId);
+            if (currentQuantity != null) {
+                float quantity = currentQuantity + conversionMeasurements.getQuantity();
+                if (quantity < 0.000001) {
+                    quantities.remove(foodId);
+                    changedUnits.remove(foodId);
+                    continue;
+                }
+                quantities.put(foodId, quantity);
             } else {
-                ConversionUtils.convertInventory(inventory, userPreference.get().isMetric());
+                if (conversionMeasurements.getQuantity() < -0.000001) {
+                    return new ResponseEntity<>("Invalid Quantity", HttpStatus.BAD_REQUEST);
+                }
+                if (!inventory.containsKey(foodId) && !newFoodIds.contains(foodId)) {
+                    if (foodItemRegistry.findById(foodId).isEmpty()) {
+                        return new ResponseEntity<>("The given item does not exist", HttpStatus.NO_CONTENT);
+                    }
+                    newFoodIds.add(foodId);
+                }
+                quantities.put(foodId, conversionMeasurements.getQuantity());
             }
+            changedUnits.put(foodId, conversionMeasurements.getStandardUnit());
         }
 
-        return inventory;
+        // Every change is valid, the net change of each food item is applied on top of whatever is in the database now
+        ResponseEntity<String> error = transactionTemplate.execute(status -> {
+            Set<Long> foodIds = new LinkedHashSet<>(inventory.keySet());
+            foodIds.addAll(quantities.keySet());
+            for (long foodId : foodIds) {
+                InventoryItem loadedItem = inventory.get(foodId);
+                float loadedQuantity = loadedItem == null ? 0F : loadedItem.getQuantity();
+                Float quantity = quantities.get(foodId);
+                boolean removed = quantity == null;
+                if (removed && loadedItem == null) {
+                    // Added and taken out again by the same batch
+                    continue;
+                }
+                if (!removed && !changedUnits.containsKey(foodId)) {
+                    continue;
+                }
+
+                float difference = (removed ? 0F : quantity) - loadedQuantity;
+                Unit unit = removed ? loadedItem.getUnit() : changedUnits.get(foodId);
+                if (difference >= 0) {
+                    inventoryUpsertRepository.addQuantity(user.getId(), foodId, difference, unit);
+                    continue;
+                }
+                Optional<Float> remaining = inventoryUpsertRepository
+                        .addToExistingQuantity(user.getId(), foodId, difference, unit);
+                if (remaining.isEmpty()) {
+                    // The item was removed since the inventory was loaded
+                    status.setRollbackOnly();
+                    return new ResponseEntity<>("Invalid Quantity", HttpStatus.BAD_REQUEST);
+                }
+                if (remaining.get() < 0.000001) {
+                    inventoryUpsertRepository.deleteIfBelow(user.getId(), foodId, 0.000001F);
+                }
+            }
+            return null;
+        });
+        if (error != null) {
+            return error;
+        }
+        matchResultCache.invalidateUser(user.getId());
+
+        List<InventoryItemView> response = ConversionUtils.toInventoryViews(
+                inventoryRepository.findInventoryItemByUserId(user), isMetric(user));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Get the inventory of a user.
+     * @param user: the user who needs their inventory retrieved.
+     * @return a list of the user's inventory items, in standard units
+     * */
+    public List<InventoryItem> getInventory(User user) {
+        return inventoryRepository.findInventoryItemByUserId(user);
     }
 
     /**
-     * Remove a password reset token after it's been used.
-     * @param token passwordResetToken.
+     * Get the inventory of a user in the units they want, the inventory items themselves are not changed.
+     * @param user: the user who needs their inventory retrieved.
+     * @return a list of views of the user's inventory items
      * */
-    public void removePasswordResetToken(String token) {
-        Optional<PasswordResetToken> passwordResetToken = passwordTokenRepository.findByToken(token);
-        if (passwordResetToken.isEmpty()) {
-            return;
+    public List<InventoryItemView> getInventoryView(User user) {
+        return ConversionUtils.toInventoryViews(inventoryRepository.findInventoryItemByUserId(user), isMetric(user));
+    }
+
+    /**
+     * @param user: the user whose unit system is needed.
+     * @return true if the user wants metric units, which is the default for users without preferences.
+     * */
+    public boolean isMetric(User user) {
+        Optional<Boolean> cached = unitPreferenceCache.get(user.getId());
+        if (cached.isPresent()) {
+            return cached.get();
         }
+        long generation = unitPreferenceCache.currentGeneration();
+        boolean isMetric = userPreferenceRepository.findByUser(user).map(UserPreference::isMetric).orElse(true);
+        unitPreferenceCache.put(user.getId(), generation, isMetric);
+        return isMetric;
+    }
 
-        passwordTokenRepository.delete(passwordResetToken.get());
+    /**
+     * Remove a password reset token that was already looked up after it's been used.
+     * @param passwordResetToken the used token.
+     * */
+    public void removePasswordResetToken(PasswordResetToken passwordResetToken) {
+        passwordTokenRepository.delete(passwordResetToken);
     }
 }
@@ -1,22 +1,34 @@
 package com.finalproject.demeter.units;
 
+import java.util.List;
+
 public enum LengthUnit implements Unit {
-    M, IN, FT, YRD, MI, DEFAULT;
+    M("m", "meter", "meters"), // Default Value
+    IN("in", "inch", "inches"),
+    FT("ft", "feet"),
+    YRD("yd", "yrd", "yrds", "yard", "yards"),
+    MI("mi", "mile", "miles"),
+    DEFAULT;
+
+    private static final UnitLexicon<LengthUnit> LEXICON = UnitLexicon.of(values());
+    private final List<String> aliases;
+
+    LengthUnit(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
 
     @Override
     public UNIT_TYPE getUnitType() {
         return UNIT_TYPE.LENGTH;
     }
 
+    @Override
+    public List<String> getAliases() {
+        return aliases;
+    }
+
     @Override
     public LengthUnit getUnitEnum(String value) {
-        return switch (value.toLowerCase()) {
-            case "m", "meter", "meters" -> M; // Default Value
-            case "in", "inch", "inches" -> IN;
-            case "ft", "feet" -> FT;
-            case "yd", "yrd", "yrds", "yard", "yards" -> YRD;
-            case "mi", "mile", "miles" -> MI;
-            default -> null;
-        };
+        return LEXICON.parse(value);
     }
 }
@@ -1,19 +1,31 @@
 package com.finalproject.demeter.units;
 
+import java.util.List;
+
 public enum SingularUnit implements Unit {
-    SLICE, PIECE, DEFAULT;
+    SLICE("slice", "slices"),
+    PIECE("piece", "pieces"), // Default Value
+    DEFAULT;
+
+    private static final UnitLexicon<SingularUnit> LEXICON = UnitLexicon.of(values());
+    private final List<String> aliases;
+
+    SingularUnit(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
 
     @Override
-    public UNIT_TYPE getUnitType(){
+    public UNIT_TYPE getUnitType() {
         return UNIT_TYPE.SINGULAR;
     }
 
+    @Override
+    public List<String> getAliases() {
+        return aliases;
+    }
+
     @Override
     public SingularUnit getUnitEnum(String value) {
-        return switch (value.toLowerCase()) {
-            case "piece", "pieces" -> PIECE; // Default Value
-            case "slice", "slices" -> SLICE;
-            default -> null;
-        };
+        return LEXICON.parse(value);
     }
 }
@@ -1,20 +1,32 @@
 package com.finalproject.demeter.units;
 
-public enum TemperatureUnit implements Unit{
-    F, C, K, DEFAULT;
+import java.util.List;
+
+public enum TemperatureUnit implements Unit {
+    F("fahrenheit", "f", "°f"),
+    C("celsius", "c", "°c"), // current standard unit
+    K("kelvin", "kelvins", "k"),
+    DEFAULT;
+
+    private static final UnitLexicon<TemperatureUnit> LEXICON = UnitLexicon.of(values());
+    private final List<String> aliases;
+
+    TemperatureUnit(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
 
     @Override
     public UNIT_TYPE getUnitType() {
         return UNIT_TYPE.TEMPERATURE;
     }
 
+    @Override
+    public List<String> getAliases() {
+        return aliases;
+    }
+
     @Override
     public TemperatureUnit getUnitEnum(String value) {
-        return switch (value.toLowerCase()) {
-            case "celsius", "c", "°c" -> C; // current standard unit
-            case "fahrenheit", "f", "°f" -> F;
-            case "kelvin", "kelvins", "k" -> K;
-            default -> null;
-        };
+        return LEXICON.parse(value);
     }
 }
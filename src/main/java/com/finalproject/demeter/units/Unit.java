@@ -1,5 +1,7 @@
 package com.finalproject.demeter.units;
 
+import java.util.List;
+
 public interface Unit {
     enum UNIT_TYPE {
         VOLUMETRIC,
@@ -11,4 +13,9 @@ public interface Unit {
     }
     Unit getUnitEnum(String value);
     UNIT_TYPE getUnitType();
+
+    /**
+     * @return the lowercase names this unit can be written as, empty for units that are never parsed.
+     * */
+    List<String> getAliases();
 }
@@ -0,0 +1,30 @@
+package com.finalproject.demeter.units;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a unit as its code from UnitCodes in a smallint column instead of as a string, so loading a row neither
+ * allocates nor parses anything for its unit.
+ * */
+@Converter
+public class UnitCodeConverter implements AttributeConverter<Unit, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Unit unit) {
+        return toCode(unit);
+    }
+
+    @Override
+    public Unit convertToEntityAttribute(Short code) {
+        return code == null ? null : UnitCodes.unitOf(code);
+    }
+
+    /**
+     * @param unit: the unit, may be null.
+     * @return the value the unit is stored as, null for null.
+     * */
+    public static Short toCode(Unit unit) {
+        return unit == null ? null : (short) UnitCodes.codeOf(unit);
+    }
+}
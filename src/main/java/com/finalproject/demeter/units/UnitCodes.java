@@ -0,0 +1,82 @@
+package com.finalproject.demeter.units;
+
+/**
+ * Gives every unit of every unit enum a small, dense code, so tables about units can be plain arrays indexed by it.
+ * The codes are the positions in UNITS. They must never change once handed out, new units are only ever appended.
+ * */
+public final class UnitCodes {
+    private static final Unit[] UNITS = {
+            // Volume
+            VolumetricUnit.L, VolumetricUnit.ML, VolumetricUnit.FL_OZ, VolumetricUnit.PINT, VolumetricUnit.QUART,
+            VolumetricUnit.GAL, VolumetricUnit.CUP, VolumetricUnit.TBSP, VolumetricUnit.TSP, VolumetricUnit.PINCH,
+            VolumetricUnit.DASH, VolumetricUnit.DUSTING, VolumetricUnit.DEFAULT,
+            // Length
+            LengthUnit.M, LengthUnit.IN, LengthUnit.FT, LengthUnit.YRD, LengthUnit.MI, LengthUnit.DEFAULT,
+            // Singular
+            SingularUnit.SLICE, SingularUnit.PIECE, SingularUnit.DEFAULT,
+            // Temperature
+            TemperatureUnit.F, TemperatureUnit.C, TemperatureUnit.K, TemperatureUnit.DEFAULT,
+            // Weight
+            WeightUnit.G, WeightUnit.KG, WeightUnit.MG, WeightUnit.OZ, WeightUnit.LB, WeightUnit.ST, WeightUnit.T,
+            WeightUnit.DEFAULT
+    };
+    public static final int COUNT = UNITS.length;
+    public static final int NONE = -1;
+
+    // The code of every enum constant, indexed by ordinal
+    private static final int[] VOLUMETRIC = codesOf(VolumetricUnit.values());
+    private static final int[] LENGTH = codesOf(LengthUnit.values());
+    private static final int[] SINGULAR = codesOf(SingularUnit.values());
+    private static final int[] TEMPERATURE = codesOf(TemperatureUnit.values());
+    private static final int[] WEIGHT = codesOf(WeightUnit.values());
+
+    private UnitCodes() {
+    }
+
+    /**
+     * @param unit: the unit, may be null.
+     * @return the code of the unit, NONE for null.
+     * */
+    public static int codeOf(Unit unit) {
+        if (unit instanceof VolumetricUnit volumetricUnit) {
+            return VOLUMETRIC[volumetricUnit.ordinal()];
+        } else if (unit instanceof LengthUnit lengthUnit) {
+            return LENGTH[lengthUnit.ordinal()];
+        } else if (unit instanceof SingularUnit singularUnit) {
+            return SINGULAR[singularUnit.ordinal()];
+        } else if (unit instanceof TemperatureUnit temperatureUnit) {
+            return TEMPERATURE[temperatureUnit.ordinal()];
+        } else if (unit instanceof WeightUnit weightUnit) {
+            return WEIGHT[weightUnit.ordinal()];
+        }
+        return NONE;
+    }
+
+    /**
+     * @param code: the code of a unit.
+     * @return the unit, null if no unit has the code.
+     * */
+    public static Unit unitOf(int code) {
+        if (code < 0 || code >= COUNT) {
+            return null;
+        }
+        return UNITS[code];
+    }
+
+    private static int[] codesOf(Unit[] values) {
+        int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            codes[i] = indexOf(values[i]);
+        }
+        return codes;
+    }
+
+    private static int indexOf(Unit unit) {
+        for (int code = 0; code < UNITS.length; code++) {
+            if (UNITS[code] == unit) {
+                return code;
+            }
+        }
+        throw new IllegalStateException("Unit " + unit + " has no code");
+    }
+}
@@ -0,0 +1,113 @@
+package com.finalproject.demeter.units;
+
+/**
+ * Looks units up by any of their aliases, i.e. "Tbsp" or "fluid ounces". The aliases are put into an open addressing
+ * hash table once, a lookup hashes the input with its case folded character by character and compares it against
+ * the stored alias the same way, so parsing never makes a lowercase copy of the input.
+ *
+ * Instances are immutable and safe to share between threads.
+ * */
+public final class UnitLexicon<U extends Unit> {
+    /**
+     * Every unit, an alias used by more than one kind of unit (i.e. "c") goes to volumetric units first, then length,
+     * singular, temperature and weight units.
+     * */
+    public static final UnitLexicon<Unit> ALL = new UnitLexicon<>(
+            VolumetricUnit.values(), LengthUnit.values(), SingularUnit.values(), TemperatureUnit.values(),
+            WeightUnit.values());
+
+    private final String[] aliases;
+    private final Unit[] units;
+    private final int mask;
+
+    @SafeVarargs
+    private UnitLexicon(U[]... unitGroups) {
+        int aliasCount = 0;
+        for (U[] group : unitGroups) {
+            for (U unit : group) {
+                aliasCount += unit.getAliases().size();
+            }
+        }
+        // Kept at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(aliasCount, 1) * 2) << 1;
+        aliases = new String[capacity];
+        units = new Unit[capacity];
+        mask = capacity - 1;
+
+        for (U[] group : unitGroups) {
+            for (U unit : group) {
+                for (String alias : unit.getAliases()) {
+                    add(alias, unit);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param values: the units of one enum, i.e. VolumetricUnit.values().
+     * @return a lexicon of only those units.
+     * */
+    public static <U extends Unit> UnitLexicon<U> of(U[] values) {
+        return new UnitLexicon<>(values);
+    }
+
+    /**
+     * @param value: the unit as written by a user, case does not matter.
+     * @return the unit, null if value is null or not an alias of any unit in this lexicon.
+     * */
+    public U parse(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        int length = value.length();
+        for (int slot = hash(value, length) & mask; aliases[slot] != null; slot = (slot + 1) & mask) {
+            if (matches(aliases[slot], value, length)) {
+                @SuppressWarnings("unchecked")
+                U unit = (U) units[slot];
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    private void add(String alias, Unit unit) {
+        int slot = hash(alias, alias.length()) & mask;
+        while (aliases[slot] != null) {
+            if (matches(aliases[slot], alias, alias.length())) {
+                // The first unit to claim an alias keeps it
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        aliases[slot] = alias;
+        units[slot] = unit;
+    }
+
+    private static int hash(CharSequence value, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + fold(value.charAt(i));
+        }
+        // Spread the high bits down, the table only looks at the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String alias, CharSequence value, int length) {
+        if (alias.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (fold(alias.charAt(i)) != fold(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
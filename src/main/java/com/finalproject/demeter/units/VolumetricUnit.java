@@ -1,29 +1,41 @@
 package com.finalproject.demeter.units;
 
+import java.util.List;
+
 public enum VolumetricUnit implements Unit {
-    L, ML, FL_OZ, PINT, QUART, GAL, CUP, TBSP, TSP, PINCH, DASH, DUSTING, DEFAULT;
+    L("liter", "liters", "l"), // current standard unit
+    ML("milliliter", "milliliters", "ml"),
+    FL_OZ("fl oz", "floz", "fluid ounce", "fluid ounces"),
+    PINT("pint", "pints", "pt"),
+    QUART("quart", "quarts", "qt"),
+    GAL("gallon", "gallons", "gal"),
+    CUP("cup", "cups", "c"),
+    TBSP("tablespoon", "tablespoons", "tbsp", "tbsps", "tbs"),
+    TSP("teaspoon", "teaspoons", "tsp", "tsps"),
+    PINCH("pinch", "pinches"),
+    DASH("dash", "dashes"),
+    DUSTING("dusting", "dustings"),
+    DEFAULT;
+
+    private static final UnitLexicon<VolumetricUnit> LEXICON = UnitLexicon.of(values());
+    private final List<String> aliases;
+
+    VolumetricUnit(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
 
     @Override
     public UNIT_TYPE getUnitType() {
         return UNIT_TYPE.VOLUMETRIC;
     }
 
+    @Override
+    public List<String> getAliases() {
+        return aliases;
+    }
+
     @Override
     public VolumetricUnit getUnitEnum(String value) {
-        return switch (value.toLowerCase()) {
-            case "liter", "liters", "l" -> L; // current standard unit
-            case "milliliter", "milliliters", "ml" -> ML;
-            case "fl oz", "floz", "fluid ounce", "fluid ounces" -> FL_OZ;
-            case "pint", "pints", "pt" -> PINT;
-            case "quart", "quarts", "qt" -> QUART;
-            case "gallon", "gallons", "gal" -> GAL;
-            case "cup", "cups", "c" -> CUP;
-            case "tablespoon", "tablespoons", "tbsp", "tbsps", "tbs" -> TBSP;
-            case "teaspoon", "teaspoons", "tsp", "tsps" -> TSP;
-            case "pinch", "pinches" -> PINCH;
-            case "dash", "dashes" -> DASH;
-            case "dusting", "dustings" -> DUSTING;
-            default -> null; // can be used to check if the measurement is volumetric
-        };
+        return LEXICON.parse(value);
     }
 }
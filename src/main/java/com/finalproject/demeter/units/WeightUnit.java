@@ -1,24 +1,36 @@
 package com.finalproject.demeter.units;
 
+import java.util.List;
+
 public enum WeightUnit implements Unit {
-    G, KG, MG, OZ, LB, ST, T, DEFAULT;
+    G("gram", "grams", "g"), // Default Value
+    KG("kilogram", "kilograms", "kg"),
+    MG("milligram", "milligrams", "mg"),
+    OZ("ounce", "ounces", "oz"),
+    LB("pound", "pounds", "lb", "lbs"),
+    ST("stone", "stones", "st", "sts"),
+    T("ton", "tons", "t", "ts"),
+    DEFAULT;
+
+    private static final UnitLexicon<WeightUnit> LEXICON = UnitLexicon.of(values());
+    private final List<String> aliases;
+
+    WeightUnit(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
 
     @Override
     public UNIT_TYPE getUnitType() {
         return UNIT_TYPE.MASS;
     }
 
+    @Override
+    public List<String> getAliases() {
+        return aliases;
+    }
+
     @Override
     public WeightUnit getUnitEnum(String value) {
-        return switch (value.toLowerCase()) {
-            case "gram", "grams", "g" -> G; // Default Value
-            case "kilogram", "kilograms", "kg" -> KG;
-            case "milligram", "milligrams", "mg" -> MG;
-            case "ounce", "ounces", "oz" -> OZ;
-            case "pound", "pounds", "lb", "lbs" -> LB;
-            case "stone", "stones", "st", "sts" -> ST;
-            case "ton", "tons", "t", "ts" -> T;
-            default -> null;
-        };
+        return LEXICON.parse(value);
     }
 }
@@ -1,8 +1,10 @@
 package com.finalproject.demeter.util;
 
+import com.finalproject.demeter.conversion.ConversionUtils;
 import com.finalproject.demeter.dao.FoodItem;
 import com.finalproject.demeter.dao.InventoryItem;
 import com.finalproject.demeter.dao.User;
+import com.finalproject.demeter.units.Unit;
 
 public class InventoryItemBuilder {
     private InventoryItem item = new InventoryItem();
@@ -23,8 +25,12 @@ public class InventoryItemBuilder {
         item.setQuantity(quantity);
         return this;
     }
+    public InventoryItemBuilder unit(Unit unit){
+        item.setUnit(unit);
+        return this;
+    }
     public InventoryItemBuilder unit(String units){
-        item.setUnit(units);
+        item.setUnit(ConversionUtils.toUnit(units));
         return this;
     }
     public InventoryItem build() {
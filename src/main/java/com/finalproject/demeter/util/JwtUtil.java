@@ -1,20 +1,30 @@
 package com.finalproject.demeter.util;
 
+import com.finalproject.demeter.cache.JwtClaimsCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
 public class JwtUtil {
     // This will need to be changed in production
     private String SECRET_KEY = "secret";
+    private static final String USER_ID_CLAIM = "uid";
+    private final JwtClaimsCache claimsCache;
+
+    @Autowired
+    public JwtUtil(JwtClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
+    }
 
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -24,16 +34,42 @@ public class JwtUtil {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    /**
+     * Used to get the id of the user a token was issued to.
+     * @param claims: the claims of the token.
+     * @return Optional including the user id, empty for tokens that were issued without it.
+     * */
+    public Optional<Long> extractUserId(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        if (userId instanceof Number) {
+            return Optional.of(((Number) userId).longValue());
+        }
+        return Optional.empty();
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+
+    /**
+     * Verifies a token and reads all of its claims at once. Tokens that were verified before are taken from the
+     * claims cache until they expire.
+     * @param token: the token without the "Bearer" prefix.
+     * @return the claims of the token, they must not be changed.
+     * */
+    public Claims extractAllClaims(String token) {
+        Optional<Claims> cached = claimsCache.get(token);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Claims claims = Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+        claimsCache.put(token, claims);
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration() == null || claims.getExpiration().before(new Date());
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -41,6 +77,18 @@ public class JwtUtil {
         return createToken(claims, userDetails.getUsername());
     }
 
+    /**
+     * Creates a token that also carries the id of the user, so requests can load the user by its primary key.
+     * @param userDetails: the details of the user.
+     * @param userId: the id of the user.
+     * @return the signed token.
+     * */
+    public String generateToken(UserDetails userDetails, long userId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        return createToken(claims, userDetails.getUsername());
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
 
         return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
@@ -49,7 +97,7 @@ public class JwtUtil {
     }
 
     public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractEmail(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims));
     }
 }
@@ -1,6 +1,7 @@
 package com.finalproject.demeter.util;
 
 import com.finalproject.demeter.dto.Measurements;
+import com.finalproject.demeter.units.Unit;
 
 public class MeasurementsBuilder {
     private Measurements measurements = new Measurements();
@@ -10,6 +11,11 @@ public class MeasurementsBuilder {
         return this;
     }
 
+    public MeasurementsBuilder standardUnit(Unit unit) {
+        measurements.setStandardUnit(unit);
+        return this;
+    }
+
     public MeasurementsBuilder quantity(Float quantity){
         measurements.setQuantity(quantity);
         return this;
@@ -30,6 +30,11 @@ public class RecipeBuilder {
         return this;
     }
 
+    public RecipeBuilder starTotal(Long val){
+        recipe.setStarTotal(val);
+        return this;
+    }
+
     public RecipeBuilder isPublic(Boolean val) {
         recipe.setIsPublic(val);
         return this;
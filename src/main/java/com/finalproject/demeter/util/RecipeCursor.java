@@ -0,0 +1,43 @@
+package com.finalproject.demeter.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Encodes the position of the last recipe of a page into an opaque token. Clients only ever hand the token back, so
+ * the format can change without breaking them.
+ * */
+public class RecipeCursor {
+    private static final String PREFIX = "r:";
+
+    /**
+     * @param lastRecipeId: id of the last recipe on the current page.
+     * @return the cursor for the page after it.
+     * */
+    public static String encode(long lastRecipeId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastRecipeId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor: a cursor created by encode, null or blank for the first page.
+     * @return Optional including the id to continue after, 0 for the first page, empty if the cursor is invalid.
+     * */
+    public static Optional<Long> decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Optional.of(0L);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            long lastRecipeId = Long.parseLong(decoded.substring(PREFIX.length()));
+            return lastRecipeId < 0 ? Optional.empty() : Optional.of(lastRecipeId);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException as well
+            return Optional.empty();
+        }
+    }
+}
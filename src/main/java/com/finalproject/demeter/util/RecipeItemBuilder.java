@@ -1,8 +1,10 @@
 package com.finalproject.demeter.util;
 
+import com.finalproject.demeter.conversion.ConversionUtils;
 import com.finalproject.demeter.dao.FoodItem;
 import com.finalproject.demeter.dao.Recipe;
 import com.finalproject.demeter.dao.RecipeItem;
+import com.finalproject.demeter.units.Unit;
 
 public class RecipeItemBuilder {
     private RecipeItem item = new RecipeItem();
@@ -22,11 +24,16 @@ public class RecipeItemBuilder {
         return this;
     }
 
-    public RecipeItemBuilder measurementUnit(String unit) {
+    public RecipeItemBuilder measurementUnit(Unit unit) {
         item.setMeasurementUnit(unit);
         return this;
     }
 
+    public RecipeItemBuilder measurementUnit(String unit) {
+        item.setMeasurementUnit(ConversionUtils.toUnit(unit));
+        return this;
+    }
+
     public RecipeItemBuilder quantity(Float quantity) {
         item.setQuantity(quantity);
         return this;
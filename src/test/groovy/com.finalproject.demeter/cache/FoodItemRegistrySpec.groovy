@@ -0,0 +1,62 @@
+package com.finalproject.demeter.cache
+
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.repository.FoodItemRepository
+import com.finalproject.demeter.util.FoodItemBuilder
+import spock.lang.Specification
+
+class FoodItemRegistrySpec extends Specification {
+    FoodItemRepository foodItemRepository = Mock()
+    FoodItemRegistry registry = new FoodItemRegistry(foodItemRepository)
+    FoodItem rice = new FoodItemBuilder().id(1L).name("rice").build()
+    FoodItem beans = new FoodItemBuilder().id(5000L).name("beans").build()
+
+    def "loaded food items are found without going to the database, even when their id is far apart" () {
+        given:
+        foodItemRepository.findAll() >> [rice, beans]
+        registry.reload()
+
+        when:
+        Optional<FoodItem> first = registry.findById(1L)
+        Optional<FoodItem> second = registry.findById(5000L)
+
+        then:
+        0 * foodItemRepository.findById(_)
+        first.get() == rice
+        second.get() == beans
+    }
+
+    def "a food item that is not loaded is read from the database once" () {
+        when:
+        Optional<FoodItem> first = registry.findById(1L)
+        Optional<FoodItem> second = registry.findById(1L)
+
+        then:
+        1 * foodItemRepository.findById(1L) >> Optional.of(rice)
+        first.get() == rice
+        second.get() == rice
+    }
+
+    def "a food item that does not exist is not remembered" () {
+        when:
+        registry.findById(2L)
+        Optional<FoodItem> found = registry.findById(2L)
+
+        then:
+        2 * foodItemRepository.findById(2L) >>> [Optional.empty(), Optional.of(rice)]
+        found.get() == rice
+    }
+
+    def "an evicted food item is read from the database again" () {
+        given:
+        foodItemRepository.findAll() >> [rice]
+        registry.reload()
+
+        when:
+        registry.evict(1L)
+        registry.findById(1L)
+
+        then:
+        1 * foodItemRepository.findById(1L) >> Optional.of(rice)
+    }
+}
@@ -0,0 +1,85 @@
+package com.finalproject.demeter.cache
+
+import com.finalproject.demeter.util.JwtUtil
+import io.jsonwebtoken.Claims
+import io.jsonwebtoken.Jwts
+import org.springframework.security.core.userdetails.User
+import spock.lang.Specification
+
+class JwtClaimsCacheSpec extends Specification {
+    JwtClaimsCache jwtClaimsCache = new JwtClaimsCache(2)
+
+    def "a verified token should be served from the cache until it expires" () {
+        given:
+        Claims claims = claimsExpiringIn(60000)
+
+        when:
+        jwtClaimsCache.put("token", claims)
+
+        then:
+        jwtClaimsCache.get("token") == Optional.of(claims)
+        jwtClaimsCache.get("otherToken").isEmpty()
+        jwtClaimsCache.getHits() == 1
+        jwtClaimsCache.getMisses() == 1
+    }
+
+    def "expired tokens should not be cached" () {
+        when:
+        jwtClaimsCache.put("token", claimsExpiringIn(-1000))
+        jwtClaimsCache.put("noExpiry", Jwts.claims())
+
+        then:
+        jwtClaimsCache.size() == 0
+        jwtClaimsCache.get("token").isEmpty()
+    }
+
+    def "the least recently used token should be evicted when the cache is full" () {
+        given:
+        jwtClaimsCache.put("first", claimsExpiringIn(60000))
+        jwtClaimsCache.put("second", claimsExpiringIn(60000))
+        jwtClaimsCache.get("first")
+
+        when:
+        jwtClaimsCache.put("third", claimsExpiringIn(60000))
+
+        then:
+        jwtClaimsCache.size() == 2
+        jwtClaimsCache.get("first").isPresent()
+        jwtClaimsCache.get("second").isEmpty()
+    }
+
+    def "a disabled cache should never keep a token" () {
+        given:
+        JwtClaimsCache disabled = new JwtClaimsCache(0)
+
+        when:
+        disabled.put("token", claimsExpiringIn(60000))
+
+        then:
+        disabled.get("token").isEmpty()
+        disabled.getMisses() == 1
+    }
+
+    def "validating a token twice should only verify it once" () {
+        given:
+        JwtUtil jwtUtil = new JwtUtil(jwtClaimsCache)
+        User userDetails = new User("johns@gmail.com", "password", [])
+        String token = jwtUtil.generateToken(userDetails, 7L)
+
+        when:
+        boolean first = jwtUtil.isTokenValid(token, userDetails)
+        boolean second = jwtUtil.isTokenValid(token, userDetails)
+
+        then:
+        first
+        second
+        jwtUtil.extractEmail(token) == "johns@gmail.com"
+        jwtUtil.extractUserId(jwtUtil.extractAllClaims(token)) == Optional.of(7L)
+        jwtClaimsCache.getMisses() == 1
+        jwtClaimsCache.getHits() == 3
+    }
+
+    private static Claims claimsExpiringIn(long ms) {
+        return Jwts.claims().setExpiration(new Date(System.currentTimeMillis() + ms))
+    }
+}
@@ -0,0 +1,89 @@
+package com.finalproject.demeter.cache
+
+import com.finalproject.demeter.dto.RecipeWithSub
+import spock.lang.Specification
+
+class MatchResultCacheSpec extends Specification {
+    MatchResultCache matchResultCache = new MatchResultCache(2, 600000)
+    List<RecipeWithSub> matches = [new RecipeWithSub()]
+
+    def "cached matches should be returned while nothing changed" () {
+        when:
+        matchResultCache.put(1L, matchResultCache.currentStamp(1L), matches)
+
+        then:
+        matchResultCache.get(1L) == Optional.of(matches)
+        matchResultCache.get(2L).isEmpty()
+    }
+
+    def "matches computed before an invalidation should not be cached" () {
+        given:
+        MatchResultCache.Stamp stamp = matchResultCache.currentStamp(1L)
+
+        when:
+        matchResultCache.invalidateUser(1L)
+        matchResultCache.put(1L, stamp, matches)
+
+        then:
+        matchResultCache.get(1L).isEmpty()
+    }
+
+    def "a catalog change should drop the matches of every user" () {
+        given:
+        matchResultCache.put(1L, matchResultCache.currentStamp(1L), matches)
+        matchResultCache.put(2L, matchResultCache.currentStamp(2L), matches)
+
+        when:
+        matchResultCache.invalidateAll()
+
+        then:
+        matchResultCache.get(1L).isEmpty()
+        matchResultCache.get(2L).isEmpty()
+    }
+
+    def "the least recently used user should be evicted when the cache is full" () {
+        given:
+        matchResultCache.put(1L, matchResultCache.currentStamp(1L), matches)
+        matchResultCache.put(2L, matchResultCache.currentStamp(2L), matches)
+        matchResultCache.get(1L)
+
+        when:
+        matchResultCache.put(3L, matchResultCache.currentStamp(3L), matches)
+
+        then:
+        matchResultCache.size() == 2
+        matchResultCache.get(1L).isPresent()
+        matchResultCache.get(2L).isEmpty()
+    }
+
+    def "expired matches should not be returned" () {
+        given:
+        MatchResultCache expiringCache = new MatchResultCache(2, -1)
+
+        when:
+        expiringCache.put(1L, expiringCache.currentStamp(1L), matches)
+
+        then:
+        expiringCache.get(1L).isEmpty()
+    }
+
+    def "the versions of users should stay bounded without letting stale matches in" () {
+        given:
+        MatchResultCache.Stamp stamp = matchResultCache.currentStamp(1L)
+        matchResultCache.invalidateUser(1L)
+
+        when:
+        (2L..10L).each { matchResultCache.invalidateUser(it) }
+        matchResultCache.put(1L, stamp, matches)
+
+        then:
+        matchResultCache.trackedUsers() == 2
+        matchResultCache.get(1L).isEmpty()
+
+        when:
+        matchResultCache.put(1L, matchResultCache.currentStamp(1L), matches)
+
+        then:
+        matchResultCache.get(1L) == Optional.of(matches)
+    }
+}
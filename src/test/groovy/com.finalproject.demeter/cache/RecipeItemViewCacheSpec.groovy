@@ -0,0 +1,110 @@
+package com.finalproject.demeter.cache
+
+import com.finalproject.demeter.dto.RecipeItemView
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+
+class RecipeItemViewCacheSpec extends Specification {
+    RecipeItemViewCache recipeItemViewCache = new RecipeItemViewCache(2)
+    List<RecipeItemView> metricViews = [new RecipeItemView(1L, null, "g", 5.0F)]
+    List<RecipeItemView> imperialViews = [new RecipeItemView(1L, null, "oz", 0.18F)]
+
+    def "the ingredient lists of a recipe should be kept per unit system" () {
+        when:
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), metricViews)
+        recipeItemViewCache.put(1L, false, recipeItemViewCache.currentGeneration(), imperialViews)
+
+        then:
+        recipeItemViewCache.get(1L, true) == Optional.of(metricViews)
+        recipeItemViewCache.get(1L, false) == Optional.of(imperialViews)
+        recipeItemViewCache.get(2L, true).isEmpty()
+        recipeItemViewCache.hits == 2
+        recipeItemViewCache.misses == 1
+    }
+
+    def "a cached ingredient list should not be modifiable" () {
+        given:
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), new ArrayList<>(metricViews))
+
+        when:
+        recipeItemViewCache.get(1L, true).get().clear()
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "invalidating a recipe should drop both of its lists" () {
+        given:
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), metricViews)
+        recipeItemViewCache.put(1L, false, recipeItemViewCache.currentGeneration(), imperialViews)
+
+        when:
+        recipeItemViewCache.invalidate(1L)
+
+        then:
+        recipeItemViewCache.get(1L, true).isEmpty()
+        recipeItemViewCache.get(1L, false).isEmpty()
+    }
+
+    def "a list loaded before an invalidation should not be cached" () {
+        given:
+        long generation = recipeItemViewCache.currentGeneration()
+
+        when:
+        recipeItemViewCache.invalidate(1L)
+        recipeItemViewCache.put(1L, true, generation, metricViews)
+
+        then:
+        recipeItemViewCache.get(1L, true).isEmpty()
+    }
+
+    def "the least recently used list should be dropped when the cache is full" () {
+        given:
+        long generation = recipeItemViewCache.currentGeneration()
+        recipeItemViewCache.put(1L, true, generation, metricViews)
+        recipeItemViewCache.put(2L, true, generation, metricViews)
+        recipeItemViewCache.get(1L, true)
+
+        when:
+        recipeItemViewCache.put(3L, true, generation, metricViews)
+
+        then:
+        recipeItemViewCache.size() == 2
+        recipeItemViewCache.get(1L, true).isPresent()
+        recipeItemViewCache.get(2L, true).isEmpty()
+    }
+
+    def "a list read before the removing transaction commits should be dropped on commit" () {
+        given:
+        TransactionSynchronizationManager.initSynchronization()
+
+        when:
+        recipeItemViewCache.invalidateAfterCommit(1L)
+        // Another request still sees the uncommitted recipe
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), metricViews)
+
+        then:
+        recipeItemViewCache.get(1L, true).isPresent()
+
+        when:
+        TransactionSynchronizationManager.getSynchronizations()*.afterCommit()
+
+        then:
+        recipeItemViewCache.get(1L, true).isEmpty()
+
+        cleanup:
+        TransactionSynchronizationManager.clearSynchronization()
+    }
+
+    def "without a transaction a recipe should be invalidated right away" () {
+        given:
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), metricViews)
+
+        when:
+        recipeItemViewCache.invalidateAfterCommit(1L)
+
+        then:
+        recipeItemViewCache.get(1L, true).isEmpty()
+        !TransactionSynchronizationManager.isSynchronizationActive()
+    }
+}
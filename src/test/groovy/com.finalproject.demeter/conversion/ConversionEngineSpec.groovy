@@ -0,0 +1,102 @@
+package com.finalproject.demeter.conversion
+
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dto.InventoryItemView
+import com.finalproject.demeter.units.TemperatureUnit
+import com.finalproject.demeter.units.UnitCodes
+import com.finalproject.demeter.units.VolumetricUnit
+import com.finalproject.demeter.units.WeightUnit
+import com.finalproject.demeter.util.InventoryItemBuilder
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class ConversionEngineSpec extends Specification {
+
+    def "standard quantities should be shown in the best unit of the unit system" (String unit, float quantity,
+                                                                                  boolean isMetric, float expected,
+                                                                                  String expectedUnit) {
+        when:
+        int standardCode = ConversionEngine.parseStandardUnit(unit)
+        int displayCode = ConversionEngine.displayUnit(standardCode, quantity, isMetric)
+        float converted = ConversionEngine.fromStandard(displayCode, quantity)
+
+        then:
+        Math.abs(converted - expected) < 0.0001
+        ConversionEngine.unitName(displayCode, converted) == expectedUnit
+
+        where:
+        unit      | quantity | isMetric | expected         | expectedUnit
+        "g"       | 500F     | true     | 500F             | "g"
+        "g"       | 1500F    | true     | 1.5F             | "kg"
+        "grams"   | 100F     | false    | (float) (100 / 28.35) | "oz"
+        "g"       | 1000F    | false    | (float) (1000 / 453.6) | "lb"
+        "L"       | 0.01F    | false    | (float) (0.01 * 202.9) | "tsp"
+        "L"       | 1F       | false    | 4.227F           | "cups"
+        "L"       | 2F       | true     | 2F               | "L"
+        "m"       | 0.3F     | false    | (float) (0.3F * 39.37) | "in"
+        "m"       | 10F      | false    | (float) (10 * 1.094) | "yd"
+        "C"       | 100F     | false    | 212F             | "f"
+        "piece"   | 2F       | false    | 2F               | "slices"
+        "default" | 3F       | true     | 3F               | "default"
+    }
+
+    def "quantities should be converted to their standard unit and rounded" () {
+        expect:
+        ConversionEngine.toStandard(UnitCodes.codeOf(VolumetricUnit.TBSP), 3F) == 0.04436F
+        ConversionEngine.standardName(UnitCodes.codeOf(VolumetricUnit.TBSP)) == "L"
+        ConversionEngine.toStandard(UnitCodes.codeOf(TemperatureUnit.F), 212F) == 100F
+        ConversionEngine.standardName(UnitCodes.codeOf(TemperatureUnit.F)) == "C"
+        ConversionEngine.toStandard(UnitCodes.codeOf(WeightUnit.KG), 1.5F) == 1500F
+    }
+
+    def "a unit that is not a standard unit should not be parsed" () {
+        expect:
+        ConversionEngine.parseStandardUnit("tbsp") == UnitCodes.NONE
+        ConversionEngine.parseStandardUnit(null) == UnitCodes.NONE
+        ConversionEngine.parseStandardUnit("GRAMS") == UnitCodes.codeOf(WeightUnit.G)
+    }
+
+    def "every unit code should map back to its unit" () {
+        expect:
+        (0..<UnitCodes.COUNT).every { UnitCodes.codeOf(UnitCodes.unitOf(it)) == it }
+    }
+
+    def "inventories converted on many threads at once should all get the same views" () {
+        given:
+        def pool = Executors.newFixedThreadPool(8)
+        List<InventoryItem> inventory = (1..100).collect {
+            new InventoryItemBuilder().id(it).unit(it % 2 == 0 ? "g" : "L").quantity((float) it).build()
+        }
+        List<Callable<List<InventoryItemView>>> tasks = (1..64).collect { task ->
+            { -> ConversionUtils.toInventoryViews(inventory, false) } as Callable<List<InventoryItemView>>
+        }
+
+        when:
+        List<List<InventoryItemView>> results = pool.invokeAll(tasks)*.get()
+
+        then:
+        results.every { it == results[0] }
+        results[0][0].unit() == "cups"
+        results[0][1].unit() == "oz"
+        // The shared inventory is only read
+        inventory[0].unit == VolumetricUnit.L
+        inventory[0].quantity == 1F
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def "items stored in a unit that is not a standard unit should still be shown in the best unit" () {
+        given:
+        InventoryItem item = new InventoryItemBuilder().id(1L).unit(VolumetricUnit.TSP).quantity(96F).build()
+
+        when:
+        List<InventoryItemView> views = ConversionUtils.toInventoryViews([item], false)
+
+        then:
+        views[0].unit() == "cups"
+        Math.abs(views[0].quantity() - 2F) < 0.01
+    }
+}
@@ -0,0 +1,92 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.dao.DislikedItem
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dao.MinorItem
+import com.finalproject.demeter.dao.RecipeItem
+import com.finalproject.demeter.dto.RecipeWithSub
+import com.finalproject.demeter.util.DislikedItemBuilder
+import com.finalproject.demeter.util.FoodItemBuilder
+import com.finalproject.demeter.util.InventoryItemBuilder
+import com.finalproject.demeter.util.MinorItemBuilder
+import com.finalproject.demeter.util.RecipeItemBuilder
+import spock.lang.Specification
+
+class CompiledInventorySpec extends Specification {
+    FoodItem foodItemOne = new FoodItemBuilder().id(1L).build()
+    FoodItem foodItemTwo = new FoodItemBuilder().id(2L).build()
+    FoodItem foodItemThree = new FoodItemBuilder().id(3L).build()
+    SubstitutionLookup noSubstitutes = { id -> SubstitutionLookup.NONE } as SubstitutionLookup
+
+    def "a recipe should be matched regardless of the order of its items" () {
+        given:
+        List<InventoryItem> inventory = [inventoryItem(foodItemThree, 5F), inventoryItem(foodItemOne, 5F)]
+        List<RecipeItem> recipeItems = [recipeItem(foodItemOne, 5F), recipeItem(foodItemThree, 1F)]
+
+        when:
+        boolean canBeMade = CompiledInventory.of(inventory, Optional.empty(), Optional.empty())
+                .canMake(CompiledRecipe.of(recipeItems), noSubstitutes, new RecipeWithSub())
+
+        then:
+        canBeMade
+    }
+
+    def "a disliked item should not count as being in the inventory" () {
+        given:
+        List<InventoryItem> inventory = [inventoryItem(foodItemOne, 5F)]
+        List<DislikedItem> dislikedItems = [new DislikedItemBuilder().id(1L).foodItem(foodItemOne).build()]
+
+        when:
+        CompiledInventory compiledInventory = CompiledInventory.of(inventory, Optional.of(dislikedItems), Optional.empty())
+
+        then:
+        !compiledInventory.canMake(CompiledRecipe.of([recipeItem(foodItemOne, 1F)]), noSubstitutes, new RecipeWithSub())
+        compiledInventory.getCoveredFoodIds().isEmpty()
+    }
+
+    def "a missing minor item should not need a substitute" () {
+        given:
+        List<MinorItem> minorItems = [new MinorItemBuilder().id(1L).foodItem(foodItemTwo).build()]
+        RecipeWithSub recipeWithSub = new RecipeWithSub()
+
+        when:
+        boolean canBeMade = CompiledInventory.of([inventoryItem(foodItemOne, 5F)], Optional.empty(), Optional.of(minorItems))
+                .canMake(CompiledRecipe.of([recipeItem(foodItemOne, 5F), recipeItem(foodItemTwo, 5F)]), noSubstitutes, recipeWithSub)
+
+        then:
+        canBeMade
+        !recipeWithSub.isSubbed
+    }
+
+    def "a single missing item should be subbed" () {
+        given:
+        RecipeWithSub recipeWithSub = new RecipeWithSub()
+        SubstitutionLookup substitutions = { id -> id == 2L ? 3L : SubstitutionLookup.NONE } as SubstitutionLookup
+
+        when:
+        boolean canBeMade = CompiledInventory.of([inventoryItem(foodItemOne, 5F), inventoryItem(foodItemThree, 5F)],
+                Optional.empty(), Optional.empty())
+                .canMake(CompiledRecipe.of([recipeItem(foodItemOne, 5F), recipeItem(foodItemTwo, 5F)]), substitutions, recipeWithSub)
+
+        then:
+        canBeMade
+        recipeWithSub.isSubbed
+        recipeWithSub.foodIdToReplace == 2L
+        recipeWithSub.subbedId == 3L
+    }
+
+    def "an empty recipe cannot be made" () {
+        expect:
+        !CompiledInventory.of([inventoryItem(foodItemOne, 5F)], Optional.empty(), Optional.empty())
+                .canMake(CompiledRecipe.of([]), noSubstitutes, new RecipeWithSub())
+    }
+
+    private static InventoryItem inventoryItem(FoodItem foodItem, Float quantity) {
+        return new InventoryItemBuilder().id(foodItem.id).foodItem(foodItem).quantity(quantity).unit("grams").build()
+    }
+
+    private static RecipeItem recipeItem(FoodItem foodItem, Float quantity) {
+        return new RecipeItemBuilder().id(foodItem.id).foodItem(foodItem).measurementUnit("grams").quantity(quantity).build()
+    }
+}
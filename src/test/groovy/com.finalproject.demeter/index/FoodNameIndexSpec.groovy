@@ -0,0 +1,45 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.repository.FoodItemRepository
+import spock.lang.Specification
+
+class FoodNameIndexSpec extends Specification {
+    FoodItemRepository foodItemRepository = Mock()
+    FoodNameIndex index = new FoodNameIndex(foodItemRepository)
+
+    def setup() {
+        foodItemRepository.findAllNames() >> [
+                [1L, "Chicken Breast"] as Object[],
+                [2L, "chickpeas"] as Object[],
+                [3L, "Boneless chicken  thighs"] as Object[],
+                [4L, "Brown Sugar"] as Object[],
+                [5L, "Breadcrumbs"] as Object[],
+                [6L, null] as Object[]
+        ]
+        index.rebuild()
+    }
+
+    def "names that start with the prefix come before names with a later word that does" () {
+        expect:
+        index.findByPrefix("Chick", 10).keySet() as List == [1L, 2L, 3L]
+        index.findByPrefix("br", 10).keySet() as List == [5L, 4L, 1L]
+    }
+
+    def "the original name is returned for every match" () {
+        expect:
+        index.findByPrefix("BONELESS", 10) == [3L: "Boneless chicken  thighs"]
+    }
+
+    def "no more than the limit is returned" () {
+        expect:
+        index.findByPrefix("br", 2).keySet() as List == [5L, 4L]
+    }
+
+    def "an empty prefix or an unknown prefix finds nothing" () {
+        expect:
+        index.findByPrefix(prefix, 10).isEmpty()
+
+        where:
+        prefix << ["", " ", null, "zz"]
+    }
+}
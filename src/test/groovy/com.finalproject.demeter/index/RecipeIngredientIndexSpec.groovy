@@ -0,0 +1,61 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.RecipeItem
+import com.finalproject.demeter.repository.RecipeItemRepository
+import com.finalproject.demeter.util.FoodItemBuilder
+import com.finalproject.demeter.util.RecipeItemBuilder
+import spock.lang.Specification
+
+class RecipeIngredientIndexSpec extends Specification {
+    RecipeItemRepository recipeItemRepository = Mock()
+    RecipeIngredientIndex index = new RecipeIngredientIndex(recipeItemRepository)
+
+    def setup() {
+        // recipe 1 needs food 1 and 2, recipe 2 needs food 1, 3 and 4, recipe 3 needs food 5
+        recipeItemRepository.findPublicRecipeRequirements() >> [
+                [1L, 1L, 1F] as Object[], [1L, 2L, 1F] as Object[],
+                [2L, 1L, 1F] as Object[], [2L, 3L, 1F] as Object[], [2L, 4L, 1F] as Object[],
+                [3L, 5L, 1F] as Object[]
+        ]
+        index.rebuild()
+    }
+
+    def "recipes with at most one uncovered ingredient should be candidates" () {
+        when:
+        Set<Long> candidates = index.findCandidateRecipeIds([1L])
+
+        then:
+        candidates == [1L, 3L] as Set
+    }
+
+    def "recipes that are fully covered should be candidates" () {
+        when:
+        Set<Long> candidates = index.findCandidateRecipeIds([1L, 3L, 4L])
+
+        then:
+        candidates == [1L, 2L, 3L] as Set
+    }
+
+    def "a removed recipe should no longer be indexed or a candidate" () {
+        when:
+        index.removeRecipe(3L)
+
+        then:
+        !index.isIndexed(3L)
+        index.findCandidateRecipeIds([5L]) == [1L] as Set
+    }
+
+    def "an added recipe should be indexed" () {
+        given:
+        FoodItem foodItem = new FoodItemBuilder().id(6L).build()
+        List<RecipeItem> recipeItems = [new RecipeItemBuilder().id(1L).foodItem(foodItem).quantity(1F).build()]
+
+        when:
+        index.addRecipe(4L, recipeItems)
+
+        then:
+        index.isIndexed(4L)
+        index.findCandidateRecipeIds([6L]).contains(4L)
+    }
+}
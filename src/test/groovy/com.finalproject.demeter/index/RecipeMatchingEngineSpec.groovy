@@ -0,0 +1,78 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.Recipe
+import com.finalproject.demeter.dto.RecipeSuggestion
+import com.finalproject.demeter.dto.RecipeWithSub
+import com.finalproject.demeter.util.FoodItemBuilder
+import com.finalproject.demeter.util.InventoryItemBuilder
+import com.finalproject.demeter.util.RecipeBuilder
+import com.finalproject.demeter.util.RecipeItemBuilder
+import spock.lang.Specification
+
+class RecipeMatchingEngineSpec extends Specification {
+    RecipeMatchingEngine recipeMatchingEngine = new RecipeMatchingEngine(4)
+    FoodItem foodItemOne = new FoodItemBuilder().id(1L).build()
+    FoodItem foodItemTwo = new FoodItemBuilder().id(2L).build()
+
+    def cleanup() {
+        recipeMatchingEngine.shutdown()
+    }
+
+    def "matches from a large catalog should come back in catalog order" () {
+        given:
+        // Even recipes need food item 1 which the user has, odd recipes need food item 2 which they do not
+        List<Recipe> recipes = []
+        List<CompiledRecipe> compiledRecipes = []
+        for (long i = 0; i < 2000; i++) {
+            recipes.add(new RecipeBuilder().id(i).name("recipe " + i).build())
+            FoodItem foodItem = i % 2 == 0 ? foodItemOne : foodItemTwo
+            compiledRecipes.add(CompiledRecipe.of([new RecipeItemBuilder().id(i).foodItem(foodItem).quantity(1F).build()]))
+        }
+        CompiledInventory inventory = CompiledInventory.of(
+                [new InventoryItemBuilder().id(1L).foodItem(foodItemOne).quantity(5F).build()],
+                Optional.empty(), Optional.empty())
+
+        when:
+        List<RecipeWithSub> matches = recipeMatchingEngine.match(recipes, compiledRecipes, inventory,
+                { id -> SubstitutionLookup.NONE } as SubstitutionLookup)
+
+        then:
+        matches.size() == 1000
+        matches*.recipe*.id == (0L..<2000L).findAll { it % 2 == 0 }
+    }
+
+    def "only the closest recipes of a large catalog should be suggested" () {
+        given:
+        // Recipe i needs i + 1 of food item 1, the user has 5 of it
+        List<Recipe> recipes = []
+        List<CompiledRecipe> compiledRecipes = []
+        for (long i = 0; i < 2000; i++) {
+            recipes.add(new RecipeBuilder().id(i).name("recipe " + i).build())
+            compiledRecipes.add(CompiledRecipe.of([new RecipeItemBuilder().id(i).foodItem(foodItemOne).quantity(i + 1F).build()]))
+        }
+        CompiledInventory inventory = CompiledInventory.of(
+                [new InventoryItemBuilder().id(1L).foodItem(foodItemOne).quantity(5F).build()],
+                Optional.empty(), Optional.empty())
+
+        when:
+        List<RecipeSuggestion> suggestions = recipeMatchingEngine.suggest(recipes, compiledRecipes, inventory, 7)
+
+        then:
+        suggestions*.recipe*.id == [0L, 1L, 2L, 3L, 4L, 5L, 6L]
+        suggestions*.missingCount == [0, 0, 0, 0, 0, 1, 1]
+        suggestions*.missingQuantity == [0F, 0F, 0F, 0F, 0F, 1F, 2F]
+        suggestions.get(6).missingFoodIds == [1L]
+    }
+
+    def "a parallelism below 1 should use every core" () {
+        when:
+        RecipeMatchingEngine engine = new RecipeMatchingEngine(0)
+
+        then:
+        engine.parallelism == Runtime.getRuntime().availableProcessors()
+
+        cleanup:
+        engine.shutdown()
+    }
+}
@@ -0,0 +1,116 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.dao.Recipe
+import com.finalproject.demeter.repository.RecipeRepository
+import com.finalproject.demeter.util.RecipeBuilder
+import spock.lang.Specification
+
+class RecipeTextIndexSpec extends Specification {
+    RecipeRepository recipeRepository = Mock()
+    RecipeTextIndex index = new RecipeTextIndex(recipeRepository)
+
+    def setup() {
+        recipeRepository.findPublicRecipeText() >> [
+                [1L, "Chicken Soup", "A warm soup with chicken and carrots"] as Object[],
+                [2L, "Tomato Soup", "Tomatoes and cream"] as Object[],
+                [3L, "Grilled Chicken", "Chicken on the grill"] as Object[],
+                [4L, "Salad", "Lettuce, no chicken here"] as Object[]
+        ]
+        index.rebuild()
+    }
+
+    def "a search ignores case and ranks name matches above description matches" () {
+        when:
+        RecipeTextIndex.SearchResult result = index.search("CHICKEN", 0, 10)
+
+        then:
+        result.totalMatches == 3
+        result.recipeIds.last() == 4L
+        result.recipeIds as Set == [1L, 3L, 4L] as Set
+    }
+
+    def "only recipes with every query term match and partial words match longer terms" () {
+        expect:
+        index.search("chick soup", 0, 10).recipeIds == [1L]
+        index.search("tomato", 0, 10).recipeIds == [2L]
+        index.search("chicken beef", 0, 10).totalMatches == 0
+        index.search("  ", 0, 10).totalMatches == 0
+    }
+
+    def "the offset and limit select a page of the ranked matches" () {
+        when:
+        List<Long> all = index.search("chicken", 0, 10).recipeIds
+
+        then:
+        index.search("chicken", 0, 2).recipeIds == all.subList(0, 2)
+        index.search("chicken", 2, 2).recipeIds == all.subList(2, 3)
+        index.search("chicken", 2, 2).totalMatches == 3
+    }
+
+    def "added recipes are searchable and removed recipes are not" () {
+        given:
+        Recipe recipe = new RecipeBuilder().id(5L).name("Pumpkin Pie").description("Sweet").build()
+
+        when:
+        index.addRecipe(recipe)
+        index.removeRecipe(1L)
+
+        then:
+        index.search("pumpkin", 0, 10).recipeIds == [5L]
+        !index.search("soup", 0, 10).recipeIds.contains(1L)
+    }
+
+    def "recipes added or removed while the index is rebuilt are kept after the rebuild" () {
+        given:
+        RecipeRepository slowRepository = Mock()
+        RecipeTextIndex rebuiltIndex = new RecipeTextIndex(slowRepository)
+        slowRepository.findPublicRecipeText() >> {
+            // Published and removed after the catalog was read
+            rebuiltIndex.addRecipe(new RecipeBuilder().id(5L).name("Pumpkin Pie").description("Sweet").build())
+            rebuiltIndex.removeRecipe(2L)
+            [[1L, "Chicken Soup", "A warm soup"] as Object[], [2L, "Tomato Soup", "Tomatoes"] as Object[]]
+        }
+
+        when:
+        rebuiltIndex.rebuild()
+
+        then:
+        rebuiltIndex.search("pumpkin", 0, 10).recipeIds == [5L]
+        rebuiltIndex.search("soup", 0, 10).recipeIds == [1L]
+    }
+
+    def "scores from one search do not leak into the next" () {
+        given:
+        List<Long> soup = index.search("soup", 0, 10).recipeIds
+
+        when:
+        3.times { index.search("chicken", 0, 10) }
+
+        then:
+        index.search("soup", 0, 10).recipeIds == soup
+        index.search("chicken soup", 0, 10).recipeIds == [1L]
+    }
+
+    def "a partial word matches every longer term, not only the first ones" () {
+        given:
+        // 99 terms starting with "p" that sort before the one recipe 199 has
+        (100..198).each { index.addRecipe(new RecipeBuilder().id(it).name("p$it").description("").build()) }
+        index.addRecipe(new RecipeBuilder().id(199L).name("Pumpkin").description("").build())
+
+        when:
+        RecipeTextIndex.SearchResult result = index.search("p", 0, 200)
+
+        then:
+        result.totalMatches == 100
+        result.recipeIds.contains(199L)
+        index.search("pu", 0, 10).recipeIds == [199L]
+    }
+
+    def "searching after a recipe returns the same matches in id order" () {
+        expect:
+        index.searchAfter("chicken", 0L, 10) == [1L, 3L, 4L]
+        index.searchAfter("chicken", 1L, 1) == [3L]
+        index.searchAfter("chicken", 4L, 10) == []
+        index.searchAfter("chick soup", 0L, 10) == [1L]
+    }
+}
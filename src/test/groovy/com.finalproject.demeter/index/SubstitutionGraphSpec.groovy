@@ -0,0 +1,45 @@
+package com.finalproject.demeter.index
+
+import com.finalproject.demeter.repository.SubstitutionsRepository
+import com.finalproject.demeter.util.FoodItemBuilder
+import com.finalproject.demeter.util.InventoryItemBuilder
+import spock.lang.Specification
+
+class SubstitutionGraphSpec extends Specification {
+    SubstitutionsRepository substitutionsRepository = Mock()
+    SubstitutionGraph substitutionGraph = new SubstitutionGraph(substitutionsRepository)
+
+    def setup() {
+        substitutionsRepository.findAllPairs() >> [
+                [5L, 9L] as Object[], [1L, 3L] as Object[], [5L, 2L] as Object[], [1L, 2L] as Object[]
+        ]
+    }
+
+    def "substitutes should be returned in ascending order" () {
+        expect:
+        substitutionGraph.getSubstitutes(1L) == [2L, 3L] as long[]
+        substitutionGraph.getSubstitutes(5L) == [2L, 9L] as long[]
+        substitutionGraph.getSubstitutes(4L).length == 0
+    }
+
+    def "only a substitute the user has should be found" () {
+        given:
+        CompiledInventory inventory = CompiledInventory.of(
+                [new InventoryItemBuilder().id(1L).foodItem(new FoodItemBuilder().id(9L).build()).quantity(1F).build()],
+                Optional.empty(), Optional.empty())
+
+        expect:
+        substitutionGraph.findSubstitute(5L, inventory) == 9L
+        substitutionGraph.findSubstitute(1L, inventory) == SubstitutionLookup.NONE
+        substitutionGraph.findSubstitute(7L, inventory) == SubstitutionLookup.NONE
+    }
+
+    def "the graph should only be loaded once until it is rebuilt" () {
+        when:
+        substitutionGraph.getSubstitutes(1L)
+        substitutionGraph.getSubstitutes(5L)
+
+        then:
+        1 * substitutionsRepository.findAllPairs() >> []
+    }
+}
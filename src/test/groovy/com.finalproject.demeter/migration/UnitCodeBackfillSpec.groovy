@@ -0,0 +1,122 @@
+package com.finalproject.demeter.migration
+
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.repository.FoodItemRepository
+import com.finalproject.demeter.repository.InventoryRepository
+import com.finalproject.demeter.repository.UserRepository
+import com.finalproject.demeter.units.UnitCodeConverter
+import com.finalproject.demeter.units.VolumetricUnit
+import com.finalproject.demeter.units.WeightUnit
+import com.finalproject.demeter.util.FoodItemBuilder
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+@DataJpaTest
+// Adding the old string column commits, so the test must not run in a transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UnitCodeBackfillSpec extends Specification {
+    @Autowired
+    JdbcTemplate jdbcTemplate
+    @Autowired
+    PlatformTransactionManager transactionManager
+    @Autowired
+    InventoryRepository inventoryRepository
+    @Autowired
+    UserRepository userRepository
+    @Autowired
+    FoodItemRepository foodItemRepository
+
+    User user
+    UnitCodeBackfill backfill
+
+    void setup() {
+        user = new User()
+        user.username = "jSmith"
+        user.password = "testingPassword1!"
+        user.firstName = "John"
+        user.lastName = "Smith"
+        user.email = "johns@gmail.com"
+        user = userRepository.save(user)
+        backfill = new UnitCodeBackfill(jdbcTemplate, new TransactionTemplate(transactionManager))
+    }
+
+    void cleanup() {
+        jdbcTemplate.execute("ALTER TABLE inventory_items DROP COLUMN IF EXISTS unit")
+        inventoryRepository.deleteAll()
+        foodItemRepository.deleteAll()
+        userRepository.deleteAll()
+    }
+
+    def "items saved with a unit string should get the code of that unit" () {
+        given:
+        jdbcTemplate.execute("ALTER TABLE inventory_items ADD COLUMN unit VARCHAR(255)")
+        InventoryItem grams = legacyItem("rice", "g")
+        InventoryItem cups = legacyItem("milk", "cups")
+        InventoryItem unknown = legacyItem("basil", "handful")
+
+        when:
+        backfill.afterSingletonsInstantiated()
+
+        then:
+        unitCode(grams) == UnitCodeConverter.toCode(WeightUnit.G)
+        unitCode(cups) == UnitCodeConverter.toCode(VolumetricUnit.CUP)
+        unitCode(unknown) == UnitCodeConverter.toCode(VolumetricUnit.DEFAULT)
+
+        and: "the old strings are kept"
+        jdbcTemplate.queryForObject("SELECT unit FROM inventory_items WHERE id = ?", String, unknown.id) == "handful"
+    }
+
+    def "items that already have a code should be left alone" () {
+        given:
+        jdbcTemplate.execute("ALTER TABLE inventory_items ADD COLUMN unit VARCHAR(255)")
+        InventoryItem item = savedItem("rice", WeightUnit.KG)
+        jdbcTemplate.update("UPDATE inventory_items SET unit = 'g' WHERE id = ?", item.id)
+
+        when:
+        backfill.afterSingletonsInstantiated()
+
+        then:
+        unitCode(item) == UnitCodeConverter.toCode(WeightUnit.KG)
+    }
+
+    def "a database that never had the string columns should be left alone" () {
+        given:
+        InventoryItem item = savedItem("rice", WeightUnit.KG)
+
+        when:
+        backfill.afterSingletonsInstantiated()
+
+        then:
+        noExceptionThrown()
+        unitCode(item) == UnitCodeConverter.toCode(WeightUnit.KG)
+    }
+
+    private InventoryItem legacyItem(String food, String unit) {
+        InventoryItem item = savedItem(food, WeightUnit.G)
+        jdbcTemplate.update("UPDATE inventory_items SET unit = ?, unit_code = NULL WHERE id = ?", unit, item.id)
+        return item
+    }
+
+    private InventoryItem savedItem(String food, def unit) {
+        FoodItem foodItem = foodItemRepository.save(new FoodItemBuilder().name(food).description(food)
+                .reusable(false).picUrl("randomUrl").build())
+        InventoryItem item = new InventoryItem()
+        item.userId = user
+        item.foodId = foodItem
+        item.quantity = 1F
+        item.unit = unit
+        return inventoryRepository.save(item)
+    }
+
+    private Short unitCode(InventoryItem item) {
+        return jdbcTemplate.queryForObject("SELECT unit_code FROM inventory_items WHERE id = ?", Short, item.id)
+    }
+}
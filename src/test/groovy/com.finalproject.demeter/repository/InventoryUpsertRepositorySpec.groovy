@@ -0,0 +1,112 @@
+package com.finalproject.demeter.repository
+
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.units.WeightUnit
+import com.finalproject.demeter.util.FoodItemBuilder
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.context.annotation.Import
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+@DataJpaTest
+@Import(InventoryUpsertRepository)
+// The worker threads need to see the committed user and food item, so the test must not run in a transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryUpsertRepositorySpec extends Specification {
+    @Autowired
+    InventoryUpsertRepository inventoryUpsertRepository
+    @Autowired
+    InventoryRepository inventoryRepository
+    @Autowired
+    UserRepository userRepository
+    @Autowired
+    FoodItemRepository foodItemRepository
+
+    User user
+    FoodItem foodItem
+
+    void setup() {
+        user = new User()
+        user.username = "jSmith"
+        user.password = "testingPassword1!"
+        user.firstName = "John"
+        user.lastName = "Smith"
+        user.email = "johns@gmail.com"
+        user = userRepository.save(user)
+        foodItem = foodItemRepository.save(new FoodItemBuilder().name("rice").description("rice")
+                .reusable(false).picUrl("randomUrl").build())
+    }
+
+    void cleanup() {
+        inventoryRepository.deleteAll()
+        foodItemRepository.deleteAll()
+        userRepository.deleteAll()
+    }
+
+    def "adding to an item the user does not have creates it, adding again increases it" () {
+        when:
+        inventoryUpsertRepository.addQuantity(user.id, foodItem.id, 2F, WeightUnit.G)
+        inventoryUpsertRepository.addQuantity(user.id, foodItem.id, 3F, WeightUnit.G)
+
+        then:
+        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user)
+        inventory.size() == 1
+        inventory.get(0).quantity == 5F
+        inventory.get(0).unit == WeightUnit.G
+    }
+
+    def "only existing items are changed by addToExistingQuantity and only empty items are deleted" () {
+        given:
+        inventoryUpsertRepository.addQuantity(user.id, foodItem.id, 5F, WeightUnit.G)
+
+        expect:
+        inventoryUpsertRepository.addToExistingQuantity(user.id, foodItem.id + 1, -1F, WeightUnit.G).isEmpty()
+        inventoryUpsertRepository.addToExistingQuantity(user.id, foodItem.id, -2F, WeightUnit.G) == Optional.of(3F)
+        !inventoryUpsertRepository.deleteIfBelow(user.id, foodItem.id, 0.000001F)
+        inventoryUpsertRepository.addToExistingQuantity(user.id, foodItem.id, -3F, WeightUnit.G) == Optional.of(0F)
+        inventoryUpsertRepository.deleteIfBelow(user.id, foodItem.id, 0.000001F)
+        inventoryRepository.findInventoryItemByUserId(user).isEmpty()
+    }
+
+    def "concurrent changes to the same item are never lost" () {
+        given:
+        int threads = 16
+        int changesPerThread = 25
+        inventoryUpsertRepository.addQuantity(user.id, foodItem.id, 1F, WeightUnit.G)
+        def pool = Executors.newFixedThreadPool(threads)
+        CountDownLatch start = new CountDownLatch(1)
+
+        when:
+        def futures = (1..threads).collect { thread ->
+            pool.submit({
+                start.await()
+                changesPerThread.times { change ->
+                    // Every other change goes through the update path so both are hammered
+                    if (change % 2 == 0) {
+                        inventoryUpsertRepository.addQuantity(user.id, foodItem.id, 2F, WeightUnit.G)
+                    } else {
+                        inventoryUpsertRepository.addToExistingQuantity(user.id, foodItem.id, -1F, WeightUnit.G)
+                    }
+                }
+                return null
+            } as Callable)
+        }
+        start.countDown()
+        futures.each { it.get() }
+        pool.shutdown()
+
+        then:
+        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user)
+        inventory.size() == 1
+        // 13 additions of 2 and 12 removals of 1 per thread, on top of the starting 1
+        inventory.get(0).quantity == 1F + threads * (13 * 2F - 12 * 1F)
+    }
+}
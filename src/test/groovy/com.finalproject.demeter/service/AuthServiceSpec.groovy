@@ -0,0 +1,93 @@
+package com.finalproject.demeter.service
+
+import com.finalproject.demeter.cache.JwtClaimsCache
+import com.finalproject.demeter.config.AuthenticatedUser
+import com.finalproject.demeter.dao.PasswordResetToken
+import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.dto.LoginDto
+import com.finalproject.demeter.dto.PasswordUpdate
+import com.finalproject.demeter.dto.UserLoginInfo
+import com.finalproject.demeter.util.JwtUtil
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.security.authentication.AuthenticationManager
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken
+import org.springframework.security.core.context.SecurityContextHolder
+import spock.lang.Specification
+
+class AuthServiceSpec extends Specification {
+    private AuthenticationManager authenticationManager = Mock()
+    private UserService userService = Mock()
+    private MailService mailService = Mock()
+    private JwtUtil jwtUtil = new JwtUtil(new JwtClaimsCache(0))
+    private AuthService authService = new AuthService(authenticationManager, userService, mailService, jwtUtil)
+    private User user = new User()
+
+    void setup(){
+        user.id = 7L
+        user.username = "jsmith"
+        user.firstName = "John"
+        user.lastName = "Smith"
+        user.email = "johns@gmail.com"
+    }
+
+    void cleanup(){
+        SecurityContextHolder.clearContext()
+    }
+
+    def "logging in should build the token and login info from the authenticated user without another lookup" () {
+        given:
+        LoginDto loginDto = new LoginDto()
+        loginDto.username = "JSmith"
+        loginDto.password = "testingPassword1!"
+        AuthenticatedUser principal = new AuthenticatedUser(user, null, [] as Set)
+        authenticationManager.authenticate(_) >> new UsernamePasswordAuthenticationToken(principal, null, [])
+
+        when:
+        ResponseEntity<?> response = authService.authenticateUser(loginDto)
+        UserLoginInfo info = response.getBody() as UserLoginInfo
+        String token = info.token.substring(7)
+
+        then:
+        0 * userService._
+        response.getStatusCode() == HttpStatus.OK
+        info.firstName == "John"
+        info.email == "johns@gmail.com"
+        jwtUtil.extractEmail(token) == "johns@gmail.com"
+        jwtUtil.extractUserId(jwtUtil.extractAllClaims(token)) == Optional.of(7L)
+    }
+
+    def "updating the password should look the reset token up once" () {
+        given:
+        PasswordUpdate passwordUpdate = new PasswordUpdate()
+        passwordUpdate.token = "resetToken"
+        passwordUpdate.oldPassword = "testingPassword1!"
+        passwordUpdate.newPassword = "newTestingPassword1!"
+        PasswordResetToken resetToken = new PasswordResetToken(user, "resetToken")
+        authenticationManager.authenticate(_) >> new UsernamePasswordAuthenticationToken(user.username, null, [])
+
+        when:
+        ResponseEntity<Void> response = authService.updatePassword(passwordUpdate)
+
+        then:
+        1 * userService.findValidPasswordResetToken("resetToken") >> Optional.of(resetToken)
+        1 * userService.updateUserPassword(user, "newTestingPassword1!")
+        1 * userService.removePasswordResetToken(resetToken)
+        0 * userService._
+        response.getStatusCode() == HttpStatus.ACCEPTED
+    }
+
+    def "updating the password with an unknown or expired reset token should fail" () {
+        given:
+        PasswordUpdate passwordUpdate = new PasswordUpdate()
+        passwordUpdate.token = "resetToken"
+        userService.findValidPasswordResetToken("resetToken") >> Optional.empty()
+
+        when:
+        ResponseEntity<Void> response = authService.updatePassword(passwordUpdate)
+
+        then:
+        response.getStatusCode() == HttpStatus.NOT_FOUND
+        0 * authenticationManager._
+    }
+}
@@ -1,20 +1,31 @@
 package com.finalproject.demeter.service
 
+import com.finalproject.demeter.cache.FoodItemRegistry
 import com.finalproject.demeter.dao.FoodItem
 import com.finalproject.demeter.dao.Substitution
 import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.index.FoodNameIndex
+import com.finalproject.demeter.index.SubstitutionGraph
 import com.finalproject.demeter.repository.FoodItemRepository
 import com.finalproject.demeter.repository.InventoryRepository
 import com.finalproject.demeter.repository.SubstitutionsRepository
 import com.finalproject.demeter.util.FoodItemBuilder
+import org.springframework.data.domain.PageImpl
+import org.springframework.data.domain.PageRequest
+import org.springframework.data.domain.Sort
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
 import spock.lang.Specification
 
 class FoodServiceSpec extends Specification{
     private FoodItemRepository foodItemRepository = Mock()
     private SubstitutionsRepository substitutionsRepository = Mock()
     private InventoryRepository inventoryRepository = Mock()
+    private SubstitutionGraph substitutionGraph = new SubstitutionGraph(substitutionsRepository)
+    private FoodNameIndex foodNameIndex = new FoodNameIndex(foodItemRepository)
+    private FoodItemRegistry foodItemRegistry = new FoodItemRegistry(foodItemRepository)
     private FoodService foodService = new FoodService(foodItemRepository,
-                                            inventoryRepository, substitutionsRepository)
+                                            inventoryRepository, substitutionGraph, foodNameIndex, foodItemRegistry)
     private List<FoodItem> foodList = new ArrayList<>();
     List<Substitution> possibleSubs = new ArrayList<>()
     List<Long> foodItemIds = new ArrayList<>()
@@ -55,9 +66,9 @@ class FoodServiceSpec extends Specification{
 
     def "return substitutions"() {
         given:
-        substitutionsRepository.findByMissingItemId(90L) >> possibleSubs
+        substitutionsRepository.findAllPairs() >> possibleSubs.collect { [it.missingItem.id, it.id] as Object[] }
         inventoryRepository.getUserInventoryFoodItemIdsByUserId(user.getId()) >> foodItemIds
-        foodItemRepository.findFoodItemById(40L) >> foundFoodItem
+        foodItemRepository.findById(40L) >> Optional.of(foundFoodItem)
 
         when:
         List<FoodItem> response = foodService.getSubItems(user, 90)
@@ -65,4 +76,60 @@ class FoodServiceSpec extends Specification{
         then:
         response.get(0).getId() == 40L
     }
+
+    def "no substitutions should be returned when the user has none of the substitutes"() {
+        given:
+        substitutionsRepository.findAllPairs() >> possibleSubs.collect { [it.missingItem.id, it.id] as Object[] }
+        inventoryRepository.getUserInventoryFoodItemIdsByUserId(user.getId()) >> [41L]
+
+        when:
+        List<FoodItem> response = foodService.getSubItems(user, 90)
+
+        then:
+        response.isEmpty()
+        0 * foodItemRepository.findById(_)
+    }
+
+    def "a page of the food catalog should be returned with the number of pages"() {
+        when:
+        ResponseEntity response = foodService.getFoodItemPage(1, 1)
+
+        then:
+        1 * foodItemRepository.findAll(PageRequest.of(1, 1, Sort.by("id"))) >> new PageImpl<FoodItem>([foundFoodItem], PageRequest.of(1, 1), 2)
+        response.statusCode == HttpStatus.OK
+        response.body["count"] == 2
+        response.body["results"] == [foundFoodItem]
+    }
+
+    def "an invalid page of the food catalog should be rejected"() {
+        when:
+        ResponseEntity response = foodService.getFoodItemPage(-1, 10)
+
+        then:
+        0 * foodItemRepository.findAll(_)
+        response.statusCode == HttpStatus.BAD_REQUEST
+    }
+
+    def "typeahead should return the ids and names of matching food items"() {
+        given:
+        foodItemRepository.findAllNames() >> [[40L, "Chicken Breast"] as Object[], [90L, "Rice"] as Object[]]
+        foodNameIndex.rebuild()
+
+        when:
+        ResponseEntity response = foodService.getFoodTypeahead("chi", null)
+
+        then:
+        response.statusCode == HttpStatus.OK
+        response.body.collect { it.id } == [40L]
+        response.body.collect { it.name } == ["Chicken Breast"]
+    }
+
+    def "typeahead should reject a limit below 1"() {
+        when:
+        ResponseEntity response = foodService.getFoodTypeahead("chi", 0)
+
+        then:
+        response.statusCode == HttpStatus.BAD_REQUEST
+        response.body == "The limit must be greater than 0"
+    }
 }
@@ -0,0 +1,160 @@
+package com.finalproject.demeter.service
+
+import com.finalproject.demeter.cache.FoodItemRegistry
+import com.finalproject.demeter.cache.MatchResultCache
+import com.finalproject.demeter.cache.UnitPreferenceCache
+import com.finalproject.demeter.dao.FoodItem
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.dto.UpdateInventory
+import com.finalproject.demeter.repository.DislikedItemRepository
+import com.finalproject.demeter.repository.FoodItemRepository
+import com.finalproject.demeter.repository.InventoryRepository
+import com.finalproject.demeter.repository.InventoryUpsertRepository
+import com.finalproject.demeter.repository.MinorItemRepository
+import com.finalproject.demeter.repository.PasswordTokenRepository
+import com.finalproject.demeter.repository.UserPreferenceRepository
+import com.finalproject.demeter.repository.UserRepository
+import com.finalproject.demeter.units.WeightUnit
+import com.finalproject.demeter.util.FoodItemBuilder
+import com.finalproject.demeter.util.InventoryItemBuilder
+import com.finalproject.demeter.util.JwtUtil
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.security.crypto.password.PasswordEncoder
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+@DataJpaTest
+@Import(InventoryUpsertRepository)
+// The service runs its own transactions and the worker threads need to see the committed rows
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryBatchUpdateSpec extends Specification {
+    @Autowired
+    PlatformTransactionManager transactionManager
+    @Autowired
+    UserRepository userRepository
+    @Autowired
+    FoodItemRepository foodItemRepository
+    @Autowired
+    InventoryRepository inventoryRepository
+    @Autowired
+    InventoryUpsertRepository inventoryUpsertRepository
+    @Autowired
+    PasswordTokenRepository passwordTokenRepository
+    @Autowired
+    MinorItemRepository minorItemRepository
+    @Autowired
+    DislikedItemRepository dislikedItemRepository
+    @Autowired
+    UserPreferenceRepository userPreferenceRepository
+
+    UserService userService
+    User user
+    FoodItem rice
+    FoodItem beans
+
+    void setup() {
+        userService = new UserService(userRepository, Mock(PasswordEncoder), passwordTokenRepository,
+                new FoodItemRegistry(foodItemRepository), inventoryRepository, minorItemRepository, Mock(JwtUtil),
+                dislikedItemRepository, userPreferenceRepository, new MatchResultCache(10, 600000),
+                inventoryUpsertRepository, new UnitPreferenceCache(10), new TransactionTemplate(transactionManager))
+
+        user = new User()
+        user.username = "jSmith"
+        user.password = "testingPassword1!"
+        user.firstName = "John"
+        user.lastName = "Smith"
+        user.email = "johns@gmail.com"
+        user = userRepository.save(user)
+        rice = foodItemRepository.save(new FoodItemBuilder().name("rice").description("rice")
+                .reusable(false).picUrl("randomUrl").build())
+        beans = foodItemRepository.save(new FoodItemBuilder().name("beans").description("beans")
+                .reusable(false).picUrl("randomUrl").build())
+        inventoryRepository.save(new InventoryItemBuilder().userId(user).foodItem(rice).quantity(10F)
+                .unit(WeightUnit.G).build())
+    }
+
+    void cleanup() {
+        inventoryRepository.deleteAll()
+        foodItemRepository.deleteAll()
+        userRepository.deleteAll()
+    }
+
+    def "a rejected batch leaves every inventory row as it was" () {
+        given:
+        // The first change is valid, the second takes away an item the user does not have
+        List<UpdateInventory> changes = [change(rice.id, 5F), change(beans.id, -3F)]
+
+        when:
+        ResponseEntity re = userService.updateInventory(user, changes)
+
+        then:
+        re.statusCode == HttpStatus.BAD_REQUEST
+        re.body == "Invalid Quantity"
+        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user)
+        inventory.size() == 1
+        inventory[0].quantity == 10F
+    }
+
+    def "an accepted batch writes every change" () {
+        when:
+        ResponseEntity re = userService.updateInventory(user, [change(rice.id, 5F), change(beans.id, 3F)])
+
+        then:
+        re.statusCode == HttpStatus.OK
+        inventoryRepository.findInventoryItemByUserId(user)
+                .collectEntries { [(it.foodId.id): it.quantity] } == [(rice.id): 15F, (beans.id): 3F]
+    }
+
+    def "concurrent bulk and single updates of the same item are never lost" () {
+        given:
+        int threads = 8
+        int changesPerThread = 10
+        def pool = Executors.newFixedThreadPool(threads)
+        CountDownLatch start = new CountDownLatch(1)
+
+        when:
+        def futures = (1..threads).collect { thread ->
+            pool.submit({
+                start.await()
+                changesPerThread.times { i ->
+                    if (i % 2 == 0) {
+                        assert userService.updateInventory(user, [change(rice.id, 2F), change(rice.id, -1F)])
+                                .statusCode == HttpStatus.OK
+                    } else {
+                        userService.updateInventory(user, change(rice.id, 1F))
+                    }
+                }
+                return null
+            } as Callable)
+        }
+        start.countDown()
+        futures.each { it.get() }
+        pool.shutdown()
+
+        then:
+        List<InventoryItem> inventory = inventoryRepository.findInventoryItemByUserId(user)
+        inventory.size() == 1
+        // Every change adds 1 to the starting 10
+        inventory[0].quantity == 10F + threads * changesPerThread
+    }
+
+    private static UpdateInventory change(long foodId, float grams) {
+        UpdateInventory update = new UpdateInventory()
+        update.setFoodId(foodId)
+        update.setQuantity(grams)
+        update.setUnit("grams")
+        return update
+    }
+}
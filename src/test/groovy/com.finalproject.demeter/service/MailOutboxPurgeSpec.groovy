@@ -0,0 +1,54 @@
+package com.finalproject.demeter.service
+
+import com.finalproject.demeter.dao.OutboxMail
+import com.finalproject.demeter.repository.MailOutboxRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import spock.lang.Specification
+
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+
+@DataJpaTest
+class MailOutboxPurgeSpec extends Specification {
+    @Autowired
+    MailOutboxRepository mailOutboxRepository
+
+    def "finished mails past the retention should be deleted and pending or recent mails kept" () {
+        given:
+        MailOutboxPurge purge = new MailOutboxPurge(mailOutboxRepository, 86400000, 2, 100)
+        (1..3).each { mailOutboxRepository.save(mail("sent$it", OutboxMail.Status.SENT, -2)) }
+        mailOutboxRepository.save(mail("failed", OutboxMail.Status.FAILED, -2))
+        mailOutboxRepository.save(mail("pending", OutboxMail.Status.PENDING, -2))
+        mailOutboxRepository.save(mail("recent", OutboxMail.Status.SENT, 0))
+
+        when:
+        int deleted = purge.purgeFinishedMails()
+
+        then:
+        deleted == 4
+        mailOutboxRepository.findAll()*.subject.sort() == ["pending", "recent"]
+    }
+
+    def "a run should stop after its last batch and leave the rest to the next run" () {
+        given:
+        MailOutboxPurge purge = new MailOutboxPurge(mailOutboxRepository, 86400000, 2, 1)
+        (1..3).each { mailOutboxRepository.save(mail("sent$it", OutboxMail.Status.SENT, -2)) }
+
+        expect:
+        purge.purgeFinishedMails() == 2
+        purge.purgeFinishedMails() == 1
+        mailOutboxRepository.findAll().isEmpty()
+    }
+
+    private static OutboxMail mail(String subject, OutboxMail.Status status, long createdDaysAgo) {
+        OutboxMail mail = new OutboxMail()
+        mail.recipient = "johns@gmail.com"
+        mail.sender = "demeter@gmail.com"
+        mail.subject = subject
+        mail.status = status
+        mail.createdAt = Instant.now().plus(createdDaysAgo, ChronoUnit.DAYS)
+        mail.nextAttemptAt = mail.createdAt
+        return mail
+    }
+}
@@ -0,0 +1,180 @@
+package com.finalproject.demeter.service
+
+import com.finalproject.demeter.dao.OutboxMail
+import com.finalproject.demeter.repository.MailOutboxRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.mail.MailSendException
+import org.springframework.mail.SimpleMailMessage
+import org.springframework.mail.javamail.JavaMailSenderImpl
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import java.util.concurrent.CopyOnWriteArrayList
+
+@DataJpaTest
+// The sender threads need to see the committed mails, so the test must not run in a transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxWorkerSpec extends Specification {
+    @Autowired
+    MailOutboxRepository mailOutboxRepository
+
+    StandInMailSender mailSender = new StandInMailSender()
+    PollingConditions conditions = new PollingConditions(timeout: 5)
+    MailOutboxWorker worker
+
+    void setup() {
+        worker = new MailOutboxWorker(mailOutboxRepository, mailSender, 2, 2, 0, 0, 300000)
+    }
+
+    void cleanup() {
+        worker.shutdown()
+        mailOutboxRepository.deleteAll()
+    }
+
+    def "a queued mail should be sent in the background and marked as sent" () {
+        given:
+        OutboxMail mail = mailOutboxRepository.save(queuedMail("johns@gmail.com"))
+
+        when:
+        int dispatched = worker.poll()
+
+        then:
+        dispatched == 1
+        conditions.eventually {
+            assert mailOutboxRepository.findById(mail.id).get().status == OutboxMail.Status.SENT
+        }
+        mailOutboxRepository.findById(mail.id).get().body == null
+        mailSender.sent*.to.flatten() == ["johns@gmail.com"]
+        mailSender.sent*.text == ["test body"]
+        worker.getSentMails() == 1
+        worker.getPendingMails() == 0
+    }
+
+    def "a mail that can not be sent should be retried and given up on after the last attempt" () {
+        given:
+        mailSender.failing = true
+        OutboxMail mail = mailOutboxRepository.save(queuedMail("johns@gmail.com"))
+
+        when:
+        worker.poll()
+
+        then:
+        conditions.eventually {
+            OutboxMail stored = mailOutboxRepository.findById(mail.id).get()
+            assert stored.status == OutboxMail.Status.PENDING
+            assert stored.attempts == 1
+            assert stored.lastError == "mail server is down"
+        }
+
+        when:
+        worker.poll()
+
+        then:
+        conditions.eventually {
+            assert mailOutboxRepository.findById(mail.id).get().status == OutboxMail.Status.FAILED
+        }
+        mailOutboxRepository.findById(mail.id).get().body == null
+        worker.getFailedAttempts() == 2
+        worker.getAbandonedMails() == 1
+    }
+
+    def "a mail should only be claimed once while its claim lasts" () {
+        given:
+        OutboxMail mail = mailOutboxRepository.save(queuedMail("johns@gmail.com"))
+        Instant now = Instant.now()
+
+        expect:
+        mailOutboxRepository.claim(mail.id, now, now.plusSeconds(60)) == 1
+        mailOutboxRepository.claim(mail.id, now, now.plusSeconds(60)) == 0
+        mailOutboxRepository.claim(mail.id, now.plusSeconds(61), now.plusSeconds(120)) == 1
+    }
+
+    def "a sender whose claim was taken over should not finish the mail" () {
+        given:
+        OutboxMail mail = mailOutboxRepository.save(queuedMail("johns@gmail.com"))
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS)
+        mailOutboxRepository.claim(mail.id, now, now.plusSeconds(60))
+        // The first claim ran out and another sender claimed the mail
+        mailOutboxRepository.claim(mail.id, now.plusSeconds(61), now.plusSeconds(120))
+
+        expect:
+        mailOutboxRepository.markSent(mail.id, 1, now) == 0
+        mailOutboxRepository.reschedule(mail.id, 1, now, "timed out") == 0
+        mailOutboxRepository.markFailed(mail.id, 1, "timed out") == 0
+
+        and:
+        OutboxMail stored = mailOutboxRepository.findById(mail.id).get()
+        stored.status == OutboxMail.Status.SENDING
+        stored.attempts == 2
+        stored.nextAttemptAt == now.plusSeconds(120)
+        stored.body == "test body"
+
+        and:
+        mailOutboxRepository.markSent(mail.id, 2, now) == 1
+        mailOutboxRepository.findById(mail.id).get().status == OutboxMail.Status.SENT
+    }
+
+    def "no more mails should be handed out than there are senders" () {
+        given:
+        mailSender.blocked = true
+        (1..5).each { mailOutboxRepository.save(queuedMail("user${it}@gmail.com")) }
+
+        when:
+        int first = worker.poll()
+        int second = worker.poll()
+
+        then:
+        first == 2
+        second == 0
+
+        cleanup:
+        mailSender.release()
+        conditions.eventually {
+            assert worker.getPendingMails() == 3
+        }
+    }
+
+    private static OutboxMail queuedMail(String recipient) {
+        OutboxMail mail = new OutboxMail()
+        mail.recipient = recipient
+        mail.sender = "demeter@gmail.com"
+        mail.subject = "Demeter: Reset Password"
+        mail.body = "test body"
+        mail.status = OutboxMail.Status.PENDING
+        mail.createdAt = Instant.now()
+        mail.nextAttemptAt = Instant.now()
+        return mail
+    }
+
+    /**
+     * Stand-in for the smtp server, records what it was asked to send.
+     * */
+    static class StandInMailSender extends JavaMailSenderImpl {
+        List<SimpleMailMessage> sent = new CopyOnWriteArrayList<>()
+        volatile boolean failing = false
+        volatile boolean blocked = false
+
+        @Override
+        void send(SimpleMailMessage... simpleMessages) {
+            synchronized (this) {
+                while (blocked) {
+                    wait()
+                }
+            }
+            if (failing) {
+                throw new MailSendException("mail server is down")
+            }
+            sent.addAll(simpleMessages)
+        }
+
+        synchronized void release() {
+            blocked = false
+            notifyAll()
+        }
+    }
+}
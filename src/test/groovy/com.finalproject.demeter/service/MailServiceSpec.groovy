@@ -1,6 +1,8 @@
 package com.finalproject.demeter.service
 
+import com.finalproject.demeter.dao.OutboxMail
 import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.repository.MailOutboxRepository
 import org.springframework.context.MessageSource
 import org.springframework.mail.SimpleMailMessage
 import org.springframework.mail.javamail.JavaMailSender
@@ -9,7 +11,8 @@ import spock.lang.Specification
 class MailServiceSpec extends Specification{
     private MessageSource messageSource = Mock()
     private JavaMailSender mailSender = Mock()
-    private MailService mailService = new MailService(messageSource, mailSender)
+    private MailOutboxRepository mailOutboxRepository = Mock()
+    private MailService mailService = new MailService(messageSource, mailSender, mailOutboxRepository)
     private User user = new User()
 
     void setup(){
@@ -27,4 +30,19 @@ class MailServiceSpec extends Specification{
         then:
         message.getSubject() == "test subject"
     }
+
+    def "queueMessage should store the message in the outbox instead of sending it" () {
+        given:
+        SimpleMailMessage message = mailService.constructEmail("test subject", "test body", user)
+
+        when:
+        mailService.queueMessage(message)
+
+        then:
+        0 * mailSender._
+        1 * mailOutboxRepository.saveAll({ List<OutboxMail> mails ->
+            mails.size() == 1 && mails[0].recipient == "johns@gmail.com" && mails[0].subject == "test subject"
+                    && mails[0].status == OutboxMail.Status.PENDING && mails[0].nextAttemptAt != null
+        })
+    }
 }
@@ -0,0 +1,89 @@
+package com.finalproject.demeter.service
+
+import com.finalproject.demeter.dao.PasswordResetToken
+import com.finalproject.demeter.dao.User
+import com.finalproject.demeter.repository.PasswordTokenRepository
+import com.finalproject.demeter.repository.UserRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.dao.DataIntegrityViolationException
+import spock.lang.Specification
+
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+
+@DataJpaTest
+class PasswordResetTokenPurgeSpec extends Specification {
+    @Autowired
+    PasswordTokenRepository passwordTokenRepository
+    @Autowired
+    UserRepository userRepository
+
+    User user
+
+    void setup() {
+        user = new User()
+        user.username = "jSmith"
+        user.password = "testingPassword1!"
+        user.firstName = "John"
+        user.lastName = "Smith"
+        user.email = "johns@gmail.com"
+        user = userRepository.save(user)
+    }
+
+    def "expired tokens should be deleted in batches and valid tokens kept" () {
+        given:
+        PasswordResetTokenPurge purge = new PasswordResetTokenPurge(passwordTokenRepository, 2, 100)
+        (1..5).each { passwordTokenRepository.save(token("expired$it", -2)) }
+        passwordTokenRepository.save(token("valid", 1))
+
+        when:
+        int deleted = purge.purgeExpiredTokens()
+
+        then:
+        deleted == 5
+        passwordTokenRepository.findAll()*.token == ["valid"]
+    }
+
+    def "a run should stop after its last batch and leave the rest to the next run" () {
+        given:
+        PasswordResetTokenPurge purge = new PasswordResetTokenPurge(passwordTokenRepository, 2, 1)
+        (1..3).each { passwordTokenRepository.save(token("expired$it", -2)) }
+
+        expect:
+        purge.purgeExpiredTokens() == 2
+        purge.purgeExpiredTokens() == 1
+        passwordTokenRepository.findAll().isEmpty()
+    }
+
+    def "a token should be found together with its user" () {
+        given:
+        passwordTokenRepository.save(token("valid", 1))
+
+        when:
+        Optional<PasswordResetToken> found = passwordTokenRepository.findByToken("valid")
+
+        then:
+        found.get().user.email == "johns@gmail.com"
+        passwordTokenRepository.findByToken("missing").isEmpty()
+    }
+
+    def "two tokens with the same value should not be stored" () {
+        given:
+        passwordTokenRepository.saveAndFlush(token("duplicate", 1))
+
+        when:
+        passwordTokenRepository.saveAndFlush(token("duplicate", 1))
+
+        then:
+        thrown(DataIntegrityViolationException)
+    }
+
+    private PasswordResetToken token(String value, long expiresInHours) {
+        PasswordResetToken token = new PasswordResetToken()
+        token.token = value
+        token.user = user
+        token.expiryDate = Date.from(Instant.now().plus(expiresInHours, ChronoUnit.HOURS))
+        return token
+    }
+}
@@ -1,5 +1,8 @@
 package com.finalproject.demeter.service
 
+import com.finalproject.demeter.cache.FoodItemRegistry
+import com.finalproject.demeter.cache.MatchResultCache
+import com.finalproject.demeter.cache.RecipeItemViewCache
 import com.finalproject.demeter.dao.DislikedItem
 import com.finalproject.demeter.dao.FavoriteRecipe
 import com.finalproject.demeter.dao.FoodItem
@@ -10,13 +13,22 @@ import com.finalproject.demeter.dao.Recipe
 import com.finalproject.demeter.dao.RecipeItem
 import com.finalproject.demeter.dao.RecipeReview
 import com.finalproject.demeter.dao.User
-import com.finalproject.demeter.dao.UserPreference
 import com.finalproject.demeter.dto.AddRecipeReview
+import com.finalproject.demeter.dto.CursorSetting
 import com.finalproject.demeter.dto.PersonalRecipeItem
+import com.finalproject.demeter.dto.RecipeCursorPage
+import com.finalproject.demeter.dto.RecipeItemView
 import com.finalproject.demeter.dto.RecipeQuery
 import com.finalproject.demeter.dto.RecipeUpload
 import com.finalproject.demeter.dto.RecipeWithSub
 import com.finalproject.demeter.dto.UpdateRecipeReview
+import com.finalproject.demeter.index.CompiledInventory
+import com.finalproject.demeter.index.CompiledRecipe
+import com.finalproject.demeter.index.RecipeIngredientIndex
+import com.finalproject.demeter.index.RecipeMatchingEngine
+import com.finalproject.demeter.index.RecipeTextIndex
+import com.finalproject.demeter.index.SubstitutionGraph
+import com.finalproject.demeter.index.SubstitutionLookup
 import com.finalproject.demeter.repository.DislikedItemRepository
 import com.finalproject.demeter.repository.FavoriteRecipeRepository
 import com.finalproject.demeter.repository.FoodItemRepository
@@ -25,20 +37,24 @@ import com.finalproject.demeter.repository.PersonalRecipeRepository
 import com.finalproject.demeter.repository.RecipeItemRepository
 import com.finalproject.demeter.repository.RecipeRatingRepository
 import com.finalproject.demeter.repository.RecipeRepository
-import com.finalproject.demeter.repository.UserPreferenceRepository
+import com.finalproject.demeter.repository.SubstitutionsRepository
+import com.finalproject.demeter.units.WeightUnit
 import com.finalproject.demeter.util.DislikedItemBuilder
 import com.finalproject.demeter.util.FavoriteRecipeBuilder
 import com.finalproject.demeter.util.FoodItemBuilder
 import com.finalproject.demeter.util.InventoryItemBuilder
 import com.finalproject.demeter.util.MinorItemBuilder
+import com.finalproject.demeter.util.PaginationSettingBuilder
 import com.finalproject.demeter.util.PersonalRecipeBuilder
 import com.finalproject.demeter.util.PersonalRecipeItemBuilder
+import com.finalproject.demeter.util.RecipeCursor
 import com.finalproject.demeter.util.RecipeBuilder
 import com.finalproject.demeter.util.RecipeItemBuilder
-import com.finalproject.demeter.util.UserPreferencesBuilder
 import org.springframework.data.domain.PageImpl
 import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
 import spock.lang.Specification
 
 
@@ -48,15 +64,24 @@ class RecipeServiceSpec extends Specification{
     RecipeRatingRepository recipeRatingRepository = Mock()
     UserService userService = Mock()
     FoodItemRepository foodItemRepository= Mock()
+    FoodItemRegistry foodItemRegistry = new FoodItemRegistry(foodItemRepository)
     PersonalRecipeRepository personalRecipeRepository = Mock()
     DislikedItemRepository dislikedItemRepository = Mock()
     FavoriteRecipeRepository favoriteRecipeRepository = Mock()
     MinorItemRepository minorItemRepository = Mock()
-    FoodService foodService = Mock()
-    UserPreferenceRepository userPreferenceRepository = Mock()
+    SubstitutionsRepository substitutionsRepository = Stub()
+    RecipeIngredientIndex recipeIngredientIndex = new RecipeIngredientIndex(recipeItemRepository)
+    RecipeMatchingEngine recipeMatchingEngine = new RecipeMatchingEngine(1)
+    MatchResultCache matchResultCache = new MatchResultCache(100, 600000)
+    SubstitutionGraph substitutionGraph = new SubstitutionGraph(substitutionsRepository)
+    RecipeTextIndex recipeTextIndex = new RecipeTextIndex(recipeRepository)
+    RecipeItemViewCache recipeItemViewCache = new RecipeItemViewCache(100)
+    TransactionTemplate transactionTemplate = new TransactionTemplate(Stub(PlatformTransactionManager))
     RecipeService recipeService = new RecipeService(recipeRepository, recipeItemRepository, recipeRatingRepository,
-            userService, foodItemRepository, personalRecipeRepository, dislikedItemRepository, minorItemRepository,
-            favoriteRecipeRepository, foodService, userPreferenceRepository)
+            userService, foodItemRegistry, personalRecipeRepository, dislikedItemRepository, minorItemRepository,
+            favoriteRecipeRepository, recipeIngredientIndex, recipeMatchingEngine,
+            matchResultCache, substitutionGraph, recipeTextIndex, recipeItemViewCache,
+            transactionTemplate)
     User user = new User()
     FoodItem foodItemOne = null
     FoodItem foodItemTwo = null
@@ -68,6 +93,8 @@ class RecipeServiceSpec extends Specification{
     RecipeReview recipeReview = new RecipeReview()
 
     def setup(){
+        // Ratings are read for every page of matches, no reviews unless a test says otherwise
+        recipeRepository.findReviewAggregates(_) >> []
         user.id = 1L
         user.firstName = "John"
         user.lastName = "Doe"
@@ -82,7 +109,7 @@ class RecipeServiceSpec extends Specification{
             Recipe recipe = new RecipeBuilder().id(Long.valueOf(i.toString()))
                     .name(String.format("Test Recipe %d", i))
                     .description(String.format("Test Recipe %d Description", i)).isPublic(true)
-                    .avgRating(5.0F).reviewCount(10L).build()
+                    .avgRating(5.0F).reviewCount(10L).starTotal(50L).build()
             recipeList.add(recipe)
         }
 
@@ -306,7 +333,8 @@ class RecipeServiceSpec extends Specification{
 
         then:
         1 * recipeRepository.save(_)
-        2 * recipeItemRepository.save(_)
+        1 * recipeItemRepository.saveAll({ it.size() == 2 })
+        0 * recipeItemRepository.save(_)
         1 * personalRecipeRepository.save(_)
         re.body == "Recipe Successfully saved"
     }
@@ -329,7 +357,7 @@ class RecipeServiceSpec extends Specification{
 
         then:
         0 * recipeRepository.save(_)
-        0 * recipeItemRepository.save(_)
+        0 * recipeItemRepository.saveAll(_)
         0 * personalRecipeRepository.save(_)
         re.body == "An ingredient is missing"
     }
@@ -399,7 +427,7 @@ class RecipeServiceSpec extends Specification{
         )
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -429,7 +457,7 @@ class RecipeServiceSpec extends Specification{
         )
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -456,7 +484,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         !canBeMade
@@ -483,7 +511,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -509,7 +537,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -535,7 +563,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -561,7 +589,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         !canBeMade
@@ -587,7 +615,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         !canBeMade
@@ -615,6 +643,25 @@ class RecipeServiceSpec extends Specification{
         response.getStatusCode() == HttpStatus.OK && response.body instanceof HashMap
     }
 
+    def "once the text index is built searches are answered from it instead of the LIKE query" () {
+        given:
+        recipeRepository.findPublicRecipeText() >> recipeList.collect { [it.id, it.name, it.description] as Object[] }
+        recipeTextIndex.rebuild()
+        RecipeQuery rq = new RecipeQuery()
+        rq.setMethod("desc")
+        rq.setValue("recipe 3")
+
+        when:
+        ResponseEntity response = recipeService.getQueriedRecipes(rq, RecipeService.DEFAULT_PAGE)
+
+        then:
+        0 * recipeRepository.findRecipeLike(_, _)
+        1 * recipeRepository.findAllById([3L]) >> [recipeList.get(2)]
+        response.getStatusCode() == HttpStatus.OK
+        response.body["count"] == 1
+        response.body["results"] == [recipeList.get(2)]
+    }
+
     def "when an invalid method def is passed, a bad request should be returned" () {
         given:
         RecipeQuery rq = new RecipeQuery()
@@ -636,6 +683,100 @@ class RecipeServiceSpec extends Specification{
         response.getStatusCode() == HttpStatus.OK && response.body instanceof HashMap
     }
 
+    def "The first cursor page returns a cursor for the next page when there are more recipes" () {
+        given:
+        CursorSetting cursorSetting = new CursorSetting()
+        cursorSetting.setPageSize(2)
+
+        when:
+        ResponseEntity response = recipeService.getAllRecipesAfter(cursorSetting)
+
+        then:
+        1 * recipeRepository.findAllPublicAfter(0L, 3) >> recipeList.subList(0, 3)
+        response.statusCode == HttpStatus.OK
+        RecipeCursorPage page = response.body as RecipeCursorPage
+        page.results == recipeList.subList(0, 2)
+        page.nextCursor == RecipeCursor.encode(2L)
+    }
+
+    def "The last cursor page has no next cursor" () {
+        given:
+        CursorSetting cursorSetting = new CursorSetting()
+        cursorSetting.setAfter(RecipeCursor.encode(3L))
+        cursorSetting.setPageSize(2)
+
+        when:
+        ResponseEntity response = recipeService.getAllRecipesAfter(cursorSetting)
+
+        then:
+        1 * recipeRepository.findAllPublicAfter(3L, 3) >> recipeList.subList(3, 5)
+        response.statusCode == HttpStatus.OK
+        (response.body as RecipeCursorPage).results == recipeList.subList(3, 5)
+        (response.body as RecipeCursorPage).nextCursor == null
+    }
+
+    def "An invalid cursor or page size is rejected" () {
+        given:
+        CursorSetting cursorSetting = new CursorSetting()
+        cursorSetting.setAfter(after)
+        cursorSetting.setPageSize(pageSize)
+
+        when:
+        ResponseEntity response = recipeService.getAllRecipesAfter(cursorSetting)
+
+        then:
+        0 * recipeRepository.findAllPublicAfter(_, _)
+        response.statusCode == HttpStatus.BAD_REQUEST
+        response.body == message
+
+        where:
+        after                    | pageSize | message
+        "garbage"                | 5        | "Invalid Cursor"
+        RecipeCursor.encode(1L)  | 0        | "Invalid Page Size"
+    }
+
+    def "Searching with a cursor seeks past the last recipe without counting" () {
+        given:
+        RecipeQuery query = new RecipeQuery()
+        query.setMethod("name")
+        query.setValue("Test")
+        CursorSetting cursorSetting = new CursorSetting()
+        cursorSetting.setAfter(RecipeCursor.encode(1L))
+        cursorSetting.setPageSize(5)
+
+        when:
+        ResponseEntity response = recipeService.getQueriedRecipesAfter(query, cursorSetting)
+
+        then:
+        1 * recipeRepository.findRecipeLikeAfter("Test", 1L, 6) >> recipeList.subList(1, 5)
+        0 * recipeRepository.findRecipeLike(_, _)
+        response.statusCode == HttpStatus.OK
+        (response.body as RecipeCursorPage).results == recipeList.subList(1, 5)
+        (response.body as RecipeCursorPage).nextCursor == null
+    }
+
+    def "once the text index is built cursor searches are answered from it in id order" () {
+        given:
+        recipeRepository.findPublicRecipeText() >> recipeList.collect { [it.id, it.name, it.description] as Object[] }
+        recipeTextIndex.rebuild()
+        RecipeQuery query = new RecipeQuery()
+        query.setMethod("name")
+        query.setValue("Test")
+        CursorSetting cursorSetting = new CursorSetting()
+        cursorSetting.setAfter(RecipeCursor.encode(1L))
+        cursorSetting.setPageSize(2)
+
+        when:
+        ResponseEntity response = recipeService.getQueriedRecipesAfter(query, cursorSetting)
+
+        then:
+        0 * recipeRepository.findRecipeLikeAfter(_, _, _)
+        1 * recipeRepository.findAllById([2L, 3L, 4L]) >> recipeList.subList(1, 4)
+        response.statusCode == HttpStatus.OK
+        (response.body as RecipeCursorPage).results == recipeList.subList(1, 3)
+        (response.body as RecipeCursorPage).nextCursor == RecipeCursor.encode(3L)
+    }
+
     def "test updateRecipeReview" () {
         when:
         ResponseEntity response = recipeService.updateRecipeReview(reviewItem)
@@ -645,6 +786,40 @@ class RecipeServiceSpec extends Specification{
         response.getStatusCode() == HttpStatus.OK && response.body == "Review was updated"
     }
 
+    def "updating a review moves the star total of the recipe by the difference" () {
+        given:
+        recipeReview.setRecipe(recipeList.get(0))
+        recipeReview.setStars(2)
+
+        when:
+        ResponseEntity response = recipeService.updateRecipeReview(reviewItem)
+
+        then:
+        1 * recipeRatingRepository.findById(1001) >> Optional.of(recipeReview)
+        1 * recipeRepository.adjustStarTotal(1L, 3L)
+        response.getStatusCode() == HttpStatus.OK
+    }
+
+    def "the ratings of a recipe come from its stored review aggregates" () {
+        given:
+        Recipe recipe = new RecipeBuilder().id(7L).name("Rated").reviewCount(3L).starTotal(13L).build()
+        Recipe unrated = new RecipeBuilder().id(8L).name("Unrated").build()
+        recipeRepository.findById(7L) >> Optional.of(recipe)
+        recipeRepository.findById(8L) >> Optional.of(unrated)
+
+        when:
+        recipeService.getRecipeById(7L)
+        recipeService.getRecipeById(8L)
+
+        then:
+        0 * recipeRatingRepository.countByRecipeId(_)
+        0 * recipeRatingRepository.getAverageReviewByRecipeId(_)
+        recipe.getAvgRating() == 4.3F
+        recipe.getReviewCount() == 3L
+        unrated.getAvgRating() == 0F
+        unrated.getReviewCount() == 0L
+    }
+
     def "test failure to set stars updateRecipeReview" () {
         given:
         reviewItem.setStars(10)
@@ -661,9 +836,8 @@ class RecipeServiceSpec extends Specification{
         given:
         List<RecipeItem> recipeItems = new ArrayList<>()
         Optional<List<DislikedItem>> userPreferences = Optional.empty()
-        List<FoodItem> foodItemList = new ArrayList<FoodItem>();
-        foodItemList.add(foodItemTwo);
-        foodService.getSubItems(user, 1) >> foodItemList
+        // food item 2 can replace food item 1
+        substitutionsRepository.findAllPairs() >> [[1L, 2L] as Object[]]
 
         and:
         Recipe recipe = recipeList.get(0)
@@ -680,7 +854,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         canBeMade
@@ -690,10 +864,8 @@ class RecipeServiceSpec extends Specification{
         given:
         List<RecipeItem> recipeItems = new ArrayList<>()
         Optional<List<DislikedItem>> userPreferences = Optional.empty()
-        List<FoodItem> foodItemList = new ArrayList<FoodItem>();
-        foodItemList.add(foodItemTwo);
-        foodService.getSubItems(user, 1) >> foodItemList
-        foodService.getSubItems(user, 2) >> foodItemList
+        // food item 3 can replace both food item 1 and 2
+        substitutionsRepository.findAllPairs() >> [[1L, 3L] as Object[], [2L, 3L] as Object[]]
 
         and:
         Recipe recipe = recipeList.get(0)
@@ -715,7 +887,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         !canBeMade
@@ -725,10 +897,8 @@ class RecipeServiceSpec extends Specification{
         given:
         List<RecipeItem> recipeItems = new ArrayList<>()
         Optional<List<DislikedItem>> userPreferences = Optional.empty()
-        List<FoodItem> foodItemList = new ArrayList<FoodItem>();
-        foodItemList.add(foodItemTwo);
-        foodService.getSubItems(user, 1) >> foodItemList
-        foodService.getSubItems(user, 2) >> foodItemList
+        // food item 3 can replace both food item 1 and 2
+        substitutionsRepository.findAllPairs() >> [[1L, 3L] as Object[], [2L, 3L] as Object[]]
 
         and:
         Recipe recipe = recipeList.get(0)
@@ -750,7 +920,7 @@ class RecipeServiceSpec extends Specification{
         Optional<List<MinorItem>> minorItemsOpt = Optional.empty()
 
         when:
-        boolean canBeMade = recipeService.canRecipeBeMade(userInventory, recipeItems, userPreferences, minorItemsOpt, user, new RecipeWithSub())
+        boolean canBeMade = canMake(recipeItems, userPreferences, minorItemsOpt)
 
         then:
         !canBeMade
@@ -773,7 +943,7 @@ class RecipeServiceSpec extends Specification{
                 .quantity(5.0F).unit("grams").build()
         userInventory.add(inventoryItemOne)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -782,7 +952,7 @@ class RecipeServiceSpec extends Specification{
         RecipeItem recipeItemOne = new RecipeItemBuilder().id(1L).foodItem(foodItemOne).recipe(recipe)
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -797,13 +967,110 @@ class RecipeServiceSpec extends Specification{
         !recipeWithSubList.isEmpty()
     }
 
+    def "the recipe items for getRecipeWithInventory should be loaded with a single bulk query" () {
+        given:
+        InventoryItem inventoryItemOne = new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItemOne)
+                .quantity(5.0F).unit("grams").build()
+        userInventory.add(inventoryItemOne)
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.getInventory(user) >> userInventory
+        recipeRepository.findAllPublic() >> recipeList
+        recipeRatingRepository.countByRecipeId(_) >> Optional.of(0L)
+        recipeRatingRepository.getAverageReviewByRecipeId(_) >> Optional.of(0f)
+
+        and:
+        RecipeItem recipeItemOne = new RecipeItemBuilder().id(1L).foodItem(foodItemOne).recipe(recipeList.get(0))
+                .measurementUnit("grams").quantity(5.0F).build()
+
+        when:
+        List<RecipeWithSub> recipeWithSubList = recipeService.getRecipeWithInventory(_ as String, RecipeService.DEFAULT_PAGE)
+
+        then:
+        1 * recipeItemRepository.findRecipeItemsByRecipeIds([1L, 2L, 3L, 4L, 5L]) >> [recipeItemOne]
+        0 * recipeItemRepository.findRecipeItemsByRecipe(_)
+        recipeWithSubList.size() == 1
+        recipeWithSubList.get(0).recipe.id == 1L
+    }
+
+    def "later pages of getRecipeWithInventory should be served from the cached matches" () {
+        given:
+        userInventory.add(new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItemOne)
+                .quantity(5.0F).unit("grams").build())
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.getInventory(user) >> userInventory
+        recipeRatingRepository.countByRecipeId(_) >> Optional.of(0L)
+        recipeRatingRepository.getAverageReviewByRecipeId(_) >> Optional.of(0f)
+
+        and:
+        List<RecipeItem> recipeItemList = recipeList.collect { recipe ->
+            new RecipeItemBuilder().id(recipe.id).foodItem(foodItemOne).recipe(recipe)
+                    .measurementUnit("grams").quantity(5.0F).build()
+        }
+
+        when:
+        List<RecipeWithSub> firstPage = recipeService.getRecipeWithInventory(_ as String,
+                new PaginationSettingBuilder().pageNumber(0).pageSize(2).build())
+        List<RecipeWithSub> lastPage = recipeService.getRecipeWithInventory(_ as String,
+                new PaginationSettingBuilder().pageNumber(2).pageSize(2).build())
+        List<RecipeWithSub> pastTheEnd = recipeService.getRecipeWithInventory(_ as String,
+                new PaginationSettingBuilder().pageNumber(3).pageSize(2).build())
+
+        then:
+        1 * recipeRepository.findAllPublic() >> recipeList
+        1 * recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
+        firstPage*.recipe*.id == [1L, 2L]
+        lastPage*.recipe*.id == [5L]
+        pastTheEnd.isEmpty()
+    }
+
+    def "a review made after the matches were cached should show on the next page" () {
+        given:
+        userInventory.add(new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItemOne)
+                .quantity(5.0F).unit("grams").build())
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.getInventory(user) >> userInventory
+        recipeRepository.findAllPublic() >> recipeList
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> [new RecipeItemBuilder().id(1L).foodItem(foodItemOne)
+                .recipe(recipeList.get(0)).measurementUnit("grams").quantity(5.0F).build()]
+
+        when:
+        List<RecipeWithSub> before = recipeService.getRecipeWithInventory(_ as String, RecipeService.DEFAULT_PAGE)
+        List<RecipeWithSub> after = recipeService.getRecipeWithInventory(_ as String, RecipeService.DEFAULT_PAGE)
+
+        then:
+        1 * recipeRepository.findReviewAggregates([1L]) >> [[1L, 10L, 50L] as Object[]]
+        1 * recipeRepository.findReviewAggregates([1L]) >> [[1L, 11L, 51L] as Object[]]
+        before*.recipe*.avgRating == [5.0F]
+        after*.recipe*.avgRating == [4.6F]
+        after*.recipe*.reviewCount == [11L]
+
+        and: "the cached recipe is left alone"
+        recipeList.get(0).reviewCount == 10L
+        recipeList.get(0).avgRating == 5.0F
+    }
+
+    def "invalidating a user's matches should rescan the catalog" () {
+        given:
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.getInventory(user) >> userInventory
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> []
+
+        when:
+        recipeService.getRecipeWithInventory(_ as String, RecipeService.DEFAULT_PAGE)
+        matchResultCache.invalidateUser(user.id)
+        recipeService.getRecipeWithInventory(_ as String, RecipeService.DEFAULT_PAGE)
+
+        then:
+        2 * recipeRepository.findAllPublic() >> recipeList
+    }
+
     def "test successful return of populated recipe list with substitutes getRecipeWithInventory" () {
         given:
         InventoryItem inventoryItemOne = new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItemTwo)
                 .quantity(5.0F).unit("grams").build()
         userInventory.add(inventoryItemOne)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -812,12 +1079,10 @@ class RecipeServiceSpec extends Specification{
         RecipeItem recipeItemOne = new RecipeItemBuilder().id(1L).foodItem(foodItemOne).recipe(recipe)
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
-        List<FoodItem> subItems = new ArrayList<>()
-        subItems.add(foodItemTwo)
-        foodService.getSubItems(_, 1L) >> subItems
+        substitutionsRepository.findAllPairs() >> [[1L, 2L] as Object[]]
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -838,7 +1103,7 @@ class RecipeServiceSpec extends Specification{
                 .quantity(1.0F).unit("grams").build()
         userInventory.add(inventoryItemOne)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -847,7 +1112,7 @@ class RecipeServiceSpec extends Specification{
         RecipeItem recipeItemOne = new RecipeItemBuilder().id(1L).foodItem(foodItemOne).recipe(recipe)
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -868,7 +1133,7 @@ class RecipeServiceSpec extends Specification{
                 .quantity(5.0F).unit("grams").build()
         userInventory.add(inventoryItemOne)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -880,7 +1145,7 @@ class RecipeServiceSpec extends Specification{
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
         recipeItemList.add(recipeItemTwo)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -903,7 +1168,7 @@ class RecipeServiceSpec extends Specification{
                 .quantity(5.0F).unit("grams").build()
         userInventory.add(inventoryItemOne)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -915,7 +1180,7 @@ class RecipeServiceSpec extends Specification{
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
         recipeItemList.add(recipeItemTwo)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -951,7 +1216,7 @@ class RecipeServiceSpec extends Specification{
         userInventory.add(inventoryItemOne)
         userInventory.add(inventoryItemTwo)
         userService.getUserFromJwtToken(_) >> Optional.of(user)
-        userService.getInventory(user, false) >> userInventory
+        userService.getInventory(user) >> userInventory
         recipeRepository.findAllPublic() >> recipeList
 
         and:
@@ -964,16 +1229,11 @@ class RecipeServiceSpec extends Specification{
                 .measurementUnit("grams").quantity(5.0F).build()
         recipeItemList.add(recipeItemOne)
         recipeItemList.add(recipeItemTwo)
-        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.of(recipeItemList)
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> recipeItemList
 
         and:
         // add the 2 inventory items as subs for recipeItems
-        List<FoodItem> subItems1 = new ArrayList<>()
-        subItems1.add(foodItemTwo)
-        List<FoodItem> subItems2 = new ArrayList<>()
-        subItems2.add(foodItemFour)
-        foodService.getSubItems(_, 1L) >> subItems1
-        foodService.getSubItems(_, 3L) >> subItems1
+        substitutionsRepository.findAllPairs() >> [[1L, 2L] as Object[], [3L, 4L] as Object[]]
 
         and:
         List<DislikedItem> userPreferences = new ArrayList<>()
@@ -988,11 +1248,49 @@ class RecipeServiceSpec extends Specification{
         recipeWithSubList.isEmpty() // expect empty list b/c recipes can't have > 1 sub item
     }
 
+    def "getClosestRecipes should rank recipes by missing ingredients and then missing quantity" () {
+        given:
+        userInventory.add(new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItemOne)
+                .quantity(5.0F).unit("grams").build())
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.getInventory(user) >> userInventory
+        recipeRepository.findAllPublic() >> recipeList
+        recipeRatingRepository.countByRecipeId(_) >> Optional.of(0L)
+        recipeRatingRepository.getAverageReviewByRecipeId(_) >> Optional.of(0f)
+
+        and:
+        // recipe 1 can be made, recipe 2 is short 5 of item 1 and recipe 3 is short 1 of item 2
+        recipeItemRepository.findRecipeItemsByRecipeIds(_) >> [
+                new RecipeItemBuilder().id(1L).foodItem(foodItemOne).recipe(recipeList.get(0)).quantity(5.0F).build(),
+                new RecipeItemBuilder().id(2L).foodItem(foodItemOne).recipe(recipeList.get(1)).quantity(10.0F).build(),
+                new RecipeItemBuilder().id(3L).foodItem(foodItemTwo).recipe(recipeList.get(2)).quantity(1.0F).build()
+        ]
+
+        when:
+        ResponseEntity response = recipeService.getClosestRecipes("Bearer token", 2)
+
+        then:
+        response.statusCode == HttpStatus.OK
+        response.body*.recipe*.id == [1L, 3L]
+        response.body*.missingCount == [0, 1]
+        response.body*.missingFoodIds == [[], [2L]]
+    }
+
+    def "getClosestRecipes should reject a limit that is not positive" () {
+        when:
+        ResponseEntity response = recipeService.getClosestRecipes("Bearer token", 0)
+
+        then:
+        response.statusCode == HttpStatus.BAD_REQUEST
+        0 * recipeRepository.findAllPublic()
+    }
+
     def "When a valid JWT and recipe id are passed, recipe should be added to public and removed from personal list" () {
         given:
         userService.getUserFromJwtToken(_) >> Optional.of(user)
         recipeRepository.findById(_) >> recipeList.get(0)
         personalRecipeRepository.findByUserAndRecipe(_,_) >> Optional.of(new PersonalRecipe())
+        recipeItemRepository.findRecipeItemsByRecipe(_) >> Optional.empty()
 
         when:
         ResponseEntity ru = recipeService.publishPersonalRecipe(_ as String, 1L)
@@ -1084,14 +1382,14 @@ class RecipeServiceSpec extends Specification{
         recipeItemRepository.findRecipeItemsByRecipe(recipeList.get(0)) >> Optional.of(recipeItemList)
 
         and:
-        userPreferenceRepository.findByUser(_) >> Optional.empty()
+        userService.isMetric(user) >> true
 
         when:
         ResponseEntity ru = recipeService.getRecipeItemsById(1L, _ as String)
 
         then:
         ru.statusCode == HttpStatus.OK
-        ru.body == Optional.of(recipeItemList)
+        ru.body == [new RecipeItemView(1L, foodItemOne, "g", 5.0F)]
     }
 
     def "When a valid recipe id and JWT with prefs is passed, list of recipe items should be returned" () {
@@ -1107,16 +1405,19 @@ class RecipeServiceSpec extends Specification{
         recipeItemRepository.findRecipeItemsByRecipe(recipeList.get(0)) >> Optional.of(recipeItemList)
 
         and:
-        UserPreference userPreference = new UserPreferencesBuilder().id(1L).user(user)
-                .isMetric(false).build()
-        userPreferenceRepository.findByUser(_) >> Optional.of(userPreference)
+        userService.isMetric(user) >> false
 
         when:
         ResponseEntity ru = recipeService.getRecipeItemsById(1L, _ as String)
 
         then:
         ru.statusCode == HttpStatus.OK
-        ru.body == Optional.of(recipeItemList)
+        List<RecipeItemView> views = ru.body as List<RecipeItemView>
+        views*.measurementUnit() == ["oz"]
+        Math.abs(views[0].quantity() - 5.0F / 28.35F) < 0.0001
+        // The recipe items themselves stay in standard units
+        recipeItemList[0].measurementUnit == WeightUnit.G
+        recipeItemList[0].quantity == 5.0F
     }
 
     def "When a valid recipe id and invalid JWT is passed, list of recipe items should be returned" () {
@@ -1136,11 +1437,12 @@ class RecipeServiceSpec extends Specification{
 
         then:
         ru.statusCode == HttpStatus.OK
-        ru.body == Optional.of(recipeItemList)
+        ru.body == [new RecipeItemView(1L, foodItemOne, "g", 5.0F)]
     }
 
     def "When an invalid recipe id passed, list of recipe items should not be returned" () {
         given:
+        userService.getUserFromJwtToken(_) >> Optional.empty()
         recipeRepository.findById(1L) >> Optional.empty()
 
         when:
@@ -1153,6 +1455,7 @@ class RecipeServiceSpec extends Specification{
 
     def "When an valid recipe id passed but no recipe items exist, list of recipe items should not be returned" () {
         given:
+        userService.getUserFromJwtToken(_) >> Optional.empty()
         recipeRepository.findById(1L) >> Optional.of(recipeList.get(0))
 
         and:
@@ -1166,6 +1469,38 @@ class RecipeServiceSpec extends Specification{
         ru.body == "No Recipe Items Found"
     }
 
+    def "recipe items that were converted before should be returned without going to the database" () {
+        given:
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        userService.isMetric(user) >> true
+        List<RecipeItemView> views = [new RecipeItemView(1L, foodItemOne, "g", 5.0F)]
+        recipeItemViewCache.put(1L, true, recipeItemViewCache.currentGeneration(), views)
+
+        when:
+        ResponseEntity ru = recipeService.getRecipeItemsById(1L, _ as String)
+
+        then:
+        0 * recipeRepository._
+        0 * recipeItemRepository._
+        ru.statusCode == HttpStatus.OK
+        ru.body == views
+    }
+
+    def "removing a personal recipe should drop its converted recipe items" () {
+        given:
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        recipeRepository.findById(1L) >> Optional.of(recipeList.get(0))
+        personalRecipeRepository.findByUserAndRecipe(_,_) >> Optional.of(new PersonalRecipe())
+        recipeItemViewCache.put(recipeList.get(0).id, true, recipeItemViewCache.currentGeneration(),
+                [new RecipeItemView(1L, foodItemOne, "g", 5.0F)])
+
+        when:
+        recipeService.removePersonalRecipe(_ as String, 1L)
+
+        then:
+        recipeItemViewCache.get(recipeList.get(0).id, true).isEmpty()
+    }
+
     def "When a valid JWT, recipeReviewItem, and recipeReview is passed, review should be created" () {
         given:
         userService.getUserFromJwtToken(_) >> Optional.of(user)
@@ -1180,10 +1515,29 @@ class RecipeServiceSpec extends Specification{
 
         then:
         1 * recipeRatingRepository.save(_)
+        1 * recipeRepository.addReviewToAggregates(1L, 5)
         ru.statusCode == HttpStatus.OK
         ru.body == "Review was created"
     }
 
+    def "When the review cannot be saved, a bad request should be returned and the aggregates left alone" () {
+        given:
+        userService.getUserFromJwtToken(_) >> Optional.of(user)
+        AddRecipeReview addReviewItem = new AddRecipeReview()
+        addReviewItem.setReview("Very good.")
+        addReviewItem.setStars(5)
+        addReviewItem.setRecipeId(1001L)
+
+        when:
+        ResponseEntity ru = recipeService.addRecipeReview(_ as String, addReviewItem, new RecipeReview())
+
+        then:
+        1 * recipeRatingRepository.save(_) >> { throw new IllegalStateException("constraint violation") }
+        0 * recipeRepository.addReviewToAggregates(_, _)
+        ru.statusCode == HttpStatus.BAD_REQUEST
+        ru.body == "Review failed to add"
+    }
+
     def "When an invalid JWT is passed, review should not be created" () {
         given:
         userService.getUserFromJwtToken(_) >> Optional.empty()
@@ -1264,4 +1618,11 @@ class RecipeServiceSpec extends Specification{
         ru.statusCode == HttpStatus.NOT_FOUND
         ru.body == "Recipe Review does not exist for this id"
     }
+
+    private boolean canMake(List<RecipeItem> recipeItems, Optional<List<DislikedItem>> userPreferences,
+                            Optional<List<MinorItem>> minorItems) {
+        CompiledInventory compiledInventory = CompiledInventory.of(userInventory, userPreferences, minorItems)
+        SubstitutionLookup substitutions = { id -> substitutionGraph.findSubstitute(id, compiledInventory) } as SubstitutionLookup
+        return compiledInventory.canMake(CompiledRecipe.of(recipeItems), substitutions, new RecipeWithSub())
+    }
 }
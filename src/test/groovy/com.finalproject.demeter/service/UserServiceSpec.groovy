@@ -1,5 +1,9 @@
 package com.finalproject.demeter.service
 
+import com.finalproject.demeter.cache.FoodItemRegistry
+import com.finalproject.demeter.cache.MatchResultCache
+import com.finalproject.demeter.cache.UnitPreferenceCache
+import com.finalproject.demeter.config.AuthenticatedUser
 import com.finalproject.demeter.dao.DislikedItem
 import com.finalproject.demeter.dao.FoodItem
 import com.finalproject.demeter.dao.InventoryItem
@@ -7,26 +11,35 @@ import com.finalproject.demeter.dao.MinorItem
 import com.finalproject.demeter.dao.PasswordResetToken
 import com.finalproject.demeter.dao.User
 import com.finalproject.demeter.dao.UserPreference
+import com.finalproject.demeter.dto.InventoryItemView
 import com.finalproject.demeter.dto.SignUpDto
 import com.finalproject.demeter.dto.UpdateInventory
 import com.finalproject.demeter.repository.DislikedItemRepository
 import com.finalproject.demeter.repository.FoodItemRepository
 import com.finalproject.demeter.repository.InventoryRepository
+import com.finalproject.demeter.repository.InventoryUpsertRepository
 import com.finalproject.demeter.repository.MinorItemRepository
 import com.finalproject.demeter.repository.PasswordTokenRepository
 import com.finalproject.demeter.repository.UserPreferenceRepository
 import com.finalproject.demeter.repository.UserRepository
+import com.finalproject.demeter.units.WeightUnit
 import com.finalproject.demeter.util.DislikedItemBuilder
 import com.finalproject.demeter.util.FoodItemBuilder
 import com.finalproject.demeter.util.InventoryItemBuilder
 import com.finalproject.demeter.util.JwtUtil
 import com.finalproject.demeter.util.MinorItemBuilder
 import com.finalproject.demeter.util.UserPreferencesBuilder
+import io.jsonwebtoken.Claims
 import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken
+import org.springframework.security.core.context.SecurityContextHolder
 import org.springframework.security.core.userdetails.UserDetails
 import org.springframework.security.core.userdetails.UsernameNotFoundException
 import org.springframework.security.crypto.password.PasswordEncoder
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionStatus
+import org.springframework.transaction.support.TransactionTemplate
 import spock.lang.Specification
 
 import java.time.temporal.ChronoUnit
@@ -37,11 +50,19 @@ class UserServiceSpec extends Specification {
     PasswordEncoder passwordEncoder = Mock()
     PasswordTokenRepository passwordTokenRepository = Mock()
     FoodItemRepository foodItemRepository = Mock()
+    FoodItemRegistry foodItemRegistry = new FoodItemRegistry(foodItemRepository)
     InventoryRepository inventoryRepository = Mock()
+    InventoryUpsertRepository inventoryUpsertRepository = Mock()
     MinorItemRepository minorItemRepository = Mock()
     JwtUtil jwtUtil = Mock()
     DislikedItemRepository dislikedItemRepository = Mock()
     UserPreferenceRepository userPreferenceRepository = Mock()
+    MatchResultCache matchResultCache = new MatchResultCache(100, 600000)
+    UnitPreferenceCache unitPreferenceCache = new UnitPreferenceCache(100)
+    TransactionStatus transactionStatus = Mock()
+    PlatformTransactionManager transactionManager = Stub() {
+        getTransaction(_) >> transactionStatus
+    }
     UserService userService
     User user = new User()
     String userJWT = "randomRealWorkingJWT"
@@ -57,8 +78,10 @@ class UserServiceSpec extends Specification {
     UserPreference userPreference = new UserPreferencesBuilder().id(1L).user(user).isMetric(true).build()
 
     void setup(){
-        userService = new UserService(userRepository, passwordEncoder, passwordTokenRepository, foodItemRepository,
-                inventoryRepository, minorItemRepository, jwtUtil, dislikedItemRepository, userPreferenceRepository)
+        userService = new UserService(userRepository, passwordEncoder, passwordTokenRepository, foodItemRegistry,
+                inventoryRepository, minorItemRepository, jwtUtil, dislikedItemRepository, userPreferenceRepository,
+                matchResultCache, inventoryUpsertRepository, unitPreferenceCache,
+                new TransactionTemplate(transactionManager))
         user.username = "jsmith"
         user.password = "testingPassword1!"
         user.firstName = "John"
@@ -66,6 +89,10 @@ class UserServiceSpec extends Specification {
         user.email = "johns@gmail.com"
     }
 
+    void cleanup(){
+        SecurityContextHolder.clearContext()
+    }
+
     def "When a valid user requests to change null as the preference it should return an error" () {
         given:
         jwtUtil.extractEmail(_) >> ""
@@ -125,6 +152,27 @@ class UserServiceSpec extends Specification {
         1 * userPreferenceRepository.save(_)
     }
 
+    def "the unit preference of a user should be read once and read again after it is toggled" () {
+        given:
+        jwtUtil.extractEmail(_) >> ""
+        userRepository.findByEmail(_) >> Optional.of(user)
+        userPreferenceRepository.findByUser(user) >> Optional.of(userPreference)
+
+        when:
+        boolean first = userService.isMetric(user)
+        boolean second = userService.isMetric(user)
+
+        then:
+        first && second
+        1 * userPreferenceRepository.findByUser(user) >> Optional.of(userPreference)
+
+        when:
+        userService.setUserPreferences(userJWT, "unit")
+
+        then:
+        !userService.isMetric(user)
+    }
+
     def "When an invalid user requests their preferences, an error should be returned" () {
         given:
         jwtUtil.extractEmail(_) >> ""
@@ -428,12 +476,29 @@ class UserServiceSpec extends Specification {
         given:
         userPreferenceRepository.findByUser(user) >> Optional.empty()
         when:
-        userService.getInventory(user, true)
+        userService.getInventoryView(user)
 
         then:
         1 * inventoryRepository.findInventoryItemByUserId(user) >> new ArrayList<>()
     }
 
+    def "the inventory should be shown in the units the user wants without changing the inventory items"() {
+        given:
+        InventoryItem flour = new InventoryItemBuilder().id(4L).userId(user).foodItem(foodItem1)
+                .unit(WeightUnit.G).quantity(1500F).build()
+        inventoryRepository.findInventoryItemByUserId(user) >> [flour]
+        userPreferenceRepository.findByUser(user) >> Optional.of(new UserPreferencesBuilder().user(user)
+                .isMetric(true).build())
+
+        when:
+        List<InventoryItemView> inventory = userService.getInventoryView(user)
+
+        then:
+        inventory == [new InventoryItemView(4L, foodItem1, 1.5F, "kg")]
+        flour.unit == WeightUnit.G
+        flour.quantity == 1500F
+    }
+
     def "when a valid user and update item are passed and the user has the items, a 200 should be returned (update add)" (){
         given:
         List<InventoryItem> userInventory = List.of(item1, item2, item3)
@@ -442,14 +507,109 @@ class UserServiceSpec extends Specification {
         ui.setFoodId(1)
         ui.setQuantity(2)
         ui.setUnit("test1")
+        foodItemRepository.findById(1) >> Optional.of(foodItem1)
+
+        when:
+        ResponseEntity<String> re = userService.updateInventory(user, ui)
+
+        then:
+        re.body == "Inventory was saved"
+        re.statusCode == HttpStatus.OK
+        1 * inventoryUpsertRepository.addQuantity(user.id, 1L, 2F, _)
+        0 * inventoryRepository.save(_)
+    }
+
+    def "taking part of an item out of the inventory keeps the rest" (){
+        given:
+        UpdateInventory ui = new UpdateInventory()
+        ui.setFoodId(1)
+        ui.setQuantity(-4)
+        ui.setUnit("test1")
 
         when:
         ResponseEntity<String> re = userService.updateInventory(user, ui)
 
         then:
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 1L, -4F, _) >> Optional.of(6F)
+        0 * inventoryUpsertRepository.deleteIfBelow(*_)
         re.body == "Inventory was saved"
         re.statusCode == HttpStatus.OK
-        1 * inventoryRepository.save(_)
+    }
+
+    def "a bulk inventory update applies the net change of every item with single statement updates" (){
+        given:
+        InventoryItem updatedItem1 = new InventoryItemBuilder().id(1L).userId(user).foodItem(foodItem1).unit("test1").quantity(12F).build()
+        InventoryItem newItem = new InventoryItemBuilder().id(4L).userId(user).foodItem(new FoodItemBuilder().id(6).build())
+                .unit("test6").quantity(4F).build()
+        inventoryRepository.findInventoryItemByUserId(user) >>> [[item1, item2, item3], [updatedItem1, item3, newItem]]
+        foodItemRepository.findById(6) >> Optional.of(new FoodItemBuilder().id(6).build())
+        userPreferenceRepository.findByUser(user) >> Optional.empty()
+        List<UpdateInventory> changes = [
+                inventoryChange(1, 2F, "test1"), inventoryChange(6, 3F, "test6"),
+                inventoryChange(2, -10F, "test2"), inventoryChange(6, 1F, "test6")
+        ]
+
+        when:
+        ResponseEntity re = userService.updateInventory(user, changes)
+
+        then:
+        1 * inventoryUpsertRepository.addQuantity(user.id, 1L, 2F, _)
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 2L, -10F, _) >> Optional.of(0F)
+        1 * inventoryUpsertRepository.deleteIfBelow(user.id, 2L, _) >> true
+        1 * inventoryUpsertRepository.addQuantity(user.id, 6L, 4F, _)
+        0 * inventoryUpsertRepository.addQuantity(user.id, 3L, *_)
+        0 * inventoryRepository.saveAll(_)
+        0 * inventoryRepository.save(_)
+        0 * transactionStatus.setRollbackOnly()
+        re.statusCode == HttpStatus.OK
+        re.body.collect { it.foodId().id } == [1L, 3L, 6L]
+        re.body.collect { it.quantity() } == [12F, 10F, 4F]
+        // The loaded items are never changed
+        item1.quantity == 10F
+    }
+
+    def "a bulk inventory update writes nothing when one change is invalid" (){
+        given:
+        inventoryRepository.findInventoryItemByUserId(user) >> [item1, item2, item3]
+        List<UpdateInventory> changes = [inventoryChange(1, 2F, "test1"), inventoryChange(6, -3F, "test6")]
+
+        when:
+        ResponseEntity re = userService.updateInventory(user, changes)
+
+        then:
+        0 * inventoryUpsertRepository._
+        0 * inventoryRepository.deleteAll(_)
+        0 * inventoryRepository.saveAll(_)
+        re.statusCode == HttpStatus.BAD_REQUEST
+        re.body == "Invalid Quantity"
+        // The loaded items are managed entities, they must not have been changed either
+        item1.quantity == 10F
+        item1.unit == old(item1.unit)
+    }
+
+    def "a bulk inventory update is rolled back when an item it takes from was removed in the meantime" (){
+        given:
+        inventoryRepository.findInventoryItemByUserId(user) >> [item1, item2, item3]
+        List<UpdateInventory> changes = [inventoryChange(1, 2F, "test1"), inventoryChange(2, -4F, "test2")]
+
+        when:
+        ResponseEntity re = userService.updateInventory(user, changes)
+
+        then:
+        1 * inventoryUpsertRepository.addQuantity(user.id, 1L, 2F, _)
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 2L, -4F, _) >> Optional.empty()
+        1 * transactionStatus.setRollbackOnly()
+        re.statusCode == HttpStatus.BAD_REQUEST
+        re.body == "Invalid Quantity"
+    }
+
+    def "a bulk inventory update without changes is rejected" (){
+        when:
+        ResponseEntity re = userService.updateInventory(user, [])
+
+        then:
+        0 * inventoryRepository.findInventoryItemByUserId(_)
+        re.statusCode == HttpStatus.BAD_REQUEST
     }
 
     def "when a valid user and update item are passed, a 200 should be returned (add)" (){
@@ -468,7 +628,7 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "Inventory was saved"
         re.statusCode == HttpStatus.OK
-        1 * inventoryRepository.save(_)
+        1 * inventoryUpsertRepository.addQuantity(user.id, 6L, 2F, _)
     }
 
     def "when a valid user and update item are passed, but the item cannot be found a 204 should be returned" (){
@@ -487,8 +647,7 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "The given item does not exist"
         re.statusCode == HttpStatus.NO_CONTENT
-        0 * inventoryRepository.save(_)
-        0 * inventoryRepository.delete(_)
+        0 * inventoryUpsertRepository._
     }
 
     def "when a valid user and update item are passed, but the unit is empty, 204 should be returned" (){
@@ -508,8 +667,7 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "Invalid Unit"
         re.statusCode == HttpStatus.BAD_REQUEST
-        0 * inventoryRepository.save(_)
-        0 * inventoryRepository.delete(_)
+        0 * inventoryUpsertRepository._
     }
 
     def "when a valid user and update item are passed, but the quantity is negative, 204 should be returned" (){
@@ -528,8 +686,9 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "Invalid Quantity"
         re.statusCode == HttpStatus.BAD_REQUEST
-        0 * inventoryRepository.save(_)
-        0 * inventoryRepository.delete(_)
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 6L, -2F, _) >> Optional.empty()
+        0 * inventoryUpsertRepository.addQuantity(*_)
+        0 * inventoryUpsertRepository.deleteIfBelow(*_)
     }
 
     def "when a valid user and update item are passed and the user has the items, a 200 should be returned (delete)" (){
@@ -547,7 +706,30 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "Inventory Item was Removed"
         re.statusCode == HttpStatus.OK
-        1 * inventoryRepository.delete(_)
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 1L, -10F, _) >> Optional.of(0F)
+        1 * inventoryUpsertRepository.deleteIfBelow(user.id, 1L, _) >> true
+    }
+
+    def "matches read before an emptied item is deleted should not be cached" (){
+        given:
+        UpdateInventory ui = new UpdateInventory()
+        ui.setFoodId(1)
+        ui.setQuantity(-10)
+        ui.setUnit("test1")
+        MatchResultCache.Stamp stampBeforeDelete = null
+
+        when:
+        userService.updateInventory(user, ui)
+        matchResultCache.put(user.id, stampBeforeDelete, [])
+
+        then:
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 1L, -10F, _) >> Optional.of(0F)
+        // A concurrent request that still sees the emptied item
+        1 * inventoryUpsertRepository.deleteIfBelow(user.id, 1L, _) >> {
+            stampBeforeDelete = matchResultCache.currentStamp(user.id)
+            return true
+        }
+        matchResultCache.get(user.id).isEmpty()
     }
 
     def "when a valid user and invalid update item are passed, the item should be removed" (){
@@ -565,8 +747,9 @@ class UserServiceSpec extends Specification {
         then:
         re.body == "Inventory Item was Removed"
         re.statusCode == HttpStatus.OK
-        1 * inventoryRepository.delete(_)
-        0 * inventoryRepository.save(_)
+        1 * inventoryUpsertRepository.addToExistingQuantity(user.id, 1L, -11F, _) >> Optional.of(-1F)
+        1 * inventoryUpsertRepository.deleteIfBelow(user.id, 1L, _) >> true
+        0 * inventoryUpsertRepository.addQuantity(*_)
     }
 
     def "when a valid jwt, food item, and add is the mark value, a 200 should be returned" (){
@@ -657,33 +840,17 @@ class UserServiceSpec extends Specification {
         re.body == "Error Saving Item"
     }
 
-    def "a valid password reset token is passed, the user should be returned" (){
+    def "a valid password reset token is passed, the token should be returned with its user" (){
         given:
         String token = "superFakeTokenThatWorks"
-        PasswordResetToken pToken = new PasswordResetToken()
-        pToken.setId(1)
-        pToken.setToken(token)
-        pToken.setUser(user)
+        PasswordResetToken pToken = new PasswordResetToken(user, token)
         passwordTokenRepository.findByToken(token) >> Optional.of(pToken)
 
         when:
-        Optional<User> userOpt = userService.findUserByToken(token)
+        Optional<PasswordResetToken> found = userService.findValidPasswordResetToken(token)
 
         then:
-        userOpt.get() == user
-
-    }
-
-    def "an invalid password reset token is passed, a user should not be returned" (){
-        given:
-        String token = "superFakeTokenThatWorks"
-        passwordTokenRepository.findByToken(token) >> Optional.empty()
-
-        when:
-        Optional<User> userOpt = userService.findUserByToken(token)
-
-        then:
-        userOpt == Optional.empty()
+        found.get().user == user
 
     }
 
@@ -798,20 +965,20 @@ class UserServiceSpec extends Specification {
         1 * passwordTokenRepository.save(_)
     }
 
-    def "Given a valid token, isTokenValid should return true"() {
+    def "Given a valid token, findValidPasswordResetToken should return it"() {
         given:
         String token = UUID.randomUUID().toString()
         PasswordResetToken pToken = new PasswordResetToken(user, token)
         passwordTokenRepository.findByToken(token) >> Optional.of(pToken)
 
         when:
-        Boolean isValid = userService.isTokenValid(token)
+        Boolean isValid = userService.findValidPasswordResetToken(token).isPresent()
 
         then:
         isValid
     }
 
-    def "Given an invalid token, isTokenValid should return false"() {
+    def "Given an expired token, findValidPasswordResetToken should return nothing"() {
         given:
         String token = UUID.randomUUID().toString()
         PasswordResetToken pToken = new PasswordResetToken(user, token)
@@ -820,21 +987,107 @@ class UserServiceSpec extends Specification {
         passwordTokenRepository.findByToken(token) >> Optional.of(pToken)
 
         when:
-        Boolean isValid = userService.isTokenValid(token)
+        Boolean isValid = userService.findValidPasswordResetToken(token).isPresent()
 
         then:
         !isValid
     }
 
-    def "Given an invalid token and isTokenValid could not be found"() {
+    def "Given a token that could not be found, findValidPasswordResetToken should return nothing"() {
         given:
         String token = UUID.randomUUID().toString()
         passwordTokenRepository.findByToken(token) >> Optional.empty()
 
         when:
-        Boolean isValid = userService.isTokenValid(token)
+        Boolean isValid = userService.findValidPasswordResetToken(token).isPresent()
 
         then:
         !isValid
     }
+
+    def "When the request was authenticated with the same token, the user is taken from the principal" () {
+        given:
+        AuthenticatedUser principal = new AuthenticatedUser(user, "token", [] as Set)
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()))
+
+        when:
+        Optional<User> found = userService.getUserFromJwtToken("Bearer:token")
+
+        then:
+        found.get() == user
+        0 * jwtUtil.extractEmail(_)
+        0 * userRepository.findByEmail(_)
+    }
+
+    def "When the request was authenticated with another token, the user is looked up from the token" () {
+        given:
+        AuthenticatedUser principal = new AuthenticatedUser(user, "otherToken", [] as Set)
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()))
+
+        when:
+        userService.getUserFromJwtToken("Bearer:token")
+
+        then:
+        1 * jwtUtil.extractEmail("token") >> user.email
+        1 * userRepository.findByEmail(user.email) >> Optional.of(user)
+    }
+
+    def "When a token carries the user id, the user is loaded by its id" () {
+        given:
+        Claims claims = Mock()
+        claims.getSubject() >> user.email
+        jwtUtil.extractAllClaims("token") >> claims
+        jwtUtil.isExpired(claims) >> false
+        jwtUtil.extractUserId(claims) >> Optional.of(7L)
+
+        when:
+        Optional<AuthenticatedUser> principal = userService.loadUserFromJwtToken("token")
+
+        then:
+        1 * userRepository.findById(7L) >> Optional.of(user)
+        0 * userRepository.findByEmail(_)
+        principal.get().getUser() == user
+        principal.get().isAuthenticatedWith("token")
+    }
+
+    def "When a token has no user id, the user is loaded by the email in it" () {
+        given:
+        Claims claims = Mock()
+        claims.getSubject() >> user.email
+        jwtUtil.extractAllClaims("token") >> claims
+        jwtUtil.isExpired(claims) >> false
+        jwtUtil.extractUserId(claims) >> Optional.empty()
+
+        when:
+        Optional<AuthenticatedUser> principal = userService.loadUserFromJwtToken("token")
+
+        then:
+        1 * userRepository.findByEmail(user.email) >> Optional.of(user)
+        principal.get().getUsername() == user.email
+    }
+
+    def "When a token is expired, no user is loaded" () {
+        given:
+        Claims claims = Mock()
+        claims.getSubject() >> user.email
+        jwtUtil.extractAllClaims("token") >> claims
+        jwtUtil.isExpired(claims) >> true
+
+        when:
+        Optional<AuthenticatedUser> principal = userService.loadUserFromJwtToken("token")
+
+        then:
+        principal.isEmpty()
+        0 * userRepository._
+    }
+
+    private static UpdateInventory inventoryChange(long foodId, Float quantity, String unit) {
+        UpdateInventory change = new UpdateInventory()
+        change.setFoodId(foodId)
+        change.setQuantity(quantity)
+        change.setUnit(unit)
+        return change
+    }
 }
@@ -0,0 +1,56 @@
+package com.finalproject.demeter.units
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.finalproject.demeter.dao.InventoryItem
+import com.finalproject.demeter.dao.RecipeItem
+import com.finalproject.demeter.util.InventoryItemBuilder
+import com.finalproject.demeter.util.RecipeItemBuilder
+import spock.lang.Specification
+
+class UnitCodeConverterSpec extends Specification {
+    private final UnitCodeConverter converter = new UnitCodeConverter()
+
+    def "every unit should be stored as its code and read back as the same unit" () {
+        given:
+        List<Unit> units = [VolumetricUnit.values(), LengthUnit.values(), SingularUnit.values(),
+                            TemperatureUnit.values(), WeightUnit.values()].flatten() as List<Unit>
+
+        expect:
+        units.every { converter.convertToEntityAttribute(converter.convertToDatabaseColumn(it)) == it }
+        converter.convertToDatabaseColumn(VolumetricUnit.L) == (short) 0
+        converter.convertToDatabaseColumn(null) == null
+        converter.convertToEntityAttribute(null) == null
+    }
+
+    def "units written as strings should be read as their unit" (String unit, Unit expected) {
+        expect:
+        new InventoryItemBuilder().unit(unit).build().unit == expected
+
+        where:
+        unit      |   expected
+        "g"       |   WeightUnit.G
+        "L"       |   VolumetricUnit.L
+        "C"       |   TemperatureUnit.C
+        "piece"   |   SingularUnit.PIECE
+        "default" |   VolumetricUnit.DEFAULT
+        "tbsp"    |   VolumetricUnit.TBSP
+        "test1"   |   VolumetricUnit.DEFAULT
+    }
+
+    def "items should still be sent to the front end with the name of their unit" () {
+        given:
+        ObjectMapper objectMapper = new ObjectMapper()
+        InventoryItem inventoryItem = new InventoryItemBuilder().id(1L).quantity(2F).unit(VolumetricUnit.CUP).build()
+        RecipeItem recipeItem = new RecipeItemBuilder().id(1L).quantity(1F).measurementUnit(VolumetricUnit.CUP).build()
+
+        when:
+        Map inventoryJson = objectMapper.readValue(objectMapper.writeValueAsString(inventoryItem), Map)
+        Map recipeJson = objectMapper.readValue(objectMapper.writeValueAsString(recipeItem), Map)
+
+        then:
+        inventoryJson.unit == "cups"
+        !inventoryJson.containsKey("unitName")
+        recipeJson.measurementUnit == "cup"
+        !recipeJson.containsKey("measurementUnitName")
+    }
+}
@@ -0,0 +1,56 @@
+package com.finalproject.demeter.units
+
+import spock.lang.Specification
+
+class UnitLexiconSpec extends Specification {
+
+    def "given a string in any case, the matching unit should be returned" (String unit, Unit unitEnum) {
+        expect:
+        UnitLexicon.ALL.parse(unit) == unitEnum
+
+        where:
+        unit           |   unitEnum
+        "Tbsp"         |   VolumetricUnit.TBSP
+        "TSP"          |   VolumetricUnit.TSP
+        "fluid ounces" |   VolumetricUnit.FL_OZ
+        "Fluid Ounce"  |   VolumetricUnit.FL_OZ
+        "fl oz"        |   VolumetricUnit.FL_OZ
+        "Inches"       |   LengthUnit.IN
+        "SLICES"       |   SingularUnit.SLICE
+        "°F"           |   TemperatureUnit.F
+        "Kilograms"    |   WeightUnit.KG
+        "lbs"          |   WeightUnit.LB
+        "fl  oz"       |   null
+        "whole"        |   null
+        ""             |   null
+        null           |   null
+    }
+
+    def "an alias used by more than one kind of unit should go to the volumetric unit" () {
+        expect:
+        UnitLexicon.ALL.parse("c") == VolumetricUnit.CUP
+        UnitLexicon.ALL.parse("C") == VolumetricUnit.CUP
+        TemperatureUnit.DEFAULT.getUnitEnum("C") == TemperatureUnit.C
+    }
+
+    def "every alias of every unit should parse back to that unit" () {
+        given:
+        List<Unit> units = [VolumetricUnit.values(), LengthUnit.values(), SingularUnit.values(),
+                            TemperatureUnit.values(), WeightUnit.values()].flatten() as List<Unit>
+
+        expect:
+        units.every { unit ->
+            unit.aliases.every { alias -> unit.getUnitEnum(alias) == unit && unit.getUnitEnum(alias.toUpperCase()) == unit }
+        }
+    }
+
+    def "a lexicon of some units should only know those units" () {
+        given:
+        UnitLexicon<WeightUnit> lexicon = UnitLexicon.of([WeightUnit.G, WeightUnit.KG] as WeightUnit[])
+
+        expect:
+        lexicon.parse("grams") == WeightUnit.G
+        lexicon.parse("KG") == WeightUnit.KG
+        lexicon.parse("oz") == null
+    }
+}
@@ -0,0 +1,31 @@
+package com.finalproject.demeter.util
+
+import spock.lang.Specification
+
+class RecipeCursorSpec extends Specification {
+    def "An encoded cursor decodes back to the same recipe id" () {
+        when:
+        String cursor = RecipeCursor.encode(42L)
+
+        then:
+        RecipeCursor.decode(cursor) == Optional.of(42L)
+    }
+
+    def "A missing cursor starts at the first page" () {
+        expect:
+        RecipeCursor.decode(cursor) == Optional.of(0L)
+
+        where:
+        cursor << [null, "", "  "]
+    }
+
+    def "A cursor that was not created by encode is rejected" () {
+        expect:
+        RecipeCursor.decode(cursor).isEmpty()
+
+        where:
+        cursor << ["not a cursor", Base64.getUrlEncoder().encodeToString("x:1".getBytes()),
+                   Base64.getUrlEncoder().encodeToString("r:abc".getBytes()),
+                   Base64.getUrlEncoder().encodeToString("r:-5".getBytes())]
+    }
+}